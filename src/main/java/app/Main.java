@@ -1,7 +1,7 @@
 package app;
 
 
-import app.db.Database;
+import app.db.InteractionStore;
 import app.http.logger.Logger;
 import app.http.Server;
 
@@ -59,7 +59,7 @@ public class Main {
      */
     public static void main(String[] args) {
         Logger.setLevel(properties.getProperty("logger_level"));
-        Server.start(Integer.parseInt(properties.getProperty("port")), new Database(Main.properties));
+        Server.start(Integer.parseInt(properties.getProperty("port")), InteractionStore.fromProperties(Main.properties));
         // Implicitly ait for server to stop
     }
 }
@@ -0,0 +1,166 @@
+package app.analysis;
+
+import app.graph.Edge;
+import app.graph.Graph;
+import app.graph.Vertex;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A lazily evaluated view of the flow distances between all vertices of an appropriately weighted graph.
+ *
+ * In contrast to {@link Centrality#flowDistance(Graph)} no complete graph is built. The distances from a source are
+ * calculated on demand with Dijkstra's algorithm, which gives the same shortest paths as Floyd-Warshall for the
+ * non-negative flow weights, and the most recently used rows are cached.
+ */
+public class FlowDistances {
+    private final List<String> vertices;
+    private final Map<String, Integer> indices = new HashMap<>();
+    // adjacency of vertex i in neighbors and weights from start[i] to start[i + 1]
+    private final int[] start;
+    private final int[] neighbors;
+    private final double[] weights;
+    private final Map<Integer, double[]> rows;
+
+    /**
+     * Creates the view for the given graph.
+     *
+     * @param graph a graph with information flow values on the edges
+     * @param cachedRows the maximal number of rows that are kept, 0 disables the cache
+     */
+    public FlowDistances(Graph graph, int cachedRows) {
+        this.vertices = graph.getOrderedVertices().stream().map(Vertex::getIdentifier).collect(Collectors.toList());
+        for (int i = 0; i < vertices.size(); i++) {
+            indices.put(vertices.get(i), i);
+        }
+        this.start = new int[vertices.size() + 1];
+        int degrees = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            start[i] = degrees;
+            degrees += graph.getVertex(vertices.get(i)).getEdges().size();
+        }
+        start[vertices.size()] = degrees;
+        this.neighbors = new int[degrees];
+        this.weights = new double[degrees];
+        for (int i = 0; i < vertices.size(); i++) {
+            Vertex v = graph.getVertex(vertices.get(i));
+            int k = start[i];
+            for (Edge e : v.getEdges()) {
+                neighbors[k] = indices.get(e.oppositeVertex(v).getIdentifier());
+                weights[k++] = e.getWeight();
+            }
+        }
+        this.rows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+                return size() > cachedRows;
+            }
+        };
+    }
+
+    /**
+     * Returns the identifiers of all vertices in the order of {@link Graph#getOrderedVertices()}.
+     * @return the identifiers of all vertices
+     */
+    public List<String> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Checks whether the view contains a vertex with the given identifier.
+     * @param identifier the identifier of the vertex
+     * @return true if the vertex exists
+     */
+    public boolean contains(String identifier) {
+        return indices.containsKey(identifier);
+    }
+
+    /**
+     * Returns the flow distance between two vertices.
+     *
+     * @param source the identifier of the first vertex
+     * @param target the identifier of the second vertex
+     * @return the flow distance, infinity if the vertices are not connected
+     * @throws IllegalArgumentException if one of the vertices does not exist
+     */
+    public double distance(String source, String target) {
+        return this.row(source)[this.index(target)];
+    }
+
+    /**
+     * Returns the flow distances from the source to all other connected vertices, nearest first.
+     *
+     * @param source the identifier of the source vertex
+     * @param limit the maximal number of returned vertices, negative for all
+     * @return a map from vertex identifiers to flow distances ordered by distance
+     * @throws IllegalArgumentException if the source does not exist
+     */
+    public Map<String, Double> distancesFrom(String source, int limit) {
+        int s = this.index(source);
+        double[] row = this.row(source);
+        Map<String, Double> result = new LinkedHashMap<>();
+        IntStream.range(0, row.length)
+                .filter(i -> i != s && row[i] != Double.POSITIVE_INFINITY)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> row[i]).thenComparing(i -> i))
+                .limit(limit < 0 ? Long.MAX_VALUE : limit)
+                .forEach(i -> result.put(vertices.get(i), row[i]));
+        return result;
+    }
+
+    private int index(String identifier) {
+        Integer index = indices.get(identifier);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown vertex: " + identifier);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the flow distances from the source to all vertices, calculated on the first access.
+     * @param source the identifier of the source vertex
+     * @return the distances indexed like {@link #getVertices()}
+     */
+    private double[] row(String source) {
+        int s = this.index(source);
+        synchronized (rows) {
+            double[] row = rows.get(s);
+            if (row != null) return row;
+        }
+        double[] row = this.dijkstra(s);
+        synchronized (rows) {
+            rows.put(s, row);
+        }
+        return row;
+    }
+
+    private double[] dijkstra(int source) {
+        double[] dists = new double[vertices.size()];
+        Arrays.fill(dists, Double.POSITIVE_INFINITY);
+        dists[source] = 0;
+        boolean[] done = new boolean[vertices.size()];
+        PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble(entry -> entry[0]));
+        queue.add(new double[]{0, source});
+        while (!queue.isEmpty()) {
+            int v = (int) queue.poll()[1];
+            if (done[v]) continue;
+            done[v] = true;
+            for (int k = start[v]; k < start[v + 1]; k++) {
+                double dist = dists[v] + weights[k];
+                if (dist < dists[neighbors[k]]) {
+                    dists[neighbors[k]] = dist;
+                    queue.add(new double[]{dist, neighbors[k]});
+                }
+            }
+        }
+        return dists;
+    }
+}
@@ -5,6 +5,7 @@ import app.db.GraphOptions;
 import app.graph.Graph;
 import app.http.Server;
 
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -56,4 +57,15 @@ public class AnalysisRequest {
     }
 
     public boolean centralizationRequested(){return this.centralization;}
+
+    /**
+     * Returns a key that is equal for requests with the same result, i.e. the same centralities of graphs with the
+     * same content.
+     *
+     * @return the requested centralities, whether the centralization is requested and the hash of the graph
+     */
+    public List<Object> getKey() {
+        // the names are not normalized, since the result is keyed by the names as requested
+        return List.of(List.of(centralities), centralization, data.contentHash());
+    }
 }
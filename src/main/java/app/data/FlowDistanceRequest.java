@@ -0,0 +1,30 @@
+package app.data;
+
+/**
+ * Helper data structure that a request body for the /api/flow-distance route is decoded into
+ */
+public class FlowDistanceRequest {
+    private final String source;
+    private final String target;
+    private final int offset;
+    private final int limit;
+    private final int top;
+
+    public FlowDistanceRequest(String source, String target, int offset, int limit, int top) {
+        this.source = source;
+        this.target = target;
+        this.offset = offset;
+        this.limit = limit;
+        this.top = top;
+    }
+
+    public String getSource() { return this.source; }
+
+    public String getTarget() { return this.target; }
+
+    public int getOffset() { return this.offset; }
+
+    public int getLimit() { return this.limit; }
+
+    public int getTop() { return this.top; }
+}
@@ -0,0 +1,23 @@
+package app.data;
+
+import app.db.GraphOptions;
+
+import java.util.Collections;
+import java.util.SortedMap;
+
+/**
+ * Helper data structure that a request body for the /api/graph route is decoded into
+ */
+public class GraphRequest {
+    private final GraphOptions option;
+    private final SortedMap<String, String> filters;
+
+    public GraphRequest(GraphOptions option, SortedMap<String, String> filters) {
+        this.option = option;
+        this.filters = filters;
+    }
+
+    public GraphOptions getOption() { return this.option; }
+
+    public SortedMap<String, String> getFilters() { return Collections.unmodifiableSortedMap(this.filters); }
+}
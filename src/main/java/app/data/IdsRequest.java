@@ -0,0 +1,48 @@
+package app.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Helper data structure that the query of the /api/ids route is decoded into
+ */
+public class IdsRequest {
+    private final String prefix;
+    private final String after;
+    private final int limit;
+    private final boolean paged;
+
+    public IdsRequest(String prefix, String after, int limit, boolean paged) {
+        this.prefix = prefix;
+        this.after = after;
+        this.limit = limit;
+        this.paged = paged;
+    }
+
+    /**
+     * Returns the cursor of the page that starts after the given id.
+     * @param id the last id of a page
+     * @return the cursor, the URL safe base64 encoded id
+     */
+    public static String cursorOf(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the id a cursor starts after.
+     * @param cursor the cursor of a page
+     * @return the last id of the previous page
+     * @throws IllegalArgumentException if the cursor is not URL safe base64
+     */
+    public static String idOf(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    public String getPrefix() { return this.prefix; }
+
+    public String getAfter() { return this.after; }
+
+    public int getLimit() { return this.limit; }
+
+    public boolean isPaged() { return this.paged; }
+}
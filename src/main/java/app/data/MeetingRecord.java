@@ -0,0 +1,46 @@
+package app.data;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Helper data structure for a single stored meeting as it is exported to and imported from a dump
+ */
+public class MeetingRecord {
+    public final String[] names;
+    public final long datetime;
+    public final int duration;
+    public final int distinctPersons;
+
+
+    public MeetingRecord(String[] names, long datetime, int duration, int distinctPersons) {
+        this.names = names;
+        this.datetime = datetime;
+        this.duration = duration;
+        this.distinctPersons = distinctPersons;
+    }
+
+    /**
+     * Returns the interaction that adds this meeting again. Documents have no distinct persons.
+     * @return the interaction of this meeting
+     */
+    public InteractionRequest asInteraction() {
+        return new InteractionRequest(names, datetime, duration, distinctPersons == 0);
+    }
+
+    @Override
+    public boolean equals(Object data) {
+        if (!(data instanceof MeetingRecord)) {
+            return false;
+        }
+        MeetingRecord mData = (MeetingRecord) data;
+
+        return Arrays.equals(this.names, mData.names) && this.datetime == mData.datetime
+                && this.duration == mData.duration && this.distinctPersons == mData.distinctPersons;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(names), datetime, duration, distinctPersons);
+    }
+}
@@ -1,15 +1,42 @@
 package app.data;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * Helper data structure that a response body for the routes are partially encoded into
  */
 public class MimeObject {
     public final String type;
     public final byte[] content;
+    // content encoding the content is already compressed with, null if it is not compressed
+    public final String encoding;
+    // writes bodies that are streamed instead of encoded into the content, null if the content is set
+    public final Body body;
+
+    /**
+     * A body that is written directly to the response instead of being encoded into a byte array first.
+     */
+    public interface Body {
+        void writeTo(OutputStream os) throws IOException;
+    }
 
     public MimeObject(String type, byte[] content) {
+        this(type, content, null);
+    }
+
+    public MimeObject(String type, byte[] content, String encoding) {
         this.type = type;
         this.content = content;
+        this.encoding = encoding;
+        this.body = null;
+    }
+
+    public MimeObject(String type, Body body) {
+        this.type = type;
+        this.content = null;
+        this.encoding = null;
+        this.body = body;
     }
 
 }
@@ -2,6 +2,7 @@ package app.data;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.nio.charset.StandardCharsets;
@@ -22,6 +23,10 @@ public class ResponseObject {
         return new String(body.content, StandardCharsets.UTF_8);
     }
 
+    public InputStream bodyAsStream() {
+        return new ByteArrayInputStream(body.content);
+    }
+
     public Object bodyAsObject() {
         try(ByteArrayInputStream bis = new ByteArrayInputStream(this.body.content); ObjectInput in = new ObjectInputStream(bis)) {
             return in.readObject();
@@ -1,12 +1,24 @@
 package app.db;
 
 import app.data.InteractionRequest;
+import app.data.MeetingRecord;
 import app.graph.Graph;
 import app.http.logger.Logger;
+import app.http.logger.LoggerLevel;
 import org.mariadb.jdbc.Driver;
 
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static app.analysis.Centrality.flowDistance;
 
@@ -14,19 +26,48 @@ import static app.analysis.Centrality.flowDistance;
  * A class to interact with the database and add/update/delete data or tables of the database.
  */
 
-public class Database {
+public class Database implements InteractionStore {
     private final String url;
     private final String user;
     private final String password;
     private final String productionTableMeetings;
     private final String productionTablePersons;
+    private final String productionTableNames;
     // Above String won't change
     private String workingTableMeetings;
     private String workingTablePersons;
+    private String workingTableNames;
+    private String workingTableRollups;
+    private String workingTableHistory;
     //weights for flow distance
     private final double talkWeight;
     private final double meetingWeight;
     private final double documentWeight;
+    //cache for generated graphs, invalidated by bumping the data version on every write
+    private final GraphCache cache;
+    private final AtomicLong version = new AtomicLong();
+    //sorted names of the persons, loaded on first use and updated after every write, guarded by idsLock
+    private final Object idsLock = new Object();
+    private NameIndex ids = null;
+    //writes that finished while the index is loaded, replayed on the loaded index
+    private List<Consumer<NameIndex>> idsPending = null;
+    private int idsLoading = 0;
+    //changed when the index is dropped, so a load of the previous working tables is not kept
+    private long idsGeneration = 0;
+    //rows fetched at once while streaming graph queries, 0 buffers the whole result
+    private final int fetchSize;
+    //meetings inserted per batch and transaction by importMeetings
+    private final int importBatchSize;
+    //meetings older than the retention are folded into the pair history in batches, 0 days keeps all meetings
+    private final int retentionDays;
+    private final int retentionBatchSize;
+    //limits the connections open at once, e.g. when requests are handled on virtual threads
+    private final Semaphore connections;
+    private final ScheduledExecutorService retention = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "database-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     static {
         try {
@@ -55,13 +96,99 @@ public class Database {
         this.password = prop.getProperty("db_pass");
         this.productionTableMeetings = prop.getProperty("db_production_table_meetings");
         this.productionTablePersons = prop.getProperty("db_production_table_persons");
+        this.productionTableNames = namesTable(productionTablePersons);
         this.talkWeight = Double.parseDouble(prop.getProperty("talk_weight"));
         this.meetingWeight = Double.parseDouble(prop.getProperty("meeting_weight"));
         this.documentWeight = Double.parseDouble(prop.getProperty("document_weight"));
+        this.fetchSize = Integer.parseInt(prop.getProperty("db_fetch_size"));
+        this.importBatchSize = Integer.parseInt(prop.getProperty("import_batch_size"));
+        this.retentionDays = Integer.parseInt(prop.getProperty("retention_days"));
+        this.retentionBatchSize = Integer.parseInt(prop.getProperty("retention_batch_size"));
+        this.connections = new Semaphore(Integer.parseInt(prop.getProperty("db_max_connections")), true);
+        this.cache = new GraphCache(Integer.parseInt(prop.getProperty("graph_cache_size")),
+                Long.parseLong(prop.getProperty("graph_cache_ttl")) * 1000);
 
         if(!this.createTable(productionTableMeetings, productionTablePersons)) throw new IllegalArgumentException("Could not create production table");
         workingTableMeetings = productionTableMeetings;
         workingTablePersons = productionTablePersons;
+        workingTableNames = productionTableNames;
+        workingTableRollups = rollupsTable(productionTableMeetings);
+        workingTableHistory = historyTable(productionTableMeetings);
+
+        if (retentionDays > 0) {
+            long interval = Long.parseLong(prop.getProperty("retention_interval"));
+            retention.scheduleWithFixedDelay(this::applyRetention, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Opens a connection to the database once one of the {@code db_max_connections} permits is free. The permit is
+     * returned when the connection is closed.
+     * @return the open connection
+     * @throws SQLException if the connection could not be opened or the thread was interrupted while waiting
+     */
+    private Connection connect() throws SQLException {
+        try {
+            connections.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        Connection conn;
+        try {
+            conn = DriverManager.getConnection(url, user, password);
+        } catch (SQLException | RuntimeException e) {
+            connections.release();
+            throw e;
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        connections.release();
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Returns the name of the name dictionary that belongs to the given person table.
+     * @param tablePersons table name of the person table
+     * @return table name of the corresponding name dictionary
+     */
+    private static String namesTable(String tablePersons) {
+        return tablePersons + "_names";
+    }
+
+    /**
+     * Returns the name of the pair rollup table that belongs to the given meeting table.
+     * @param tableMeetings table name of the meeting table
+     * @return table name of the corresponding rollup table
+     */
+    private static String rollupsTable(String tableMeetings) {
+        return tableMeetings + "_rollups";
+    }
+
+    /**
+     * Returns the name of the pair history that belongs to the given meeting table.
+     * @param tableMeetings table name of the meeting table
+     * @return table name of the corresponding history table
+     */
+    private static String historyTable(String tableMeetings) {
+        return tableMeetings + "_history";
+    }
+
+    /**
+     * Returns the name of the table that keeps until when the meetings of the given meeting table were folded.
+     * @param tableMeetings table name of the meeting table
+     * @return table name of the corresponding folded boundary
+     */
+    private static String foldedTable(String tableMeetings) {
+        return tableMeetings + "_folded";
     }
 
     /**
@@ -83,7 +210,8 @@ public class Database {
                     .limit(10)
                     .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
                     .toString();
-        } while(this.exists(tableMeetings));
+        } while(this.exists(tableMeetings) || this.exists(rollupsTable(tableMeetings)) || this.exists(historyTable(tableMeetings))
+                || this.exists(foldedTable(tableMeetings)));
         // Create name of a new table that does not exists
         String tablePersons;
         do {
@@ -92,11 +220,16 @@ public class Database {
                     .limit(10)
                     .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
                     .toString();
-        } while(this.exists(tablePersons));
+        } while(this.exists(tablePersons) || this.exists(namesTable(tablePersons)));
 
         if (createTable(tableMeetings, tablePersons)) {
+            version.incrementAndGet();
             workingTableMeetings = tableMeetings;
             workingTablePersons = tablePersons;
+            workingTableNames = namesTable(tablePersons);
+            workingTableRollups = rollupsTable(tableMeetings);
+            workingTableHistory = historyTable(tableMeetings);
+            this.invalidateIds();
             return true;
         }
         return false;
@@ -111,11 +244,19 @@ public class Database {
         if (workingTableMeetings.equals(productionTableMeetings)) return true;
 
         // Delete newly created test table
-        try (Connection conn = DriverManager.getConnection(url, user, password); Statement stmtOne = conn.createStatement(); Statement stmtTwo = conn.createStatement()) {
+        try (Connection conn = this.connect(); Statement stmtOne = conn.createStatement(); Statement stmtTwo = conn.createStatement()) {
             String queryPersons = String.format("DROP TABLE IF EXISTS VirtuHoS_4.%s;", workingTablePersons);
             stmtTwo.executeUpdate(queryPersons);
             String queryMeetings = String.format("DROP TABLE IF EXISTS VirtuHoS_4.%s;", workingTableMeetings);
             stmtOne.executeUpdate(queryMeetings);
+            String queryHistory = String.format("DROP TABLE IF EXISTS VirtuHoS_4.%s;", workingTableHistory);
+            stmtOne.executeUpdate(queryHistory);
+            String queryFolded = String.format("DROP TABLE IF EXISTS VirtuHoS_4.%s;", foldedTable(workingTableMeetings));
+            stmtOne.executeUpdate(queryFolded);
+            String queryNames = String.format("DROP TABLE IF EXISTS VirtuHoS_4.%s;", workingTableNames);
+            stmtOne.executeUpdate(queryNames);
+            String queryRollups = String.format("DROP TABLE IF EXISTS VirtuHoS_4.%s;", workingTableRollups);
+            stmtOne.executeUpdate(queryRollups);
         } catch (SQLException e) {
             Logger.log(e);
             return false;
@@ -123,17 +264,34 @@ public class Database {
 
         workingTableMeetings = productionTableMeetings;
         workingTablePersons = productionTablePersons;
+        workingTableNames = productionTableNames;
+        workingTableRollups = rollupsTable(productionTableMeetings);
+        workingTableHistory = historyTable(productionTableMeetings);
+        this.invalidateIds();
+        version.incrementAndGet();
         return true;
     }
 
     /**
-     * Creates a new pair of tables (one meetinga and one person table) with their properties
+     * Creates a new pair of tables (one meetinga and one person table) with their properties along with the name
+     * dictionary of the person table, the pair rollups, the pair history and the folded boundary of the meeting table
+     * and the indexes used by the graph queries.
+     *
+     * Person tables of an older layout that still store the name in every row are migrated to the dictionary.
+     * Rollups that did not exist before are built from the meetings already stored.
      * @param tableMeetings table name for the meeting table
      * @param tablePersons table name for the person table
      * @return returns whether the method was successful or not
      */
     private boolean createTable(String tableMeetings, String tablePersons) {
-        try (Connection conn = DriverManager.getConnection(url, user, password); Statement stmt = conn.createStatement()) {
+        String tableNames = namesTable(tablePersons);
+        String tableRollups = rollupsTable(tableMeetings);
+        String tableHistory = historyTable(tableMeetings);
+        String tableFolded = foldedTable(tableMeetings);
+        boolean buildRollups = !this.exists(tableRollups);
+        // Checked before the connection below is opened, so a single permitted connection suffices
+        boolean migrate = this.hasColumn(tablePersons, "name");
+        try (Connection conn = this.connect(); Statement stmt = conn.createStatement()) {
             String queryMeetings = String.format(
                     """
                     CREATE TABLE IF NOT EXISTS VirtuHoS_4.%s (
@@ -146,17 +304,99 @@ public class Database {
                     );
                     """, tableMeetings, tableMeetings);
             stmt.executeUpdate(queryMeetings);
-            String queryPersons = String.format(
+            String queryNames = String.format(
                     """
                     CREATE TABLE IF NOT EXISTS VirtuHoS_4.%s (
-                        meeting_ID bigint not null,
+                        person_ID bigint auto_increment,
                         name varchar(2048) not null,
-                        constraint %s_%s_meeting_ID_fk
-                            foreign key (meeting_ID) references %s (meeting_ID)
-                                on update cascade on delete cascade  
+                        name_hash binary(32) as (UNHEX(SHA2(name, 256))) persistent,
+                        constraint %s_pk
+                            primary key (person_ID),
+                        constraint %s_name_hash_uindex
+                            unique (name_hash)
                     );
-                    """, tablePersons, tablePersons, tableMeetings, tableMeetings);
-            stmt.executeUpdate(queryPersons);
+                    """, tableNames, tableNames, tableNames);
+            stmt.executeUpdate(queryNames);
+            if (migrate) {
+                this.migrateTable(stmt, tableMeetings, tablePersons);
+            } else {
+                String queryPersons = String.format(
+                        """
+                        CREATE TABLE IF NOT EXISTS VirtuHoS_4.%s (
+                            meeting_ID bigint not null,
+                            person_ID bigint not null,
+                            constraint %s_pk
+                                primary key (meeting_ID, person_ID),
+                            constraint %s_%s_meeting_ID_fk
+                                foreign key (meeting_ID) references %s (meeting_ID)
+                                    on update cascade on delete cascade,
+                            constraint %s_%s_person_ID_fk
+                                foreign key (person_ID) references %s (person_ID)
+                                    on update cascade on delete cascade
+                        );
+                        """, tablePersons, tablePersons, tablePersons, tableMeetings, tableMeetings,
+                        tablePersons, tableNames, tableNames);
+                stmt.executeUpdate(queryPersons);
+            }
+            stmt.executeUpdate(String.format("CREATE INDEX IF NOT EXISTS %s_person_ID_index ON VirtuHoS_4.%s (person_ID, meeting_ID);", tablePersons, tablePersons));
+            stmt.executeUpdate(String.format("CREATE INDEX IF NOT EXISTS %s_datetime_index ON VirtuHoS_4.%s (datetime);", tableMeetings, tableMeetings));
+            String queryRollups = String.format(
+                    """
+                    CREATE TABLE IF NOT EXISTS VirtuHoS_4.%s (
+                        resolution bigint not null,
+                        bucket bigint not null,
+                        person_ID1 bigint not null,
+                        person_ID2 bigint not null,
+                        interactions bigint not null,
+                        duration bigint null,
+                        distinctPersons int not null,
+                        constraint %s_pk
+                            primary key (resolution, bucket, person_ID1, person_ID2)
+                    );
+                    """, tableRollups, tableRollups);
+            stmt.executeUpdate(queryRollups);
+            String queryHistory = String.format(
+                    """
+                    CREATE TABLE IF NOT EXISTS VirtuHoS_4.%s (
+                        person_ID1 bigint not null,
+                        person_ID2 bigint not null,
+                        interactions bigint not null,
+                        duration bigint null,
+                        distinctPersons int not null,
+                        constraint %s_pk
+                            primary key (person_ID1, person_ID2),
+                        constraint %s_person_ID1_fk
+                            foreign key (person_ID1) references %s (person_ID)
+                                on update cascade on delete cascade,
+                        constraint %s_person_ID2_fk
+                            foreign key (person_ID2) references %s (person_ID)
+                                on update cascade on delete cascade
+                    );
+                    """, tableHistory, tableHistory, tableHistory, tableNames, tableHistory, tableNames);
+            stmt.executeUpdate(queryHistory);
+            String queryFolded = String.format(
+                    """
+                    CREATE TABLE IF NOT EXISTS VirtuHoS_4.%s (
+                        id tinyint not null,
+                        until bigint not null,
+                        constraint %s_pk
+                            primary key (id)
+                    );
+                    """, tableFolded, tableFolded);
+            stmt.executeUpdate(queryFolded);
+            // A history folded before the boundary was kept ends with the day of the oldest meeting that is left
+            String queryFoldedBefore = String.format(
+                    """
+                    INSERT IGNORE INTO VirtuHoS_4.%s (id, until)
+                    SELECT 0, f.until FROM (
+                        SELECT FLOOR(COALESCE(MIN(datetime), %d) / %d) * %d AS until FROM VirtuHoS_4.%s
+                    ) f
+                    WHERE EXISTS (SELECT * FROM VirtuHoS_4.%s)
+                    """, tableFolded, System.currentTimeMillis(), Rollups.DAY, Rollups.DAY, tableMeetings, tableHistory);
+            stmt.executeUpdate(queryFoldedBefore);
+            if (buildRollups) {
+                this.rebuildRollups(conn, tableMeetings, tablePersons, tableRollups, null, null);
+            }
         } catch (SQLException e) {
             Logger.log(e);
             return false;
@@ -164,6 +404,67 @@ public class Database {
         return true;
     }
 
+    /**
+     * Migrates a person table of the old layout (meeting_ID, name) to the layout (meeting_ID, person_ID) that
+     * references the name dictionary. All names are moved into the dictionary before the name column is dropped.
+     * @param stmt statement of an open connection to execute the migration with
+     * @param tableMeetings table name of the meeting table the person table references
+     * @param tablePersons table name of the person table to migrate
+     * @throws SQLException if any step of the migration fails
+     */
+    private void migrateTable(Statement stmt, String tableMeetings, String tablePersons) throws SQLException {
+        String tableNames = namesTable(tablePersons);
+        Logger.log("MIGRATE", "Moving the names of " + tablePersons + " into the dictionary " + tableNames, LoggerLevel.BASIC);
+        stmt.executeUpdate(String.format("INSERT IGNORE INTO VirtuHoS_4.%s (name) SELECT DISTINCT name FROM VirtuHoS_4.%s;", tableNames, tablePersons));
+        stmt.executeUpdate(String.format("ALTER TABLE VirtuHoS_4.%s ADD COLUMN IF NOT EXISTS person_ID bigint null;", tablePersons));
+        stmt.executeUpdate(String.format(
+                """
+                UPDATE VirtuHoS_4.%s p
+                JOIN VirtuHoS_4.%s n ON n.name_hash = UNHEX(SHA2(p.name, 256))
+                SET p.person_ID = n.person_ID;
+                """, tablePersons, tableNames));
+        // Duplicated participations can not be created by addMeeting, but IGNORE drops them if they exist anyway
+        stmt.executeUpdate(String.format(
+                """
+                ALTER IGNORE TABLE VirtuHoS_4.%s
+                    DROP COLUMN name,
+                    MODIFY person_ID bigint not null,
+                    ADD constraint %s_pk
+                        primary key (meeting_ID, person_ID),
+                    ADD constraint %s_%s_person_ID_fk
+                        foreign key (person_ID) references %s (person_ID)
+                            on update cascade on delete cascade;
+                """, tablePersons, tablePersons, tablePersons, tableNames, tableNames));
+        Logger.log("MIGRATE", "Migrated " + tablePersons + " referencing " + tableMeetings, LoggerLevel.BASIC);
+    }
+
+    /**
+     * Check whether a given table has a column with the given name
+     * @param table Name of the table to check
+     * @param column Name of the column to look for
+     * @return returns a boolean whether the column was found or not
+     */
+    private boolean hasColumn(String table, String column) {
+        String query = """
+                SELECT EXISTS
+                (SELECT *
+                FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_SCHEMA = 'VirtuHoS_4' AND TABLE_NAME = ? AND COLUMN_NAME = ?
+                );
+                """;
+
+        try (Connection conn = this.connect(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            ResultSet set = stmt.executeQuery();
+            if (set.next()) return set.getInt(1) != 0;
+
+        } catch (SQLException e) {
+            Logger.log(e);
+        }
+        return false;
+    }
+
     /**
      * Check whether a given table already exists in the database
      * @param table Name of the table to check for existence
@@ -179,7 +480,7 @@ public class Database {
                 );
                 """, table);
 
-        try (Connection conn = DriverManager.getConnection(url, user, password); Statement stmt = conn.createStatement()) {
+        try (Connection conn = this.connect(); Statement stmt = conn.createStatement()) {
             ResultSet set = stmt.executeQuery(query);
             if (set.next()) return set.getInt(1) != 0;
 
@@ -193,12 +494,18 @@ public class Database {
      * Clears the current working tables.
      */
     public void clear() {
-        try (Connection conn = DriverManager.getConnection(url, user, password); Statement stmt = conn.createStatement()) {
+        try (Connection conn = this.connect(); Statement stmt = conn.createStatement()) {
             stmt.executeUpdate("DELETE FROM VirtuHoS_4." + workingTableMeetings);
             stmt.executeUpdate("DELETE FROM VirtuHoS_4." + workingTablePersons);
+            stmt.executeUpdate("DELETE FROM VirtuHoS_4." + workingTableNames);
+            stmt.executeUpdate("DELETE FROM VirtuHoS_4." + workingTableRollups);
+            stmt.executeUpdate("DELETE FROM VirtuHoS_4." + workingTableHistory);
+            stmt.executeUpdate("DELETE FROM VirtuHoS_4." + foldedTable(workingTableMeetings));
         } catch (SQLException e) {
             Logger.log(e);
         }
+        this.invalidateIds();
+        version.incrementAndGet();
     }
 
     /**
@@ -216,9 +523,11 @@ public class Database {
         String query =  String.format(
                 "SELECT EXISTS " +
                 "(SELECT * FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID) " +
-                        "WHERE p1.name = ? and p2.name = ? and m.datetime = ? and m.duration = ? and m.distinctPersons = ?)"
-        , workingTableMeetings, workingTablePersons, workingTablePersons);
-        try (Connection conn = DriverManager.getConnection(url, user, password); PreparedStatement stmt = conn.prepareStatement(query)) {
+                        "JOIN %s n1 ON n1.person_ID = p1.person_ID JOIN %s n2 ON n2.person_ID = p2.person_ID " +
+                        "WHERE n1.name_hash = UNHEX(SHA2(?, 256)) and n2.name_hash = UNHEX(SHA2(?, 256)) " +
+                        "and m.datetime = ? and m.duration = ? and m.distinctPersons = ?)"
+        , workingTableMeetings, workingTablePersons, workingTablePersons, workingTableNames, workingTableNames);
+        try (Connection conn = this.connect(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, name1);
             stmt.setString(2, name2);
             stmt.setLong(3, datetime);
@@ -240,7 +549,7 @@ public class Database {
     public boolean isEmpty(){
         String queryOne = "SELECT NOT EXISTS (SELECT * FROM " + workingTableMeetings + ");";
         String queryTwo = "SELECT NOT EXISTS (SELECT * FROM " + workingTablePersons + ");";
-        try (Connection conn = DriverManager.getConnection(url, user, password); PreparedStatement stmtOne = conn.prepareStatement(queryOne); PreparedStatement stmtTwo = conn.prepareStatement(queryTwo)) {
+        try (Connection conn = this.connect(); PreparedStatement stmtOne = conn.prepareStatement(queryOne); PreparedStatement stmtTwo = conn.prepareStatement(queryTwo)) {
             ResultSet set = stmtOne.executeQuery();
             if (set.next()){
                 if(set.getInt(1) == 0) return false;
@@ -263,68 +572,452 @@ public class Database {
      * @return The number of meetings which were updated and/or deleted
      */
     public int removePerson(String name) {
-        int deletedMeetingsForPerson = 0;
+        return this.removePersons(List.of(name));
+    }
+
+    /**
+     * Remove all tuples in the current working tables for the persons with the given names in one transaction.
+     *
+     * The ids of the persons are collected in a temporary table and the meetings they took part in, together with
+     * the number of removed participants per meeting, in a second one. All updates and deletes join these tables,
+     * so only the affected meetings are touched. Affected meetings with less than two participants left are deleted
+     * together with their remaining participants (e.g if an url is deleted the corresponding meeting is deleted as well).
+     * Meetings folded into the history by the retention only exist as aggregates of their pairs, so the pairs of the
+     * removed persons are deleted but the other pairs of those meetings keep their number of distinct persons. Their
+     * TYPE and FLOW_DISTANCE weights therefore still count the removed persons, unlike for meetings that were kept.
+     * @param names The names of the persons which interactions will be deleted
+     * @return The number of meetings which were updated and/or deleted, summed up over all persons
+     */
+    public int removePersons(Collection<String> names) {
+        if (names.isEmpty()) return 0;
+        int deletedMeetingsForPersons = 0;
+        boolean removed = false;
+        String createRemovedPersons = "CREATE TEMPORARY TABLE removed_persons (person_ID bigint not null primary key)";
+        String insertRemovedPersons = String.format(
+                """
+                INSERT IGNORE INTO removed_persons
+                SELECT person_ID FROM %s WHERE name_hash = UNHEX(SHA2(?, 256))
+                """, workingTableNames);
+        String createRemovedMeetings = String.format(
+                """
+                CREATE TEMPORARY TABLE removed_meetings (meeting_ID bigint not null primary key, removed int not null)
+                SELECT p.meeting_ID, count(*) AS removed
+                FROM %s p JOIN removed_persons r USING(person_ID)
+                GROUP BY p.meeting_ID
+                """, workingTablePersons);
+        // The other persons of the affected meetings and history pairs may not be part of any interaction afterwards
+        String createAffectedPersons = String.format(
+                """
+                CREATE TEMPORARY TABLE affected_persons (person_ID bigint not null primary key)
+                SELECT DISTINCT p.person_ID FROM %s p JOIN removed_meetings a USING(meeting_ID)
+                """, workingTablePersons);
+        String insertAffectedPartners = String.format(
+                """
+                INSERT IGNORE INTO affected_persons
+                SELECT IF(r.person_ID = h.person_ID1, h.person_ID2, h.person_ID1)
+                FROM VirtuHoS_4.%s h JOIN removed_persons r ON r.person_ID IN (h.person_ID1, h.person_ID2)
+                """, workingTableHistory);
+        String selectDays = String.format(
+                """
+                SELECT DISTINCT FLOOR(m.datetime / %d) AS day
+                FROM %s m JOIN removed_meetings a USING(meeting_ID)
+                WHERE m.datetime IS NOT NULL
+                ORDER BY day
+                """, Rollups.DAY, workingTableMeetings);
         String updateDistinctPersons = String.format(
                 """
-                UPDATE %s m 
-                JOIN %s p USING(meeting_ID)
-                SET m.distinctPersons = m.distinctPersons - 1
-                WHERE p.name = ?
-                """, workingTableMeetings, workingTablePersons);
-        String deletePerson = "DELETE FROM " + workingTablePersons + " Where name = ?";
+                UPDATE %s m
+                JOIN removed_meetings a USING(meeting_ID)
+                SET m.distinctPersons = m.distinctPersons - a.removed
+                """, workingTableMeetings);
+        String deletePersons = String.format(
+                """
+                DELETE p FROM %s p
+                JOIN removed_persons r USING(person_ID)
+                """, workingTablePersons);
+        // Talks and meetings have at least two persons left, documents still have their distinctPersons of 0
         String deleteZombiePersons = String.format(
                 """
                 DELETE p FROM %s p
-                WHERE EXISTS 
-                    (SELECT *
-                    FROM %s m
-                    WHERE m.meeting_ID = p.meeting_ID 
-                    AND (m.distinctPersons = 1) OR (m.distinctPersons = -1) );
+                JOIN removed_meetings a USING(meeting_ID)
+                JOIN %s m USING(meeting_ID)
+                WHERE m.distinctPersons < 2
                 """, workingTablePersons, workingTableMeetings);
         String deleteZombieMeetings = String.format(
                 """
-                DELETE FROM %s
-                WHERE (distinctPersons = 1) OR (distinctPersons = -1)
+                DELETE m FROM %s m
+                JOIN removed_meetings a USING(meeting_ID)
+                WHERE m.distinctPersons < 2
                 """, workingTableMeetings);
-        try (Connection conn = DriverManager.getConnection(url, user, password);
-             PreparedStatement stmtOne = conn.prepareStatement(updateDistinctPersons);
-             PreparedStatement stmtTwo = conn.prepareStatement(deletePerson);
-             PreparedStatement stmtThree = conn.prepareStatement(deleteZombiePersons);
-             PreparedStatement stmtFour = conn.prepareStatement(deleteZombieMeetings))
+        // Days folded into the history can not be rebuilt from their meetings, so the rollups of the persons are dropped
+        String deleteRollups = String.format(
+                """
+                DELETE r FROM VirtuHoS_4.%s r
+                JOIN removed_persons x ON x.person_ID IN (r.person_ID1, r.person_ID2)
+                """, workingTableRollups);
+        // The pair history of the persons is deleted with their names
+        String deleteNames = String.format(
+                """
+                DELETE n FROM %s n
+                JOIN removed_persons r USING(person_ID)
+                """, workingTableNames);
+        String selectRemovedIds = String.format(
+                """
+                SELECT n.name FROM affected_persons x JOIN %s n USING(person_ID)
+                WHERE NOT EXISTS (SELECT * FROM %s p WHERE p.person_ID = x.person_ID)
+                    AND NOT EXISTS (SELECT * FROM VirtuHoS_4.%s h WHERE h.person_ID1 = x.person_ID)
+                    AND NOT EXISTS (SELECT * FROM VirtuHoS_4.%s h WHERE h.person_ID2 = x.person_ID)
+                """, workingTableNames, workingTablePersons, workingTableHistory, workingTableHistory);
+        List<String> removedIds = new ArrayList<>(names);
+        try (Connection conn = this.connect();
+             Statement stmt = conn.createStatement())
         {
-            stmtOne.setString(1, name);
-            stmtTwo.setString(1, name);
-            stmtOne.executeUpdate();
-            deletedMeetingsForPerson = stmtTwo.executeUpdate();
-            stmtThree.executeUpdate();
-            stmtFour.executeUpdate();
+            conn.setAutoCommit(false);
+            try {
+                stmt.executeUpdate(createRemovedPersons);
+                try (PreparedStatement stmtNames = conn.prepareStatement(insertRemovedPersons)) {
+                    for (String name : names) {
+                        stmtNames.setString(1, name);
+                        stmtNames.addBatch();
+                    }
+                    stmtNames.executeBatch();
+                }
+                stmt.executeUpdate(createRemovedMeetings);
+                stmt.executeUpdate(createAffectedPersons);
+                stmt.executeUpdate(insertAffectedPartners);
+                List<Long> days = new ArrayList<>();
+                try (ResultSet set = stmt.executeQuery(selectDays)) {
+                    while (set.next()) {
+                        days.add(set.getLong(1));
+                    }
+                }
+                stmt.executeUpdate(updateDistinctPersons);
+                deletedMeetingsForPersons = stmt.executeUpdate(deletePersons);
+                stmt.executeUpdate(deleteZombiePersons);
+                stmt.executeUpdate(deleteZombieMeetings);
+                stmt.executeUpdate(deleteRollups);
+                stmt.executeUpdate(deleteNames);
+                try (ResultSet set = stmt.executeQuery(selectRemovedIds)) {
+                    while (set.next()) {
+                        removedIds.add(set.getString(1));
+                    }
+                }
+                // The pairs and distinct persons of every affected meeting changed, consecutive days are rebuilt at once
+                for (int i = 0; i < days.size(); i++) {
+                    long fromDay = days.get(i);
+                    while (i + 1 < days.size() && days.get(i + 1) == days.get(i) + 1) i++;
+                    this.rebuildRollups(conn, workingTableMeetings, workingTablePersons, workingTableRollups, fromDay, days.get(i));
+                }
+                conn.commit();
+                removed = true;
+            } catch (SQLException e) {
+                conn.rollback();
+                deletedMeetingsForPersons = 0;
+                throw e;
+            } finally {
+                stmt.executeUpdate("DROP TEMPORARY TABLE IF EXISTS removed_persons, removed_meetings, affected_persons");
+            }
         } catch (SQLException e) {
             Logger.log(e);
         }
-        return deletedMeetingsForPerson;
+        if (removed) {
+            this.updateIds(ids -> ids.removeAll(removedIds));
+        }
+        version.incrementAndGet();
+        return deletedMeetingsForPersons;
+    }
+
+    /**
+     * Returns the statement that adds the pairs of the meeting with the id of its only parameter to the rollups of
+     * its hour and day.
+     * @return the SQL statement
+     */
+    private String addRollupsQuery() {
+        return String.format(
+                """
+                INSERT INTO VirtuHoS_4.%1$s (resolution, bucket, person_ID1, person_ID2, interactions, duration, distinctPersons)
+                SELECT r.resolution, FLOOR(m.datetime / r.resolution), p1.person_ID, p2.person_ID, 1, m.duration, m.distinctPersons
+                FROM %2$s m JOIN %3$s p1 USING(meeting_ID) JOIN %3$s p2 USING(meeting_ID)
+                CROSS JOIN (SELECT %4$d AS resolution UNION ALL SELECT %5$d) r
+                WHERE m.meeting_ID = ? AND p1.person_ID < p2.person_ID AND m.datetime IS NOT NULL
+                ON DUPLICATE KEY UPDATE
+                    %1$s.interactions = %1$s.interactions + VALUES(interactions),
+                    %1$s.duration = COALESCE(%1$s.duration + VALUES(duration), %1$s.duration, VALUES(duration)),
+                    %1$s.distinctPersons = LEAST(%1$s.distinctPersons, VALUES(distinctPersons))
+                """, workingTableRollups, workingTableMeetings, workingTablePersons, Rollups.HOUR, Rollups.DAY);
+    }
+
+    /**
+     * Rebuilds the hourly and daily pair rollups of the current working tables from the stored meetings.
+     *
+     * The rollups are kept up to date by addInteractions and removePerson, so this is only needed if the
+     * tables were modified from outside of the server. The rollups of days folded by the retention are kept, since
+     * their meetings are deleted.
+     * @return The number of rebuilt rollup rows or -1 if the rebuild failed
+     */
+    public int rebuildRollups() {
+        try (Connection conn = this.connect()) {
+            return this.rebuildRollups(conn, workingTableMeetings, workingTablePersons, workingTableRollups, null, null);
+        } catch (SQLException e) {
+            Logger.log(e);
+            return -1;
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Replaces the rollups of the given days (and the hours within them) with freshly aggregated ones.
+     *
+     * Days before the folded boundary of the meeting table are skipped, their meetings only exist in the rollups and
+     * the pair history anymore.
+     * @param conn open connection to execute the statements with
+     * @param tableMeetings table name of the meeting table
+     * @param tablePersons table name of the person table
+     * @param tableRollups table name of the rollup table
+     * @param fromDay first day to rebuild or {@code null} to rebuild from the beginning
+     * @param toDay last day to rebuild or {@code null} to rebuild until the end
+     * @return The number of rollup rows inserted
+     * @throws SQLException if the rollups could not be rebuilt
+     */
+    private int rebuildRollups(Connection conn, String tableMeetings, String tablePersons, String tableRollups, Long fromDay, Long toDay) throws SQLException {
+        Long folded = this.foldedUntil(conn, tableMeetings);
+        if (folded != null) {
+            long firstDay = Math.floorDiv(folded, Rollups.DAY);
+            if (toDay != null && toDay < firstDay) return 0;
+            if (fromDay == null || fromDay < firstDay) fromDay = firstDay;
+        }
+        long hoursPerDay = Rollups.DAY / Rollups.HOUR;
+        String dayRange = (fromDay == null ? "" : " AND bucket >= " + fromDay) + (toDay == null ? "" : " AND bucket <= " + toDay);
+        String hourRange = (fromDay == null ? "" : " AND bucket >= " + fromDay * hoursPerDay)
+                + (toDay == null ? "" : " AND bucket < " + (toDay + 1) * hoursPerDay);
+        String datetimeRange = (fromDay == null ? "" : " AND m.datetime >= " + fromDay * Rollups.DAY)
+                + (toDay == null ? "" : " AND m.datetime < " + (toDay + 1) * Rollups.DAY);
+        String deleteRollups = String.format(
+                """
+                DELETE FROM VirtuHoS_4.%s
+                WHERE (resolution = %d%s) OR (resolution = %d%s)
+                """, tableRollups, Rollups.DAY, dayRange, Rollups.HOUR, hourRange);
+        String insertRollups = String.format(
+                """
+                INSERT INTO VirtuHoS_4.%1$s (resolution, bucket, person_ID1, person_ID2, interactions, duration, distinctPersons)
+                SELECT r.resolution, FLOOR(m.datetime / r.resolution), p1.person_ID, p2.person_ID, count(*), sum(m.duration), min(m.distinctPersons)
+                FROM %2$s m JOIN %3$s p1 USING(meeting_ID) JOIN %3$s p2 USING(meeting_ID)
+                CROSS JOIN (SELECT %4$d AS resolution UNION ALL SELECT %5$d) r
+                WHERE p1.person_ID < p2.person_ID AND m.datetime IS NOT NULL%6$s
+                GROUP BY r.resolution, FLOOR(m.datetime / r.resolution), p1.person_ID, p2.person_ID
+                """, tableRollups, tableMeetings, tablePersons, Rollups.HOUR, Rollups.DAY, datetimeRange);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(deleteRollups);
+            return stmt.executeUpdate(insertRollups);
+        }
+    }
+
+    /**
+     * Folds all meetings older than {@code retention_days} into the pair history and deletes them.
+     *
+     * The meetings are folded in batches of {@code retention_batch_size} meetings, each in its own transaction,
+     * so writes are never blocked for long. The history keeps the number of meetings, the sum of the durations and
+     * the minimal number of distinct persons of every pair, which is all the graph queries need without meeting
+     * filters. The cutoff is the start of a day, so the rollups of all folded days stay complete. The cutoff is kept
+     * as the folded boundary, the rollups of the days before it are never rebuilt from the meetings again.
+     * @return The number of folded meetings or -1 if the retention is disabled or failed
+     */
+    public int applyRetention() {
+        if (retentionDays <= 0) return -1;
+        long cutoff = Math.floorDiv(System.currentTimeMillis(), Rollups.DAY) * Rollups.DAY - retentionDays * Rollups.DAY;
+        String createFoldedMeetings = String.format(
+                """
+                CREATE TEMPORARY TABLE folded_meetings (meeting_ID bigint not null primary key)
+                SELECT meeting_ID FROM %s
+                WHERE datetime < ?
+                ORDER BY datetime
+                LIMIT ?
+                """, workingTableMeetings);
+        String insertHistory = String.format(
+                """
+                INSERT INTO VirtuHoS_4.%1$s (person_ID1, person_ID2, interactions, duration, distinctPersons)
+                SELECT p1.person_ID, p2.person_ID, count(*), sum(m.duration), min(m.distinctPersons)
+                FROM folded_meetings f JOIN %2$s m USING(meeting_ID) JOIN %3$s p1 USING(meeting_ID) JOIN %3$s p2 USING(meeting_ID)
+                WHERE p1.person_ID < p2.person_ID
+                GROUP BY p1.person_ID, p2.person_ID
+                ON DUPLICATE KEY UPDATE
+                    %1$s.interactions = %1$s.interactions + VALUES(interactions),
+                    %1$s.duration = COALESCE(%1$s.duration + VALUES(duration), %1$s.duration, VALUES(duration)),
+                    %1$s.distinctPersons = LEAST(%1$s.distinctPersons, VALUES(distinctPersons))
+                """, workingTableHistory, workingTableMeetings, workingTablePersons);
+        String updateFolded = String.format(
+                """
+                INSERT INTO VirtuHoS_4.%1$s (id, until) VALUES (0, ?)
+                ON DUPLICATE KEY UPDATE %1$s.until = GREATEST(%1$s.until, VALUES(until))
+                """, foldedTable(workingTableMeetings));
+        // The persons of the meetings are deleted by the foreign key
+        String deleteMeetings = String.format(
+                """
+                DELETE m FROM %s m
+                JOIN folded_meetings f USING(meeting_ID)
+                """, workingTableMeetings);
+        int folded = 0;
+        try (Connection conn = this.connect();
+             Statement stmt = conn.createStatement();
+             PreparedStatement stmtFolded = conn.prepareStatement(createFoldedMeetings);
+             PreparedStatement stmtBoundary = conn.prepareStatement(updateFolded)) {
+            stmtFolded.setLong(1, cutoff);
+            stmtFolded.setInt(2, retentionBatchSize);
+            stmtBoundary.setLong(1, cutoff);
+            int batch;
+            do {
+                conn.setAutoCommit(false);
+                try {
+                    stmtFolded.executeUpdate();
+                    stmt.executeUpdate(insertHistory);
+                    batch = stmt.executeUpdate(deleteMeetings);
+                    if (batch > 0) {
+                        stmtBoundary.executeUpdate();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                    stmt.executeUpdate("DROP TEMPORARY TABLE IF EXISTS folded_meetings");
+                }
+                folded += batch;
+                version.incrementAndGet();
+            } while (batch == retentionBatchSize);
+        } catch (SQLException e) {
+            Logger.log(e);
+            return -1;
+        }
+        if (folded > 0) {
+            Logger.log("RETENTION", "Folded " + folded + " meetings before " + cutoff + " into the history", LoggerLevel.BASIC);
+        }
+        return folded;
+    }
+
+    @Override
+    public boolean hasFoldedInteractions() throws IOException {
+        try (Connection conn = this.connect()) {
+            return this.foldedUntil(conn, workingTableMeetings) != null;
+        } catch (SQLException e) {
+            throw new IOException("Could not read the folded boundary", e);
+        }
+    }
+
+    /**
+     * Returns until when meetings were folded into the pair history of the given meeting table. All folded meetings
+     * are older than the boundary, meetings that are older and still stored were added after they were folded.
+     * @param conn open connection to execute the query with
+     * @param tableMeetings table name of the meeting table
+     * @return the start of the first day that was not folded or null if no meetings were folded
+     * @throws SQLException if the boundary could not be read
+     */
+    private Long foldedUntil(Connection conn, String tableMeetings) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet set = stmt.executeQuery("SELECT until FROM VirtuHoS_4." + foldedTable(tableMeetings))) {
+            return set.next() ? set.getLong(1) : null;
+        }
     }
 
     /**
      * This methods returns all unique use IDs from the database.
      *
+     * The ids are read from the in-memory index, the persons are only read once to load it.
      * On error returns an empty list. Note that this will also happen if no interactions have ever been added.
      * @return A list of all UIDs
      */
     public List<String> getAllIds() {
-        List<String> result = new ArrayList<>();
-        String query = String.format("SELECT distinct name FROM %s ORDER BY name ", workingTablePersons);
-        try (Connection conn = DriverManager.getConnection(url, user, password);
-             PreparedStatement stmt = conn.prepareStatement(query);
+        NameIndex ids = this.loadIds();
+        return ids != null ? ids.list() : new ArrayList<>();
+    }
+
+    @Override
+    public List<String> getIds(String prefix, String after, int limit) {
+        NameIndex ids = this.loadIds();
+        return ids != null ? ids.page(prefix, after, limit) : new ArrayList<>();
+    }
+
+    /**
+     * Returns the index of the names of all persons of the working tables and loads it if it is not loaded yet.
+     *
+     * The names are read without holding the lock of the index, so writes are not blocked while a connection is
+     * acquired and the names are read. Writes that finish in the meantime are recorded and replayed on the loaded
+     * index, writes that are already part of the read names do not change it again.
+     * @return the index or null if it could not be loaded
+     */
+    private NameIndex loadIds() {
+        long generation;
+        synchronized (idsLock) {
+            if (ids != null) return ids;
+            generation = idsGeneration;
+            if (idsLoading++ == 0) idsPending = new ArrayList<>();
+        }
+        String query = String.format(
+                """
+                SELECT n.name FROM %s n
+                WHERE EXISTS (SELECT * FROM %s p WHERE p.person_ID = n.person_ID)
+                    OR EXISTS (SELECT * FROM %s h WHERE h.person_ID1 = n.person_ID)
+                    OR EXISTS (SELECT * FROM %s h WHERE h.person_ID2 = n.person_ID)
+                """, workingTableNames, workingTablePersons, workingTableHistory, workingTableHistory);
+        NameIndex loaded = new NameIndex();
+        boolean success = false;
+        try (Connection conn = this.connect();
+             PreparedStatement stmt = this.prepareStreaming(conn, query);
              ResultSet set = stmt.executeQuery()
         ) {
             while (set.next()) {
-                result.add(set.getString(1));
+                loaded.add(set.getString(1));
             }
+            success = true;
         } catch(SQLException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+            Logger.log("ERROR", "Could not load the ids: " + e.getMessage(), LoggerLevel.BASIC);
+        }
+        synchronized (idsLock) {
+            if (generation != idsGeneration) {
+                // The working tables changed while the names were read, they are only returned to this caller
+                return success ? loaded : null;
+            }
+            idsLoading--;
+            if (ids != null) return ids;
+            if (!success) {
+                if (idsLoading == 0) idsPending = null;
+                return null;
+            }
+            idsPending.forEach(update -> update.accept(loaded));
+            idsPending = null;
+            idsLoading = 0;
+            ids = loaded;
+            return ids;
+        }
+    }
+
+    /**
+     * Applies a write to the index of the names. While it is loaded the write is recorded and replayed once it is
+     * loaded, if it is not loaded the write is read when it is loaded. Must be called after the connection of the
+     * write is closed, so a write never waits for the index while it holds a connection.
+     * @param update the update of the index
+     */
+    private void updateIds(Consumer<NameIndex> update) {
+        synchronized (idsLock) {
+            if (ids != null) {
+                update.accept(ids);
+            } else if (idsPending != null) {
+                idsPending.add(update);
+            }
+        }
+    }
+
+    /**
+     * Drops the index of the names, e.g. after the working tables were switched, so it is loaded again on next use.
+     */
+    private void invalidateIds() {
+        synchronized (idsLock) {
+            ids = null;
+            idsPending = null;
+            idsLoading = 0;
+            idsGeneration++;
         }
-        return result;
     }
 
     /**
@@ -342,7 +1035,8 @@ public class Database {
         String[] distinctNames = Arrays.stream(data.names).distinct().toArray(String[]::new);
         if (distinctNames.length < 2) return 0;
         int personCounter = 0;
-        try (Connection conn = DriverManager.getConnection(url, user, password)) {
+        boolean added = false;
+        try (Connection conn = this.connect()) {
             //Add meta data of interaction Request to meetings table
             String queryTableMeetings = "INSERT INTO VirtuHoS_4." + workingTableMeetings + " (datetime, duration, distinctPersons) VALUES (?, ?, ?)";
             PreparedStatement updateTableMeetings = conn.prepareStatement(queryTableMeetings, PreparedStatement.RETURN_GENERATED_KEYS);
@@ -360,8 +1054,20 @@ public class Database {
             if (generatedKeys.next())
                 latestMeetingID = generatedKeys.getLong(1);
 
+            //Add names that are not yet known to the name dictionary
+            String queryTableNames = "INSERT IGNORE INTO VirtuHoS_4." + workingTableNames + " (name) VALUES (?)";
+            PreparedStatement updateTableNames = conn.prepareStatement(queryTableNames);
+            for (String name : distinctNames) {
+                updateTableNames.setString(1, name);
+                updateTableNames.addBatch();
+                updateTableNames.clearParameters();
+            }
+            updateTableNames.executeBatch();
+
             //Add persons/document of interaction Request to persons table
-            String queryTablePersons = "INSERT INTO VirtuHoS_4." + workingTablePersons + " (meeting_ID, name) VALUES (?, ?)";
+            String queryTablePersons = String.format(
+                    "INSERT INTO VirtuHoS_4.%s (meeting_ID, person_ID) SELECT ?, person_ID FROM VirtuHoS_4.%s WHERE name_hash = UNHEX(SHA2(?, 256))",
+                    workingTablePersons, workingTableNames);
             PreparedStatement updateTablePersons = conn.prepareStatement(queryTablePersons);
             for (String name : distinctNames) {
                 updateTablePersons.setLong(1, latestMeetingID); // meeting_id corresponding tuple in a4_meetings
@@ -370,9 +1076,20 @@ public class Database {
                 updateTablePersons.clearParameters();
             }
             personCounter = Arrays.stream(updateTablePersons.executeBatch()).sum();
+
+            //Add the pairs of the meeting to the rollups of its hour and day
+            String queryTableRollups = this.addRollupsQuery();
+            PreparedStatement updateTableRollups = conn.prepareStatement(queryTableRollups);
+            updateTableRollups.setLong(1, latestMeetingID);
+            updateTableRollups.executeUpdate();
+            added = true;
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        if (added) {
+            this.updateIds(ids -> ids.addAll(Arrays.asList(distinctNames)));
+        }
+        version.incrementAndGet();
         return personCounter;
     }
 
@@ -396,11 +1113,285 @@ public class Database {
         }
     }
 
+    /**
+     * Adds a batch of interactions to the working tables in a single transaction on one connection.
+     *
+     * The meetings are inserted one by one to get their generated ids, so the batch may run concurrently with other
+     * writes. The names, persons and rollups of the whole batch are then written with one batched statement each.
+     * Documents with more than two names are split into pairs like in {@link #addInteractions(InteractionRequest)}.
+     * @param batch the interactions to add
+     * @return the number of interactions that were added, interactions with less than two distinct names are not
+     * @throws IOException if the batch could not be written, no interaction of the batch is added then
+     */
+    @Override
+    public int addInteractionBatch(List<InteractionRequest> batch) throws IOException {
+        String queryTableMeetings = "INSERT INTO VirtuHoS_4." + workingTableMeetings + " (datetime, duration, distinctPersons) VALUES (?, ?, ?)";
+        String queryTableNames = "INSERT IGNORE INTO VirtuHoS_4." + workingTableNames + " (name) VALUES (?)";
+        String queryTablePersons = String.format(
+                "INSERT INTO VirtuHoS_4.%s (meeting_ID, person_ID) SELECT ?, person_ID FROM VirtuHoS_4.%s WHERE name_hash = UNHEX(SHA2(?, 256))",
+                workingTablePersons, workingTableNames);
+        String queryTableRollups = this.addRollupsQuery();
+        int added = 0;
+        List<String> addedIds = new ArrayList<>();
+        try (Connection conn = this.connect();
+             PreparedStatement updateTableMeetings = conn.prepareStatement(queryTableMeetings, PreparedStatement.RETURN_GENERATED_KEYS);
+             PreparedStatement updateTableNames = conn.prepareStatement(queryTableNames);
+             PreparedStatement updateTablePersons = conn.prepareStatement(queryTablePersons);
+             PreparedStatement updateTableRollups = conn.prepareStatement(queryTableRollups)) {
+            conn.setAutoCommit(false);
+            try {
+                for (InteractionRequest data : batch) {
+                    String[] distinctNames = Arrays.stream(data.names).distinct().toArray(String[]::new);
+                    if (distinctNames.length < 2) continue;
+                    List<String[]> parts = new ArrayList<>();
+                    if (data.document) {
+                        for (int i = 0; i < distinctNames.length - 1; i++) {
+                            parts.add(new String[]{distinctNames[i], distinctNames[distinctNames.length - 1]});
+                        }
+                    } else {
+                        parts.add(distinctNames);
+                    }
+                    addedIds.addAll(Arrays.asList(distinctNames));
+                    for (String[] names : parts) {
+                        updateTableMeetings.setLong(1, data.datetime);
+                        updateTableMeetings.setInt(2, data.duration);
+                        updateTableMeetings.setInt(3, data.document ? 0 : names.length);
+                        updateTableMeetings.executeUpdate();
+                        long meetingID;
+                        try (ResultSet generatedKeys = updateTableMeetings.getGeneratedKeys()) {
+                            generatedKeys.next();
+                            meetingID = generatedKeys.getLong(1);
+                        }
+                        for (String name : names) {
+                            updateTableNames.setString(1, name);
+                            updateTableNames.addBatch();
+                            updateTablePersons.setLong(1, meetingID);
+                            updateTablePersons.setString(2, name);
+                            updateTablePersons.addBatch();
+                        }
+                        updateTableRollups.setLong(1, meetingID);
+                        updateTableRollups.addBatch();
+                    }
+                    added++;
+                }
+                // The persons refer to the names and the rollups to the persons, so the batches run in this order
+                updateTableNames.executeBatch();
+                updateTablePersons.executeBatch();
+                updateTableRollups.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not add the interactions", e);
+        } finally {
+            version.incrementAndGet();
+        }
+        this.updateIds(ids -> ids.addAll(addedIds));
+        return added;
+    }
+
+    /**
+     * Streams all meetings of the working tables with their persons to the given consumer.
+     *
+     * The meetings are read with a single forward only cursor ordered by their id, so the rows of a meeting arrive
+     * together and never more than one meeting is held in memory.
+     * @param consumer receives the meetings one by one
+     * @return the number of exported meetings
+     * @throws IOException if the database could not be read or the consumer failed
+     */
+    public int exportMeetings(MeetingConsumer consumer) throws IOException {
+        String query = String.format(
+                """
+                SELECT m.meeting_ID, m.datetime, m.duration, m.distinctPersons, n.name
+                FROM %s m JOIN %s p USING(meeting_ID) JOIN %s n USING(person_ID)
+                ORDER BY m.meeting_ID
+                """, workingTableMeetings, workingTablePersons, workingTableNames);
+        int exported = 0;
+        try (Connection conn = this.connect();
+             PreparedStatement stmt = this.prepareStreaming(conn, query);
+             ResultSet set = stmt.executeQuery()) {
+            long meetingID = -1;
+            long datetime = 0;
+            int duration = 0;
+            int distinctPersons = 0;
+            List<String> names = new ArrayList<>();
+            while (set.next()) {
+                if (set.getLong(1) != meetingID) {
+                    if (!names.isEmpty()) {
+                        consumer.accept(new MeetingRecord(names.toArray(new String[0]), datetime, duration, distinctPersons));
+                        exported++;
+                    }
+                    meetingID = set.getLong(1);
+                    datetime = set.getLong(2);
+                    duration = set.getInt(3);
+                    distinctPersons = set.getInt(4);
+                    names.clear();
+                }
+                names.add(set.getString(5));
+            }
+            if (!names.isEmpty()) {
+                consumer.accept(new MeetingRecord(names.toArray(new String[0]), datetime, duration, distinctPersons));
+                exported++;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not export the meetings", e);
+        }
+        return exported;
+    }
+
+    /**
+     * Adds all given meetings to the working tables in large batches.
+     *
+     * Each batch of {@code import_batch_size} meetings is inserted with one batched statement per table and committed
+     * in its own transaction. The meetings get their ids from the auto increment of the table, so the import can run
+     * concurrently with other writes, and the persons are inserted with the generated ids. If a batch fails, the
+     * previous batches stay imported. The rollups of the imported days are rebuilt once at the end, except for the days
+     * that were folded by the retention, the pairs of their meetings are added to the rollups with each batch.
+     * Documents with more than two names are split into pairs like in {@link #addInteractions(InteractionRequest)}.
+     * @param meetings the meetings to add
+     * @return the number of imported meetings
+     * @throws IOException if a batch could not be written
+     */
+    @Override
+    public int importMeetings(Iterator<MeetingRecord> meetings) throws IOException {
+        String queryTableNames = "INSERT IGNORE INTO VirtuHoS_4." + workingTableNames + " (name) VALUES (?)";
+        String queryTableMeetings = "INSERT INTO VirtuHoS_4." + workingTableMeetings + " (datetime, duration, distinctPersons) VALUES (?, ?, ?)";
+        String queryTablePersons = String.format(
+                "INSERT INTO VirtuHoS_4.%s (meeting_ID, person_ID) SELECT ?, person_ID FROM VirtuHoS_4.%s WHERE name_hash = UNHEX(SHA2(?, 256))",
+                workingTablePersons, workingTableNames);
+        int imported = 0;
+        Long fromDay = null;
+        Long toDay = null;
+        try (Connection conn = this.connect();
+             PreparedStatement updateTableNames = conn.prepareStatement(queryTableNames);
+             PreparedStatement updateTableMeetings = conn.prepareStatement(queryTableMeetings, PreparedStatement.RETURN_GENERATED_KEYS);
+             PreparedStatement updateTablePersons = conn.prepareStatement(queryTablePersons);
+             PreparedStatement updateTableRollups = conn.prepareStatement(this.addRollupsQuery())) {
+            Long folded = this.foldedUntil(conn, workingTableMeetings);
+            conn.setAutoCommit(false);
+            try {
+                // The persons are batched once the meetings have their ids
+                List<MeetingRecord> batchedMeetings = new ArrayList<>();
+                int batched = 0;
+                while (meetings.hasNext()) {
+                    MeetingRecord meeting = meetings.next();
+                    String[] distinctNames = Arrays.stream(meeting.names).distinct().toArray(String[]::new);
+                    if (distinctNames.length < 2) continue;
+                    List<String[]> parts = new ArrayList<>();
+                    if (meeting.distinctPersons == 0) {
+                        for (int i = 0; i < distinctNames.length - 1; i++) {
+                            parts.add(new String[]{distinctNames[i], distinctNames[distinctNames.length - 1]});
+                        }
+                    } else {
+                        parts.add(distinctNames);
+                    }
+                    for (String[] names : parts) {
+                        int distinctPersons = meeting.distinctPersons == 0 ? 0 : names.length;
+                        updateTableMeetings.setLong(1, meeting.datetime);
+                        updateTableMeetings.setInt(2, meeting.duration);
+                        updateTableMeetings.setInt(3, distinctPersons);
+                        updateTableMeetings.addBatch();
+                        for (String name : names) {
+                            updateTableNames.setString(1, name);
+                            updateTableNames.addBatch();
+                        }
+                        batchedMeetings.add(new MeetingRecord(names, meeting.datetime, meeting.duration, distinctPersons));
+                    }
+                    long day = Math.floorDiv(meeting.datetime, Rollups.DAY);
+                    fromDay = fromDay == null ? day : Math.min(fromDay, day);
+                    toDay = toDay == null ? day : Math.max(toDay, day);
+                    imported++;
+                    if (++batched == importBatchSize) {
+                        this.executeImportBatch(conn, updateTableNames, updateTableMeetings, updateTablePersons, updateTableRollups,
+                                batchedMeetings, folded);
+                        batched = 0;
+                    }
+                }
+                this.executeImportBatch(conn, updateTableNames, updateTableMeetings, updateTablePersons, updateTableRollups,
+                        batchedMeetings, folded);
+                if (fromDay != null) {
+                    this.rebuildRollups(conn, workingTableMeetings, workingTablePersons, workingTableRollups, fromDay, toDay);
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not import the meetings", e);
+        } finally {
+            // Batches of a failed import stay imported, so the names are loaded again instead of being tracked
+            this.invalidateIds();
+            version.incrementAndGet();
+        }
+        return imported;
+    }
+
+    /**
+     * Executes the batched names and meetings of an import, batches the persons with the generated ids of the
+     * meetings and commits them. The ids are assigned by the database, so concurrent writes can not take them.
+     * Meetings of days before the folded boundary are added to the rollups right away, since these days are not
+     * rebuilt at the end of the import.
+     */
+    private void executeImportBatch(Connection conn, PreparedStatement updateTableNames, PreparedStatement updateTableMeetings,
+                                    PreparedStatement updateTablePersons, PreparedStatement updateTableRollups,
+                                    List<MeetingRecord> batchedMeetings, Long folded) throws SQLException {
+        updateTableNames.executeBatch();
+        updateTableMeetings.executeBatch();
+        List<Long> foldedIDs = new ArrayList<>();
+        try (ResultSet generatedKeys = updateTableMeetings.getGeneratedKeys()) {
+            for (MeetingRecord meeting : batchedMeetings) {
+                if (!generatedKeys.next()) throw new SQLException("Missing generated id of an imported meeting");
+                long meetingID = generatedKeys.getLong(1);
+                for (String name : meeting.names) {
+                    updateTablePersons.setLong(1, meetingID);
+                    updateTablePersons.setString(2, name);
+                    updateTablePersons.addBatch();
+                }
+                if (folded != null && meeting.datetime < folded) foldedIDs.add(meetingID);
+            }
+        }
+        updateTablePersons.executeBatch();
+        for (long meetingID : foldedIDs) {
+            updateTableRollups.setLong(1, meetingID);
+            updateTableRollups.addBatch();
+        }
+        updateTableRollups.executeBatch();
+        conn.commit();
+        batchedMeetings.clear();
+    }
+
+    /**
+     * Returns the current data version. The version changes whenever data is written to the working tables or
+     * the working tables are switched.
+     *
+     * @return the current data version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns the statistics of the cache for generated graphs.
+     *
+     * @return the number of cached graphs, hits, misses and evictions
+     */
+    public Map<String, Long> getCacheStatistics() {
+        return cache.getStatistics();
+    }
+
     /**
      * Generates a graph of the data contained in the working tables of the database (mainly for editor-group)
      *
      * Connects to database and pulls all valid (filtered) meetings and their corresponding persons and
-     * adds the persons who were interacting to the Graph and sets the corresponding weight
+     * adds the persons who were interacting to the Graph and sets the corresponding weight.
+     * Graphs are cached until the next write to the database.
      *
      * @param mode specifies how to calculate the edgeWeight for the graph
      * @param filter may contain one or more filter the data in database for values such as names, datetime, ...
@@ -408,22 +1399,15 @@ public class Database {
      */
     public Graph generateGraph(GraphOptions mode, SortedMap<String, String> filter) {
         if (mode == GraphOptions.FLOW_DISTANCE) return this.generateFlowGraph(filter);
-        Graph g = new Graph();
-        String whereClause = GraphFilters.filterString(filter);
-        int setCount = 1;
-        try (Connection conn = DriverManager.getConnection(url, user, password)) {
-            PreparedStatement stmt = conn.prepareStatement(mode.query(workingTableMeetings, workingTablePersons, whereClause));
-            for (SortedMap.Entry<String, String> entry : filter.entrySet()) {
-                if (entry.getKey().contains("NAME")) {
-                    stmt.setString(setCount, entry.getValue());
-                    setCount++;
-                    stmt.setString(setCount, entry.getValue());
-                } else if (entry.getKey().contains("DATETIME")) {
-                    stmt.setLong(setCount, Long.parseLong(entry.getValue()));
-                }
-                setCount++;
-            }
-            ResultSet set = stmt.executeQuery();
+        long version = this.version.get();
+        Graph g = cache.get(mode, filter, version);
+        if (g != null) return g;
+        g = new Graph();
+        boolean complete = false;
+        try (Connection conn = this.connect();
+             PreparedStatement stmt = this.prepareGraphQuery(conn, mode, filter);
+             ResultSet set = stmt.executeQuery()) {
+            // Rows are streamed from the database and added to the graph one by one
             while (set.next()) {
                 String name1 = set.getString(1);
                 String name2 = set.getString(2);
@@ -437,59 +1421,173 @@ public class Database {
                 }
                 g.setWeight(name1, name2, edgeWeight);
             }
-            set.close();
-            stmt.close();
+            complete = true;
         } catch (SQLException e) {
             e.printStackTrace();
         }
         if (!g.getVertices().isEmpty())
             g.normalizeEdgeWeights();
+        if (complete)
+            cache.put(mode, filter, version, g);
         return g;
     }
 
     /**
-     * Overloaded generateGraph method without the need to specify filters.
+     * Prepares the query that aggregates the edge weights of all pairs for the given mode and filters.
      *
+     * Without a datetime filter the raw meetings are aggregated. With a datetime filter all whole days and hours
+     * of the range are read from the rollups and only the remaining edges of the range from the raw meetings,
+     * unless single meetings are filtered by their duration, size or type. Such filters are rejected if the range
+     * reaches days folded into the history, since the folded meetings can not be filtered and would be missing
+     * silently. On folded days the edges of the range are widened to whole hours, their meetings are deleted.
+     * The result is streamed from the database in chunks of the configured fetch size instead of being buffered
+     * completely by the driver, so it has to be read completely before the connection is used again.
+     * @param conn open connection to prepare the statement with
      * @param mode specifies how to calculate the edgeWeight for the graph
-     * @return the generated graph of the database
+     * @param filter may contain one or more filter the data in database for values such as names, datetime, ...
+     * @return the prepared statement with all parameters set
+     * @throws SQLException if the statement could not be prepared
+     * @throws IllegalArgumentException if single meetings are filtered on days that were folded into the history
+     */
+    private PreparedStatement prepareGraphQuery(Connection conn, GraphOptions mode, SortedMap<String, String> filter) throws SQLException {
+        Long folded = this.foldedUntil(conn, workingTableMeetings);
+        // The rollups only keep the aggregates of all meetings of a pair, filters on single meetings need the raw meetings
+        if (!GraphFilters.hasDatetime(filter) || GraphFilters.hasMeeting(filter)) {
+            String whereClause = GraphFilters.filterString(filter, workingTableNames);
+            boolean history = folded != null;
+            // The history only keeps the aggregates of the folded meetings as well, they can not be filtered
+            if (GraphFilters.hasMeeting(filter) && history) {
+                Long min = filter.containsKey("MIN_DATETIME") ? Long.parseLong(filter.get("MIN_DATETIME")) : null;
+                if (min == null || min + 1 < folded) {
+                    throw new IllegalArgumentException("MIN_DURATION, MIN_PERSONS, MAX_PERSONS and TYPE can not be applied to the meetings folded by the retention");
+                }
+                // The range only covers days that were not folded, so the kept meetings are complete
+                history = false;
+            }
+            if (!history) {
+                PreparedStatement stmt = this.prepareStreaming(conn, mode.query(workingTableMeetings, workingTablePersons, workingTableNames, whereClause));
+                GraphFilters.bind(stmt, filter, 1);
+                return stmt;
+            }
+            String pairs = String.format(
+                    """
+                    SELECT p1.person_ID AS id1, p2.person_ID AS id2, count(*) AS interactions, sum(m.duration) AS duration, min(m.distinctPersons) AS distinctPersons
+                    FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
+                    WHERE p1.person_ID < p2.person_ID%s
+                    GROUP BY p1.person_ID, p2.person_ID
+                    UNION ALL
+                    SELECT person_ID1 AS id1, person_ID2 AS id2, interactions, duration, distinctPersons
+                    FROM %s h
+                    WHERE TRUE%s
+                    """, workingTableMeetings, workingTablePersons, workingTablePersons, whereClause, workingTableHistory,
+                    GraphFilters.filterString(filter, workingTableNames, "h.person_ID1", "h.person_ID2"));
+            PreparedStatement stmt = this.prepareStreaming(conn, mode.query(pairs, workingTableNames));
+            GraphFilters.bind(stmt, filter, GraphFilters.bind(stmt, filter, 1));
+            return stmt;
+        }
+
+        Rollups plan = new Rollups(
+                filter.containsKey("MIN_DATETIME") ? Long.parseLong(filter.get("MIN_DATETIME")) : null,
+                filter.containsKey("MAX_DATETIME") ? Long.parseLong(filter.get("MAX_DATETIME")) : null,
+                folded);
+        SortedMap<String, String> names = GraphFilters.withoutDatetime(filter);
+        List<Long> bounds = new ArrayList<>();
+
+        StringBuilder pairs = new StringBuilder();
+        if (!plan.getRaw().isEmpty()) {
+            List<String> ranges = new ArrayList<>();
+            for (Long[] range : plan.getRaw()) {
+                ranges.add("m.datetime BETWEEN ? AND ?");
+                bounds.addAll(List.of(range));
+            }
+            pairs.append(String.format(
+                    """
+                    SELECT p1.person_ID AS id1, p2.person_ID AS id2, 1 AS interactions, m.duration, m.distinctPersons
+                    FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
+                    WHERE p1.person_ID < p2.person_ID AND (%s)%s
+                    UNION ALL
+                    """, workingTableMeetings, workingTablePersons, workingTablePersons, String.join(" OR ", ranges),
+                    GraphFilters.filterString(names, workingTableNames)));
+        }
+        List<String> buckets = new ArrayList<>();
+        for (Long[] range : plan.getHours()) {
+            buckets.add(String.format("(resolution = %d AND bucket BETWEEN ? AND ?)", Rollups.HOUR));
+            bounds.addAll(List.of(range));
+        }
+        for (Long[] range : plan.getDays()) {
+            buckets.add(String.format("(resolution = %d%s%s)", Rollups.DAY,
+                    range[0] == null ? "" : " AND bucket >= ?", range[1] == null ? "" : " AND bucket <= ?"));
+            Arrays.stream(range).filter(Objects::nonNull).forEach(bounds::add);
+        }
+        pairs.append(String.format(
+                """
+                SELECT person_ID1 AS id1, person_ID2 AS id2, interactions, duration, distinctPersons
+                FROM %s r
+                WHERE (%s)%s
+                """, workingTableRollups, buckets.isEmpty() ? "FALSE" : String.join(" OR ", buckets),
+                GraphFilters.filterString(names, workingTableNames, "r.person_ID1", "r.person_ID2")));
+
+        PreparedStatement stmt = this.prepareStreaming(conn, mode.query(pairs.toString(), workingTableNames));
+        int index = 1;
+        int rawBounds = plan.getRaw().size() * 2;
+        if (rawBounds > 0) {
+            for (Long bound : bounds.subList(0, rawBounds)) {
+                stmt.setLong(index++, bound);
+            }
+            index = GraphFilters.bind(stmt, names, index);
+        }
+        for (Long bound : bounds.subList(rawBounds, bounds.size())) {
+            stmt.setLong(index++, bound);
+        }
+        GraphFilters.bind(stmt, names, index);
+        return stmt;
+    }
+
+    /**
+     * Prepares a forward only, read only statement whose result is streamed with the configured fetch size.
+     * @param conn open connection to prepare the statement with
+     * @param query the query to prepare
+     * @return the prepared statement
+     * @throws SQLException if the statement could not be prepared
      */
-    public Graph generateGraph(GraphOptions mode) {
-        SortedMap<String, String> sortedEmptyMap = Collections.emptySortedMap();
-        return this.generateGraph(mode, sortedEmptyMap);
+    private PreparedStatement prepareStreaming(Connection conn, String query) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(fetchSize);
+        return stmt;
     }
 
     /**
      * Generates graph of the interaction data in database according to the flow distance, can contain documents.
      *
-     * Uses the distinctPersons column of the meetings table to determine the distance between two subjects
+     * Uses the distinctPersons column of the meetings table to determine the distance between two subjects.
+     * Graphs are cached until the next write to the database.
      * @param filter may contain one or more filter the data in database for values such as names, datetime, ...
      * @return the generated flow distance graph of the database
      */
     public Graph generateFlowGraph(SortedMap<String, String> filter) {
+        long version = this.version.get();
+        Graph flow = cache.get(GraphOptions.FLOW_DISTANCE, filter, version);
+        if (flow != null) return flow;
+        Graph g = this.generateFlowWeights(filter);
+        if (g == null) return flowDistance(new Graph());
+        flow = flowDistance(g);
+        cache.put(GraphOptions.FLOW_DISTANCE, filter, version, flow);
+        return flow;
+    }
+
+    /**
+     * Generates the graph of the interaction data in database weighted by the kind of the interactions.
+     *
+     * Uses the distinctPersons column of the meetings table to weight the edges with the talk, meeting or document weight.
+     * @param filter may contain one or more filter the data in database for values such as names, datetime, ...
+     * @return the weighted graph or null if it could not be read completely
+     */
+    public Graph generateFlowWeights(SortedMap<String, String> filter) {
         Graph g = new Graph();
-        String whereClause = GraphFilters.filterString(filter);
-        String query = String.format(
-                """
-                SELECT p1.name, p2.name, min(distinctPersons)
-                FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
-                Where p1.name < p2.name %s
-                GROUP BY p1.name, p2.name;
-                """, workingTableMeetings, workingTablePersons, workingTablePersons, whereClause);
-
-        int setCount = 1;
-        try (Connection conn = DriverManager.getConnection(url, user, password)) {
-            PreparedStatement stmt = conn.prepareStatement(query);
-            for (SortedMap.Entry<String, String> entry : filter.entrySet()) {
-                if (entry.getKey().contains("NAME")) {
-                    stmt.setString(setCount, entry.getValue());
-                    setCount++;
-                    stmt.setString(setCount, entry.getValue());
-                } else if (entry.getKey().contains("DATETIME")) {
-                    stmt.setLong(setCount, Long.parseLong(entry.getValue()));
-                }
-                setCount++;
-            }
-            ResultSet set = stmt.executeQuery();
+        try (Connection conn = this.connect();
+             PreparedStatement stmt = this.prepareGraphQuery(conn, GraphOptions.FLOW_DISTANCE, filter);
+             ResultSet set = stmt.executeQuery()) {
+            // Rows are streamed from the database and added to the graph one by one
             while (set.next()) {
                 String name1 = set.getString(1);
                 String name2 = set.getString(2);
@@ -509,22 +1607,11 @@ public class Database {
 
                 g.setWeight(name1, name2, edgeWeight);
             }
-            set.close();
-            stmt.close();
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
-        return flowDistance(g);
-    }
-
-    /**
-     * Overloaded generateFlowGraph method without the need to specify filters.
-     *
-     * @return the generated flow distance graph of the database
-     */
-    public Graph generateFlowGraph() {
-        SortedMap<String, String> sortedEmptyMap = Collections.emptySortedMap();
-        return this.generateFlowGraph(sortedEmptyMap);
+        return g;
     }
 
 }
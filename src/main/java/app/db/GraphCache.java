@@ -0,0 +1,113 @@
+package app.db;
+
+import app.graph.Graph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An in-process cache for generated graphs. Entries are keyed by the graph option, the filters and the data version
+ * of the database they were generated for, so a write to the database makes all previous entries unreachable.
+ *
+ * The cache holds at most a given number of graphs (least recently used are evicted first) for a given time to live.
+ * Since graphs are mutable, only copies of the cached graphs are handed out.
+ */
+public class GraphCache {
+    private final int maxSize;
+    private final long timeToLive;
+    private final LinkedHashMap<List<Object>, CachedGraph> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static class CachedGraph {
+        private final Graph graph;
+        private final long created;
+
+        private CachedGraph(Graph graph, long created) {
+            this.graph = graph;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Creates a new cache.
+     * @param maxSize the maximum number of cached graphs, 0 disables the cache
+     * @param timeToLive time in milliseconds after which a cached graph is evicted
+     */
+    public GraphCache(int maxSize, long timeToLive) {
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns a copy of the graph cached for the given key or {@code null} if there is none.
+     * @param mode the option the graph was generated with
+     * @param filter the filters the graph was generated with
+     * @param version the data version the graph was generated for
+     * @return a copy of the cached graph or {@code null}
+     */
+    public Graph get(GraphOptions mode, Map<String, String> filter, long version) {
+        CachedGraph cached;
+        synchronized (this) {
+            cached = entries.get(key(mode, filter, version));
+            if (cached != null && System.currentTimeMillis() - cached.created > timeToLive) {
+                entries.remove(key(mode, filter, version));
+                evictions++;
+                cached = null;
+            }
+            if (cached == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return cached.graph.copy();
+    }
+
+    /**
+     * Caches a copy of the given graph.
+     * @param mode the option the graph was generated with
+     * @param filter the filters the graph was generated with
+     * @param version the data version the graph was generated for
+     * @param graph the generated graph
+     */
+    public void put(GraphOptions mode, Map<String, String> filter, long version, Graph graph) {
+        if (maxSize <= 0) {
+            return;
+        }
+        CachedGraph cached = new CachedGraph(graph.copy(), System.currentTimeMillis());
+        synchronized (this) {
+            entries.put(key(mode, filter, version), cached);
+            long now = System.currentTimeMillis();
+            Iterator<CachedGraph> it = entries.values().iterator();
+            while (it.hasNext()) {
+                CachedGraph entry = it.next();
+                if (entries.size() > maxSize || now - entry.created > timeToLive) {
+                    it.remove();
+                    evictions++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached graphs, hits, misses and evictions since the start of the server.
+     * @return the statistics of this cache
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new TreeMap<>();
+        statistics.put("size", (long) entries.size());
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("evictions", evictions);
+        return statistics;
+    }
+
+    private static List<Object> key(GraphOptions mode, Map<String, String> filter, long version) {
+        return List.of(mode, new TreeMap<>(filter), version);
+    }
+}
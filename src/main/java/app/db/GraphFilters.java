@@ -1,37 +1,212 @@
 package app.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * A class to filter the database before generating a graph of it
+ *
+ * The supported filters are
+ * <ul>
+ *     <li>{@code NAME} - only pairs with at least one of the given persons</li>
+ *     <li>{@code NOT_NAME} - no pairs with any of the given persons</li>
+ *     <li>{@code MIN_DATETIME}, {@code MAX_DATETIME} - meetings after/before the given datetime (exclusive)</li>
+ *     <li>{@code MIN_DURATION} - meetings that lasted at least the given duration</li>
+ *     <li>{@code MIN_PERSONS}, {@code MAX_PERSONS} - meetings with at least/at most the given distinct persons</li>
+ *     <li>{@code TYPE} - meetings of the given types, {@code TALK} (two persons), {@code MEETING} (more than two
+ *     persons) or {@code DOCUMENT}</li>
+ * </ul>
+ * {@code NAME}, {@code NOT_NAME} and {@code TYPE} may contain several values joined by {@link #SEPARATOR}.
  */
 
 public class GraphFilters {
+    public static final String SEPARATOR = "\u001F";
+    public static final Set<String> TYPES = Set.of("TALK", "MEETING", "DOCUMENT");
+
+    /**
+     * Joins several values of a filter into one filter value.
+     * @param values the values of the filter
+     * @return the values joined by {@link #SEPARATOR}
+     */
+    public static String join(Collection<String> values) {
+        return String.join(SEPARATOR, values);
+    }
+
+    /**
+     * Splits a filter value into its values.
+     * @param value the value of a filter
+     * @return the values that were joined by {@link #SEPARATOR}
+     */
+    public static List<String> split(String value) {
+        return Arrays.asList(value.split(SEPARATOR, -1));
+    }
+
+    /**
+     * Checks the given filter and its value.
+     * @param key the filter
+     * @param value the value of the filter
+     * @throws IllegalArgumentException if the filter is unknown or its value is not valid for it
+     */
+    public static void check(String key, String value) {
+        switch (key) {
+            case "NAME", "NOT_NAME" -> { }
+            case "MIN_DATETIME", "MAX_DATETIME", "MIN_DURATION", "MIN_PERSONS", "MAX_PERSONS" -> {
+                try {
+                    Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Filter " + key + " is not a number");
+                }
+            }
+            case "TYPE" -> {
+                if (!TYPES.containsAll(split(value))) {
+                    throw new IllegalArgumentException("Filter TYPE has to be one of TALK, MEETING and DOCUMENT");
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown filter: " + key);
+        }
+    }
 
     /**
      * This method generates a part of the SQL statement (where clause) that retrieves the data for the graph and adds (multiple) filter to it
+     *
+     * Names are resolved to their person id through the unique hash index of the name dictionary, so the
+     * filter compares integer ids instead of the names themselves. All values are bound as parameters by
+     * {@link #bind(PreparedStatement, Map, int)}.
      * @param filter Map of different filters (keys) and their corresponding value
+     * @param tableNames The name dictionary that maps names to person ids
      * @return returns a valid where clause for sql to filter the data of the database
      */
-    public static String filterString(Map<String, String> filter) {
+    public static String filterString(Map<String, String> filter, String tableNames) {
+        return filterString(filter, tableNames, "p1.person_ID", "p2.person_ID");
+    }
+
+    /**
+     * Generates the where clause for the given filters like {@link #filterString(Map, String)} but for arbitrary
+     * columns that hold the person ids of a pair.
+     * @param filter Map of different filters (keys) and their corresponding value
+     * @param tableNames The name dictionary that maps names to person ids
+     * @param person1 column holding the person id of the first person of a pair
+     * @param person2 column holding the person id of the second person of a pair
+     * @return returns a valid where clause for sql to filter the data of the database
+     */
+    public static String filterString(Map<String, String> filter, String tableNames, String person1, String person2) {
         StringBuilder whereClause = new StringBuilder();
         for (Map.Entry<String, String> entry : filter.entrySet()) {
             switch (entry.getKey()) {
-                case "NAME":
-                    whereClause.append(" AND (p1.name = ? or p2.name = ?)");
+                case "NAME": {
+                    String personIds = personIds(tableNames, split(entry.getValue()).size());
+                    whereClause.append(String.format(" AND (%s IN %s OR %s IN %s)", person1, personIds, person2, personIds));
                     break;
-                case "NOT_NAME":
-                    whereClause.append(" AND (NOT p1.name = ? AND NOT p2.name = ?)");
+                }
+                case "NOT_NAME": {
+                    String personIds = personIds(tableNames, split(entry.getValue()).size());
+                    whereClause.append(String.format(" AND (%s NOT IN %s AND %s NOT IN %s)", person1, personIds, person2, personIds));
                     break;
+                }
                 case "MIN_DATETIME":
                     whereClause.append(" AND (m.datetime > ?)");
                     break;
                 case "MAX_DATETIME":
                     whereClause.append(" AND (m.datetime < ?)");
                     break;
+                case "MIN_DURATION":
+                    whereClause.append(" AND (m.duration >= ?)");
+                    break;
+                case "MIN_PERSONS":
+                    whereClause.append(" AND (m.distinctPersons >= ?)");
+                    break;
+                case "MAX_PERSONS":
+                    whereClause.append(" AND (m.distinctPersons <= ?)");
+                    break;
+                case "TYPE": {
+                    List<String> conditions = new ArrayList<>();
+                    for (String type : split(entry.getValue())) {
+                        conditions.add(switch (type) {
+                            case "TALK" -> "m.distinctPersons = 2";
+                            case "MEETING" -> "m.distinctPersons > 2";
+                            default -> "m.distinctPersons = 0";
+                        });
+                    }
+                    whereClause.append(" AND (").append(String.join(" OR ", conditions)).append(")");
+                    break;
+                }
                 default:
             }
         }
         return whereClause.toString();
     }
+
+    private static String personIds(String tableNames, int count) {
+        return String.format("(SELECT person_ID FROM %s WHERE name_hash IN (%s))",
+                tableNames, String.join(", ", Collections.nCopies(count, "UNHEX(SHA2(?, 256))")));
+    }
+
+    /**
+     * Binds the values of the given filters to the parameters of a statement that contains the where clause
+     * generated by {@link #filterString(Map, String)} for the same filters.
+     * @param stmt The statement to bind the values to
+     * @param filter Map of different filters (keys) and their corresponding value
+     * @param index The index of the first parameter of the where clause
+     * @return the index of the first parameter after the where clause
+     * @throws SQLException if a parameter could not be set
+     */
+    public static int bind(PreparedStatement stmt, Map<String, String> filter, int index) throws SQLException {
+        for (Map.Entry<String, String> entry : filter.entrySet()) {
+            switch (entry.getKey()) {
+                case "NAME", "NOT_NAME" -> {
+                    // once for each person of the pair
+                    for (int i = 0; i < 2; i++) {
+                        for (String name : split(entry.getValue())) {
+                            stmt.setString(index++, name);
+                        }
+                    }
+                }
+                case "MIN_DATETIME", "MAX_DATETIME", "MIN_DURATION", "MIN_PERSONS", "MAX_PERSONS" ->
+                        stmt.setLong(index++, Long.parseLong(entry.getValue()));
+                default -> { }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether the given filters restrict the datetime of the meetings.
+     * @param filter Map of different filters (keys) and their corresponding value
+     * @return whether MIN_DATETIME or MAX_DATETIME is set
+     */
+    public static boolean hasDatetime(Map<String, String> filter) {
+        return filter.containsKey("MIN_DATETIME") || filter.containsKey("MAX_DATETIME");
+    }
+
+    /**
+     * Checks whether the given filters restrict single meetings by more than their datetime. Such filters can not be
+     * answered from the pair rollups, which only keep the aggregates of all meetings of a pair.
+     * @param filter Map of different filters (keys) and their corresponding value
+     * @return whether MIN_DURATION, MIN_PERSONS, MAX_PERSONS or TYPE is set
+     */
+    public static boolean hasMeeting(Map<String, String> filter) {
+        return filter.containsKey("MIN_DURATION") || filter.containsKey("MIN_PERSONS")
+                || filter.containsKey("MAX_PERSONS") || filter.containsKey("TYPE");
+    }
+
+    /**
+     * Returns a copy of the given filters without the datetime filters.
+     * @param filter Map of different filters (keys) and their corresponding value
+     * @return the filters without MIN_DATETIME and MAX_DATETIME
+     */
+    public static SortedMap<String, String> withoutDatetime(Map<String, String> filter) {
+        SortedMap<String, String> result = new TreeMap<>(filter);
+        result.remove("MIN_DATETIME");
+        result.remove("MAX_DATETIME");
+        return result;
+    }
 }
@@ -16,58 +16,69 @@ public enum GraphOptions {
     FLOW_DISTANCE;
 
     /**
-     * Generates the query for the retrieval of the data from the database
+     * Generates the query for the retrieval of the data from the database.
+     *
+     * The pairs are aggregated on the integer person ids of the person table and only joined with the name
+     * dictionary afterwards, so no long name strings have to be compared while grouping.
      *
      * @param tableMeetings the meeting table where meeting data should come from
      * @param tablePersons the person table where person data should come from
+     * @param tableNames the name dictionary that maps the person ids to their names
      * @param whereClause the where clause that might filter the data
      * @return the complete SQL query string which can be executed by the database
      */
-    public String query(String tableMeetings, String tablePersons, String whereClause) {
-        return switch (this) {
-            case INTERACTION_SUM -> String.format(
-                    """
-                    SELECT p1.name, p2.name, count(*)
-                    FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
-                    Where p1.name < p2.name %s
-                    GROUP BY p1.name, p2.name;
-                    """, tableMeetings, tablePersons, tablePersons, whereClause);
-            case DURATION_SUM -> String.format(
-                    """
-                    SELECT p1.name, p2.name, sum(duration)
-                    FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
-                    Where p1.name < p2.name %s
-                    GROUP BY p1.name, p2.name;
-                    """, tableMeetings, tablePersons, tablePersons, whereClause);
-            case INTERACTION_TIMES_DURATION -> String.format(
-                    """
-                    SELECT p1.name, p2.name, count(*) * sum(duration)
-                    FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
-                    Where p1.name < p2.name %s
-                    GROUP BY p1.name, p2.name;
-                    """, tableMeetings, tablePersons, tablePersons, whereClause);
-            case INVERTED_INTERACTION_SUM -> String.format(
-                    """
-                    SELECT p1.name, p2.name, CAST(1 AS DOUBLE) / count(*)
+    public String query(String tableMeetings, String tablePersons, String tableNames, String whereClause) {
+        return String.format(
+                """
+                SELECT n1.name, n2.name, e.weight
+                FROM (
+                    SELECT p1.person_ID AS id1, p2.person_ID AS id2, %s AS weight
                     FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
-                    Where p1.name < p2.name %s
-                    GROUP BY p1.name, p2.name;
-                    """, tableMeetings, tablePersons, tablePersons, whereClause);
-            case INVERTED_DURATION_SUM -> String.format(
-                    """
-                    SELECT p1.name, p2.name, CAST(1 AS DOUBLE) / sum(duration)
-                    FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
-                    Where p1.name < p2.name %s
-                    GROUP BY p1.name, p2.name;
-                    """, tableMeetings, tablePersons, tablePersons, whereClause);
-            case INVERTED_INTERACTION_TIMES_DURATION -> String.format(
-                    """
-                    SELECT p1.name, p2.name, CAST(1 AS DOUBLE) / count(*) * sum(duration)
-                    FROM %s m JOIN %s p1 USING(meeting_ID) JOIN %s p2 USING(meeting_ID)
-                    Where p1.name < p2.name %s
-                    GROUP BY p1.name, p2.name;
-                    """, tableMeetings, tablePersons, tablePersons, whereClause);
-            default -> "";
+                    Where p1.person_ID < p2.person_ID %s
+                    GROUP BY p1.person_ID, p2.person_ID
+                ) e
+                JOIN %s n1 ON n1.person_ID = e.id1 JOIN %s n2 ON n2.person_ID = e.id2;
+                """, aggregate("count(*)"), tableMeetings, tablePersons, tablePersons, whereClause, tableNames, tableNames);
+    }
+
+    /**
+     * Generates the query for the retrieval of the data from pre-aggregated pair rows, e.g. the rollups.
+     *
+     * The given pairs have to provide the columns id1, id2, interactions, duration and distinctPersons where
+     * interactions is the number of meetings a row stands for. Rows of the same pair are combined.
+     *
+     * @param pairs SQL of a derived table with the pair rows
+     * @param tableNames the name dictionary that maps the person ids to their names
+     * @return the complete SQL query string which can be executed by the database
+     */
+    public String query(String pairs, String tableNames) {
+        return String.format(
+                """
+                SELECT n1.name, n2.name, e.weight
+                FROM (
+                    SELECT u.id1, u.id2, %s AS weight
+                    FROM (%s) u
+                    GROUP BY u.id1, u.id2
+                ) e
+                JOIN %s n1 ON n1.person_ID = e.id1 JOIN %s n2 ON n2.person_ID = e.id2;
+                """, aggregate("sum(interactions)"), pairs, tableNames, tableNames);
+    }
+
+    /**
+     * Returns the SQL aggregate that calculates the edge weight of a pair of persons from their common meetings.
+     *
+     * @param count the aggregate counting the meetings of a pair
+     * @return the aggregate expression for this option
+     */
+    private String aggregate(String count) {
+        return switch (this) {
+            case INTERACTION_SUM -> count;
+            case DURATION_SUM -> "sum(duration)";
+            case INTERACTION_TIMES_DURATION -> count + " * sum(duration)";
+            case INVERTED_INTERACTION_SUM -> "CAST(1 AS DOUBLE) / " + count;
+            case INVERTED_DURATION_SUM -> "CAST(1 AS DOUBLE) / sum(duration)";
+            case INVERTED_INTERACTION_TIMES_DURATION -> "CAST(1 AS DOUBLE) / " + count + " * sum(duration)";
+            case FLOW_DISTANCE -> "min(distinctPersons)";
         };
     }
 }
@@ -0,0 +1,236 @@
+package app.db;
+
+import app.data.InteractionRequest;
+import app.data.MeetingRecord;
+import app.graph.Graph;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedMap;
+
+/**
+ * A store for the interactions of the hall that generates the interaction graphs.
+ *
+ * Implementations are selected with the property {@code store} of the config, see {@link #fromProperties(Properties)}.
+ */
+public interface InteractionStore {
+
+    /**
+     * Creates the store selected by the property {@code store} of the given properties.
+     *
+     * {@code mariadb} (default) stores the interactions in the MariaDB given by the db properties, {@code memory}
+     * keeps them in memory only and {@code log} appends them to segment files in the local store directory.
+     * @param prop The properties object that contains initialization information for the store
+     * @return the selected store
+     * @throws IllegalArgumentException if the selected store is unknown or could not be initialized
+     */
+    static InteractionStore fromProperties(Properties prop) {
+        return switch (prop.getProperty("store", "mariadb")) {
+            case "mariadb" -> new Database(prop);
+            case "memory" -> new MemoryStore(prop);
+            case "log" -> new LogStore(prop);
+            default -> throw new IllegalArgumentException("Unknown store: " + prop.getProperty("store"));
+        };
+    }
+
+    /**
+     * Switches the store to an empty test environment.
+     * @return Return true if the initialization of the test environment was successful and testing can begin
+     */
+    boolean initTest();
+
+    /**
+     * Deletes the test environment and switches back to the production data.
+     * @return Return true if the store is now back to work on the production data
+     */
+    boolean deInitTest();
+
+    /**
+     * Deletes all interactions.
+     */
+    void clear();
+
+    /**
+     * Check if the store contains no interactions.
+     * @return True if no interactions are stored
+     */
+    boolean isEmpty();
+
+    /**
+     * Checks whether the given interaction exists in the store.
+     *
+     * @param name1 the first interaction partner
+     * @param name2 the second interaction partner
+     * @param datetime the datetime of the interaction
+     * @param duration the duration of the interaction
+     * @param distinctPersons number of distinct persons who were part of the same meeting
+     * @return returns a boolean whether the interaction was found or not
+     */
+    boolean contains(String name1, String name2, long datetime, int duration, int distinctPersons);
+
+    /**
+     * Adds an interactionRequest from the hall to the store.
+     *
+     * In case the document is set true, the names of the meeting are split up and for each name a meeting with the given document is added.
+     * @param data contains names, datetime, duration and whether the interaction is a document
+     * @return returns the number of different subjects who were added, in case document is true, it represents the number of meetings that were added
+     */
+    int addInteractions(InteractionRequest data);
+
+    /**
+     * Adds a batch of interactions, e.g. of a stream of interactions from the hall.
+     *
+     * Stores that can write a batch at once override this, by default the interactions are added one by one.
+     * @param batch the interactions to add
+     * @return the number of interactions that were added, interactions with less than two distinct names are not
+     * @throws IOException if the batch could not be written
+     */
+    default int addInteractionBatch(List<InteractionRequest> batch) throws IOException {
+        int added = 0;
+        for (InteractionRequest data : batch) {
+            if (addInteractions(data) > 0) added++;
+        }
+        return added;
+    }
+
+    /**
+     * Remove all interactions of the person with the given name.
+     *
+     * The distinct persons of the meetings of the person are updated and meetings with less than two
+     * participants left are deleted.
+     * @param name The name of the person which interaction will be deleted
+     * @return The number of meetings which were updated and/or deleted
+     */
+    int removePerson(String name);
+
+    /**
+     * Remove all interactions of the persons with the given names.
+     *
+     * Stores that can delete a set of persons at once override this, by default the persons are removed one by one.
+     * @param names The names of the persons which interactions will be deleted
+     * @return The number of meetings which were updated and/or deleted, summed up over all persons
+     */
+    default int removePersons(Collection<String> names) {
+        int removed = 0;
+        for (String name : names) {
+            removed += removePerson(name);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the names of all persons that are part of at least one stored interaction, ordered by name.
+     * @return A list of all UIDs
+     */
+    List<String> getAllIds();
+
+    /**
+     * Returns a page of the names of all persons that are part of at least one stored interaction, ordered by name.
+     * The names are read from an in-memory {@link NameIndex}.
+     * @param prefix only names starting with the prefix are returned, empty for all names
+     * @param after the last name of the previous page, null for the first page
+     * @param limit the maximal number of names
+     * @return A list of at most limit UIDs
+     */
+    List<String> getIds(String prefix, String after, int limit);
+
+    /**
+     * Generates a graph of the stored interactions.
+     *
+     * @param mode specifies how to calculate the edgeWeight for the graph
+     * @param filter may contain one or more filter the data for values such as names, datetime, ... (see {@link GraphFilters})
+     * @return the generated graph, the edge weights are normalized for all modes but FLOW_DISTANCE
+     */
+    Graph generateGraph(GraphOptions mode, SortedMap<String, String> filter);
+
+    /**
+     * Overloaded generateGraph method without the need to specify filters.
+     *
+     * @param mode specifies how to calculate the edgeWeight for the graph
+     * @return the generated graph
+     */
+    default Graph generateGraph(GraphOptions mode) {
+        return generateGraph(mode, Collections.emptySortedMap());
+    }
+
+    /**
+     * Generates the complete graph of the flow distances between all persons of the stored interactions.
+     *
+     * @param filter may contain one or more filter the data for values such as names, datetime, ... (see {@link GraphFilters})
+     * @return the generated flow distance graph
+     */
+    Graph generateFlowGraph(SortedMap<String, String> filter);
+
+    /**
+     * Overloaded generateFlowGraph method without the need to specify filters.
+     *
+     * @return the generated flow distance graph
+     */
+    default Graph generateFlowGraph() {
+        return generateFlowGraph(Collections.emptySortedMap());
+    }
+
+    /**
+     * Generates the graph of the stored interactions weighted by the kind of the interactions (talk, meeting or
+     * document) that the flow distances are calculated on.
+     *
+     * @param filter may contain one or more filter the data for values such as names, datetime, ... (see {@link GraphFilters})
+     * @return the weighted graph or null if it could not be read
+     */
+    Graph generateFlowWeights(SortedMap<String, String> filter);
+
+    /**
+     * Receives the meetings of an export.
+     */
+    interface MeetingConsumer {
+        void accept(MeetingRecord meeting) throws IOException;
+    }
+
+    /**
+     * Passes all stored meetings to the given consumer, streaming them if the store allows it.
+     *
+     * @param consumer receives the meetings one by one
+     * @return the number of exported meetings
+     * @throws IOException if the meetings could not be read or the consumer failed
+     */
+    int exportMeetings(MeetingConsumer consumer) throws IOException;
+
+    /**
+     * Checks whether interactions were folded by a retention. Folded interactions only exist as aggregates of their
+     * pairs, so they are not part of {@link #exportMeetings(MeetingConsumer)}.
+     *
+     * Stores that fold interactions override this, by default nothing is folded.
+     * @return whether interactions were folded
+     * @throws IOException if the store could not be read
+     */
+    default boolean hasFoldedInteractions() throws IOException {
+        return false;
+    }
+
+    /**
+     * Adds all given meetings, e.g. of a dump created by {@link #exportMeetings(MeetingConsumer)}.
+     *
+     * Stores that can insert large batches override this, by default the meetings are added one by one.
+     * @param meetings the meetings to add
+     * @return the number of imported meetings
+     * @throws IOException if the meetings could not be written
+     */
+    default int importMeetings(Iterator<MeetingRecord> meetings) throws IOException {
+        int imported = 0;
+        while (meetings.hasNext()) {
+            if (addInteractions(meetings.next().asInteraction()) > 0) imported++;
+        }
+        return imported;
+    }
+
+    /**
+     * Returns the current data version. The version changes whenever interactions are written or deleted.
+     *
+     * @return the current data version
+     */
+    long getVersion();
+}
@@ -0,0 +1,518 @@
+package app.db;
+
+import app.data.InteractionRequest;
+import app.http.logger.Logger;
+import app.http.logger.LoggerLevel;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An embedded interaction store that appends all writes to segment files in a local directory and keeps the
+ * interactions in memory like the {@link MemoryStore}, so no database server is needed.
+ *
+ * Every write is appended as one record to the active segment before it is applied in memory. Records are framed as
+ * {@code int length, int crc32, payload}, the payload starts with the record type:
+ * <ul>
+ *     <li>{@code 1} add: {@code long datetime, int duration, byte document, int count, count names}</li>
+ *     <li>{@code 2} remove person: {@code name}</li>
+ * </ul>
+ * Names are written as {@code int length} followed by the UTF-8 bytes. All numbers are big endian.
+ *
+ * On startup the newest snapshot and all later segments are read through memory mapped buffers and replayed. Files
+ * are mapped in windows of at most 2 GB, a record that crosses the end of a window is read from the next window.
+ * A record that is torn or fails its checksum ends the segment, so writes of a crash are dropped and the store
+ * continues with a new segment. Removed persons are compacted in the background: the active segment is sealed,
+ * the live meetings are written to a snapshot and all sealed segments are deleted.
+ *
+ * The property {@code store_fsync_interval} decides when the active segment is forced to the disk:
+ * <ul>
+ *     <li>{@code 0} before a write or batch is acknowledged, so every acknowledged write survives a crash of the
+ *     machine</li>
+ *     <li>{@code > 0} every given number of milliseconds in the background, so a crash of the machine loses at most
+ *     the writes of the last interval</li>
+ *     <li>{@code < 0} only when a segment is sealed, so a crash of the machine may lose the whole active segment</li>
+ * </ul>
+ * Acknowledged writes survive a crash of the process in any case, since they are written to the file before.
+ */
+public class LogStore extends MemoryStore {
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final String SEGMENT = "segment-%016d.log";
+    private static final String SNAPSHOT = "snapshot-%016d.log";
+    // A mapped buffer is indexed by int, so larger files are mapped in windows
+    private static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    private final Path productionDirectory;
+    private final long segmentSize;
+    private final int compactionThreshold;
+    private final long window;
+    private final long fsyncInterval;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "log-store-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService fsync = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-store-fsync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // guarded by this
+    private Path directory;
+    private FileChannel segment;
+    private long segmentIndex;
+    private long productionSegmentIndex;
+    private long epoch = 0;
+    private int removedSinceCompaction = 0;
+    private boolean compacting = false;
+    // whether the active segment has writes that were not forced yet
+    private boolean dirty = false;
+
+    /**
+     * Opens the store in the directory given by the property {@code store_directory} and recovers its interactions.
+     *
+     * @param prop The properties object that contains the directory, segment size, compaction threshold, fsync interval and the weights for the flow distance
+     * @throws IllegalArgumentException if the directory could not be opened
+     */
+    public LogStore(Properties prop) {
+        this(prop, MAX_WINDOW);
+    }
+
+    /**
+     * @param prop The properties object that contains the directory, segment size, compaction threshold, fsync interval and the weights for the flow distance
+     * @param window the maximal number of bytes of a file that are mapped at once on recovery
+     * @throws IllegalArgumentException if the directory could not be opened
+     */
+    LogStore(Properties prop, long window) {
+        super(prop);
+        this.window = window;
+        this.productionDirectory = Paths.get(prop.getProperty("store_directory"));
+        this.segmentSize = Long.parseLong(prop.getProperty("store_segment_size"));
+        this.compactionThreshold = Integer.parseInt(prop.getProperty("store_compaction_threshold"));
+        this.fsyncInterval = Long.parseLong(prop.getProperty("store_fsync_interval"));
+        this.directory = productionDirectory;
+        try {
+            Files.createDirectories(directory);
+            this.recover();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open the store in " + directory, e);
+        }
+        if (fsyncInterval > 0) {
+            fsync.scheduleWithFixedDelay(this::force, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replays the newest snapshot and all later segments of the current directory and opens the active segment.
+     * @throws IOException if the directory or a segment could not be read
+     */
+    private void recover() throws IOException {
+        long snapshot = -1;
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.matches("snapshot-\\d+\\.log")) {
+                    snapshot = Math.max(snapshot, index(name));
+                } else if (name.matches("segment-\\d+\\.log")) {
+                    segments.add(index(name));
+                }
+            }
+        }
+        Collections.sort(segments);
+        // Snapshots of interrupted compactions
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+
+        if (snapshot >= 0) {
+            this.replay(directory.resolve(String.format(SNAPSHOT, snapshot)));
+        }
+        segmentIndex = snapshot + 1;
+        boolean intact = true;
+        for (long index : segments) {
+            Path file = directory.resolve(String.format(SEGMENT, index));
+            if (index <= snapshot) {
+                // Left over by a compaction that was interrupted after the snapshot was written
+                Files.delete(file);
+                continue;
+            }
+            segmentIndex = index;
+            intact = this.replay(file);
+        }
+        // Never append behind a torn record, it would hide all later records
+        if (!intact) segmentIndex++;
+        this.open();
+    }
+
+    private static long index(String file) {
+        return Long.parseLong(file.substring(file.indexOf('-') + 1, file.indexOf('.')));
+    }
+
+    /**
+     * Applies all records of the given file in memory.
+     * @param file the segment or snapshot to replay
+     * @return true if all records of the file were intact
+     * @throws IOException if the file could not be mapped
+     */
+    private boolean replay(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            CRC32 crc = new CRC32();
+            while (offset < size) {
+                long mapped = Math.min(window, size - offset);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, mapped);
+                int end = this.replay(buffer, crc);
+                // The next window starts with the first record that was not applied, unless this window already
+                // reached the end of the file or not even one record fit into it
+                if (end < mapped && (offset + mapped == size || end == 0)) {
+                    Logger.log("STORE", "Dropped the damaged end of " + file, LoggerLevel.BASIC);
+                    return false;
+                }
+                offset += end;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Applies the records of the given window in memory until a record is incomplete or fails its checksum.
+     * @param buffer the mapped window of a file
+     * @param crc the checksum to reuse
+     * @return the position of the first record that was not applied
+     */
+    private int replay(ByteBuffer buffer, CRC32 crc) {
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) return start;
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) return start;
+            this.apply(payload);
+            buffer.position(start + 8 + length);
+        }
+        return buffer.position();
+    }
+
+    private void apply(ByteBuffer payload) {
+        byte type = payload.get();
+        if (type == ADD) {
+            long datetime = payload.getLong();
+            int duration = payload.getInt();
+            boolean document = payload.get() != 0;
+            String[] names = new String[payload.getInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = readName(payload);
+            }
+            super.addInteractions(new InteractionRequest(names, datetime, duration, document));
+        } else if (type == REMOVE) {
+            super.removePersons(List.of(readName(payload)));
+        }
+    }
+
+    private static String readName(ByteBuffer payload) {
+        byte[] name = new byte[payload.getInt()];
+        payload.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(InteractionRequest data) {
+        byte[][] names = new byte[data.names.length][];
+        int length = 1 + 8 + 4 + 1 + 4;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = data.names[i].getBytes(StandardCharsets.UTF_8);
+            length += 4 + names[i].length;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        payload.put(ADD).putLong(data.datetime).putInt(data.duration).put((byte) (data.document ? 1 : 0));
+        payload.putInt(names.length);
+        for (byte[] name : names) {
+            payload.putInt(name.length).put(name);
+        }
+        return frame(payload.array());
+    }
+
+    private static byte[] encode(String person) {
+        byte[] name = person.getBytes(StandardCharsets.UTF_8);
+        return frame(ByteBuffer.allocate(1 + 4 + name.length).put(REMOVE).putInt(name.length).put(name).array());
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array();
+    }
+
+    private void open() throws IOException {
+        segment = FileChannel.open(directory.resolve(String.format(SEGMENT, segmentIndex)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void close() throws IOException {
+        segment.force(false);
+        segment.close();
+        dirty = false;
+    }
+
+    /**
+     * Seals the active segment and opens the next one.
+     * @throws IOException if the segments could not be written
+     */
+    private void roll() throws IOException {
+        this.close();
+        segmentIndex++;
+        this.open();
+    }
+
+    private void append(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        if (segment.size() >= segmentSize) {
+            this.roll();
+        }
+    }
+
+    /**
+     * Makes the appended records durable as configured by {@code store_fsync_interval}, called before writes are
+     * acknowledged.
+     * @throws IOException if the segment could not be forced
+     */
+    private void sync() throws IOException {
+        if (fsyncInterval == 0) {
+            segment.force(false);
+        } else {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forces the active segment if it has writes that were not forced yet. The segment is forced without holding
+     * the lock, so writes are not blocked by the disk.
+     */
+    private void force() {
+        FileChannel channel;
+        synchronized (this) {
+            if (!dirty) return;
+            channel = segment;
+            dirty = false;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // The segment was sealed in the meantime, which forced it
+        } catch (IOException e) {
+            Logger.log(e);
+        }
+    }
+
+    /**
+     * Deletes all segments and snapshots of the current directory.
+     * @throws IOException if a file could not be deleted
+     */
+    private void deleteFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.log*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean initTest() {
+        try {
+            this.close();
+            epoch++;
+            productionSegmentIndex = segmentIndex;
+            directory = productionDirectory.resolve("test");
+            Files.createDirectories(directory);
+            this.deleteFiles();
+            segmentIndex = 0;
+            this.open();
+        } catch (IOException e) {
+            Logger.log(e);
+            return false;
+        }
+        return super.initTest();
+    }
+
+    @Override
+    public synchronized boolean deInitTest() {
+        try {
+            this.close();
+            epoch++;
+            this.deleteFiles();
+            Files.delete(directory);
+            directory = productionDirectory;
+            segmentIndex = productionSegmentIndex;
+            this.open();
+        } catch (IOException e) {
+            Logger.log(e);
+            return false;
+        }
+        return super.deInitTest();
+    }
+
+    @Override
+    public synchronized void clear() {
+        try {
+            this.close();
+            epoch++;
+            this.deleteFiles();
+            segmentIndex = 0;
+            this.open();
+        } catch (IOException e) {
+            Logger.log(e);
+        }
+        super.clear();
+    }
+
+    @Override
+    public synchronized int addInteractions(InteractionRequest data) {
+        if (Arrays.stream(data.names).distinct().count() < 2) return 0;
+        try {
+            this.append(encode(data));
+            this.sync();
+        } catch (IOException e) {
+            Logger.log(e);
+            return 0;
+        }
+        return super.addInteractions(data);
+    }
+
+    /**
+     * Appends all interactions of the batch before the segment is forced once, instead of once per interaction.
+     */
+    @Override
+    public synchronized int addInteractionBatch(List<InteractionRequest> batch) throws IOException {
+        List<InteractionRequest> valid = new ArrayList<>(batch.size());
+        for (InteractionRequest data : batch) {
+            if (Arrays.stream(data.names).distinct().count() < 2) continue;
+            this.append(encode(data));
+            valid.add(data);
+        }
+        this.sync();
+        for (InteractionRequest data : valid) {
+            super.addInteractions(data);
+        }
+        return valid.size();
+    }
+
+    @Override
+    public int removePersons(Collection<String> names) {
+        int removed;
+        synchronized (this) {
+            try {
+                for (String name : names) {
+                    this.append(encode(name));
+                }
+                this.sync();
+            } catch (IOException e) {
+                Logger.log(e);
+                return 0;
+            }
+            removed = super.removePersons(names);
+            removedSinceCompaction += removed;
+            if (compacting || removedSinceCompaction < compactionThreshold) return removed;
+            removedSinceCompaction = 0;
+            compacting = true;
+        }
+        compactor.execute(this::compact);
+        return removed;
+    }
+
+    /**
+     * Replaces all sealed segments by a snapshot of the live meetings.
+     *
+     * Only sealing the active segment and copying the meetings block writes, the snapshot is written without
+     * holding the lock. A clear or switch of the test environment in the meantime discards the snapshot.
+     */
+    void compact() {
+        long epoch;
+        long snapshot;
+        Path directory;
+        List<InteractionRequest> meetings;
+        synchronized (this) {
+            epoch = this.epoch;
+            directory = this.directory;
+            snapshot = segmentIndex;
+            try {
+                this.roll();
+            } catch (IOException e) {
+                Logger.log(e);
+                compacting = false;
+                return;
+            }
+            meetings = this.snapshot();
+        }
+
+        Path temporary = directory.resolve(String.format(SNAPSHOT, snapshot) + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+                 OutputStream out = new BufferedOutputStream(file, 1 << 16)) {
+                for (InteractionRequest meeting : meetings) {
+                    out.write(encode(meeting));
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            synchronized (this) {
+                if (epoch != this.epoch) {
+                    Files.deleteIfExists(temporary);
+                    return;
+                }
+                Files.move(temporary, directory.resolve(String.format(SNAPSHOT, snapshot)), StandardCopyOption.ATOMIC_MOVE);
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.log")) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        if (index(name) < snapshot || (name.startsWith("segment-") && index(name) == snapshot)) {
+                            Files.delete(file);
+                        }
+                    }
+                }
+            }
+            Logger.log("STORE", "Compacted " + meetings.size() + " meetings into " + String.format(SNAPSHOT, snapshot), LoggerLevel.INTERMEDIATE);
+        } catch (IOException e) {
+            Logger.log(e);
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package app.db;
+
+import app.data.InteractionRequest;
+import app.data.MeetingRecord;
+import app.graph.Graph;
+import app.graph.GraphBuilder;
+import app.graph.Vertex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static app.analysis.Centrality.flowDistance;
+
+/**
+ * An interaction store that keeps all interactions in memory, e.g. for single node deployments and tests.
+ *
+ * The meetings are stored column wise in primitive arrays (datetime, duration, distinct persons) indexed by the
+ * meeting id, the participants of all meetings in one array of person ids. Names are mapped to person ids by a
+ * dictionary and every person keeps the ids of its meetings, so filters by name only visit the meetings of the person.
+ * Deleted meetings stay in the columns until they are more than half of the meetings, then the columns are compacted
+ * by {@link #removePersons(Collection)}, so scans do not walk a growing share of deleted meetings.
+ * Graph options and filters are evaluated with the same semantics as the queries of {@link Database}.
+ */
+public class MemoryStore implements InteractionStore {
+    //weights for flow distance
+    private final double talkWeight;
+    private final double meetingWeight;
+    private final double documentWeight;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+    private Columns production = new Columns();
+    private Columns working = production;
+
+    /**
+     * A growable list of primitive ints.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * The columns of all stored meetings and the name dictionary.
+     */
+    private static class Columns {
+        // name dictionary
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<IntList> meetingsOfPerson = new ArrayList<>();
+        private int[] participations = new int[16];
+        // names of the persons with at least one participation
+        private final NameIndex index = new NameIndex();
+
+        // meetings, indexed by meeting id
+        private int meetingCount = 0;
+        private long[] datetime = new long[16];
+        private int[] duration = new int[16];
+        private int[] distinctPersons = new int[16];
+        private boolean[] deleted = new boolean[16];
+        private int deletedCount = 0;
+        private int[] participantsStart = new int[17];
+
+        // person ids of the participants of all meetings, -1 if the participant was removed
+        private int participantCount = 0;
+        private int[] participants = new int[32];
+
+        private int personId(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            ids.put(name, names.size());
+            names.add(name);
+            meetingsOfPerson.add(new IntList());
+            if (names.size() > participations.length) {
+                participations = Arrays.copyOf(participations, participations.length * 2);
+            }
+            return names.size() - 1;
+        }
+
+        private int addMeeting(long datetime, int duration, int distinctPersons, String[] names) {
+            if (meetingCount == this.datetime.length) {
+                int capacity = meetingCount * 2;
+                this.datetime = Arrays.copyOf(this.datetime, capacity);
+                this.duration = Arrays.copyOf(this.duration, capacity);
+                this.distinctPersons = Arrays.copyOf(this.distinctPersons, capacity);
+                this.deleted = Arrays.copyOf(this.deleted, capacity);
+                this.participantsStart = Arrays.copyOf(this.participantsStart, capacity + 1);
+            }
+            while (participantCount + names.length > participants.length) {
+                participants = Arrays.copyOf(participants, participants.length * 2);
+            }
+            int meeting = meetingCount++;
+            this.datetime[meeting] = datetime;
+            this.duration[meeting] = duration;
+            this.distinctPersons[meeting] = distinctPersons;
+            for (String name : names) {
+                int id = personId(name);
+                participants[participantCount++] = id;
+                meetingsOfPerson.get(id).add(meeting);
+                if (participations[id]++ == 0) index.add(name);
+            }
+            participantsStart[meetingCount] = participantCount;
+            return names.length;
+        }
+
+        private void deleteMeeting(int meeting) {
+            deleted[meeting] = true;
+            deletedCount++;
+            for (int i = participantsStart[meeting]; i < participantsStart[meeting + 1]; i++) {
+                if (participants[i] >= 0) {
+                    if (--participations[participants[i]] == 0) index.remove(names.get(participants[i]));
+                    participants[i] = -1;
+                }
+            }
+        }
+
+        /**
+         * Copies the live meetings with their remaining participants in the order they were added.
+         * @return the columns without deleted meetings and removed participants
+         */
+        private Columns compact() {
+            Columns compacted = new Columns();
+            List<String> remaining = new ArrayList<>();
+            for (int meeting = 0; meeting < meetingCount; meeting++) {
+                if (deleted[meeting]) continue;
+                remaining.clear();
+                for (int i = participantsStart[meeting]; i < participantsStart[meeting + 1]; i++) {
+                    if (participants[i] >= 0) remaining.add(names.get(participants[i]));
+                }
+                compacted.addMeeting(datetime[meeting], duration[meeting], distinctPersons[meeting],
+                        remaining.toArray(new String[0]));
+            }
+            return compacted;
+        }
+    }
+
+    /**
+     * Initializes an empty in memory store.
+     *
+     * For calculating the flow distance talk-, meeting and documentWeight is needed.
+     * @param prop The properties object that contains the weights for the flow distance
+     */
+    public MemoryStore(Properties prop) {
+        this.talkWeight = Double.parseDouble(prop.getProperty("talk_weight"));
+        this.meetingWeight = Double.parseDouble(prop.getProperty("meeting_weight"));
+        this.documentWeight = Double.parseDouble(prop.getProperty("document_weight"));
+    }
+
+    @Override
+    public boolean initTest() {
+        lock.writeLock().lock();
+        try {
+            working = new Columns();
+            version.incrementAndGet();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deInitTest() {
+        lock.writeLock().lock();
+        try {
+            working = production;
+            version.incrementAndGet();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Columns empty = new Columns();
+            if (working == production) {
+                production = empty;
+            }
+            working = empty;
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        lock.readLock().lock();
+        try {
+            for (int meeting = 0; meeting < working.meetingCount; meeting++) {
+                if (!working.deleted[meeting]) return false;
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String name1, String name2, long datetime, int duration, int distinctPersons) {
+        lock.readLock().lock();
+        try {
+            Columns c = working;
+            Integer id1 = c.ids.get(name1);
+            Integer id2 = c.ids.get(name2);
+            if (id1 == null || id2 == null || id1.equals(id2)) return false;
+            IntList meetings = c.meetingsOfPerson.get(id1);
+            for (int i = 0; i < meetings.size; i++) {
+                int meeting = meetings.values[i];
+                if (c.deleted[meeting] || c.datetime[meeting] != datetime || c.duration[meeting] != duration
+                        || c.distinctPersons[meeting] != distinctPersons) continue;
+                boolean has1 = false;
+                boolean has2 = false;
+                for (int j = c.participantsStart[meeting]; j < c.participantsStart[meeting + 1]; j++) {
+                    has1 |= c.participants[j] == id1;
+                    has2 |= c.participants[j] == id2;
+                }
+                if (has1 && has2) return true;
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int addInteractions(InteractionRequest data) {
+        String[] distinctNames = Arrays.stream(data.names).distinct().toArray(String[]::new);
+        if (distinctNames.length < 2) return 0;
+        lock.writeLock().lock();
+        try {
+            if (data.document) {
+                // one meeting of each subject with the document which is the last name
+                for (int i = 0; i < distinctNames.length - 1; i++) {
+                    working.addMeeting(data.datetime, data.duration, 0,
+                            new String[]{distinctNames[i], distinctNames[distinctNames.length - 1]});
+                }
+                return distinctNames.length - 1;
+            }
+            return working.addMeeting(data.datetime, data.duration, distinctNames.length, distinctNames);
+        } finally {
+            version.incrementAndGet();
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int removePerson(String name) {
+        return this.removePersons(List.of(name));
+    }
+
+    @Override
+    public int removePersons(Collection<String> names) {
+        lock.writeLock().lock();
+        try {
+            Columns c = working;
+            Set<Integer> ids = new HashSet<>();
+            for (String name : names) {
+                Integer id = c.ids.get(name);
+                if (id != null) ids.add(id);
+            }
+            int removed = 0;
+            IntList affected = new IntList();
+            for (int id : ids) {
+                IntList meetings = c.meetingsOfPerson.get(id);
+                for (int i = 0; i < meetings.size; i++) {
+                    int meeting = meetings.values[i];
+                    for (int j = c.participantsStart[meeting]; j < c.participantsStart[meeting + 1]; j++) {
+                        if (c.participants[j] == id) {
+                            c.participants[j] = -1;
+                            if (--c.participations[id] == 0) c.index.remove(c.names.get(id));
+                            c.distinctPersons[meeting]--;
+                            affected.add(meeting);
+                            removed++;
+                        }
+                    }
+                }
+                meetings.size = 0;
+            }
+            // Meetings with less than two persons left are deleted, documents are below zero now
+            for (int i = 0; i < affected.size; i++) {
+                int meeting = affected.values[i];
+                if (!c.deleted[meeting] && c.distinctPersons[meeting] < 2) {
+                    c.deleteMeeting(meeting);
+                }
+            }
+            if (c.deletedCount > c.meetingCount / 2) {
+                Columns compacted = c.compact();
+                if (production == c) {
+                    production = compacted;
+                }
+                working = compacted;
+            }
+            return removed;
+        } finally {
+            version.incrementAndGet();
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getAllIds() {
+        lock.readLock().lock();
+        try {
+            return working.index.list();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getIds(String prefix, String after, int limit) {
+        lock.readLock().lock();
+        try {
+            return working.index.page(prefix, after, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Graph generateGraph(GraphOptions mode, SortedMap<String, String> filter) {
+        if (mode == GraphOptions.FLOW_DISTANCE) return this.generateFlowGraph(filter);
+        Graph g;
+        lock.readLock().lock();
+        try {
+            GraphBuilder builder = new GraphBuilder();
+            Map<Integer, Vertex> vertices = new HashMap<>();
+            for (Map.Entry<Long, long[]> pair : aggregatePairs(filter).entrySet()) {
+                long[] aggregate = pair.getValue();
+                setWeight(builder, vertices, pair.getKey(), weight(mode, aggregate[0], aggregate[1]));
+            }
+            g = builder.build();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!g.getVertices().isEmpty())
+            g.normalizeEdgeWeights();
+        return g;
+    }
+
+    @Override
+    public Graph generateFlowGraph(SortedMap<String, String> filter) {
+        return flowDistance(this.generateFlowWeights(filter));
+    }
+
+    @Override
+    public Graph generateFlowWeights(SortedMap<String, String> filter) {
+        lock.readLock().lock();
+        try {
+            GraphBuilder builder = new GraphBuilder();
+            Map<Integer, Vertex> vertices = new HashMap<>();
+            for (Map.Entry<Long, long[]> pair : aggregatePairs(filter).entrySet()) {
+                long distinctPersons = pair.getValue()[2];
+                double edgeWeight;
+                if (distinctPersons == 0)
+                    edgeWeight = documentWeight;
+                else if (distinctPersons == 2)
+                    edgeWeight = talkWeight;
+                else
+                    edgeWeight = meetingWeight;
+                setWeight(builder, vertices, pair.getKey(), edgeWeight);
+            }
+            return builder.build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int exportMeetings(MeetingConsumer consumer) throws IOException {
+        // The meetings are copied first, so writes are not blocked while the consumer writes them
+        List<InteractionRequest> meetings = this.snapshot();
+        for (InteractionRequest meeting : meetings) {
+            consumer.accept(new MeetingRecord(meeting.names, meeting.datetime, meeting.duration,
+                    meeting.document ? 0 : meeting.names.length));
+        }
+        return meetings.size();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns the stored meetings as interaction requests that rebuild the current state when added to an empty store.
+     *
+     * Documents are returned as one request per subject, meetings with their remaining participants.
+     * @return the live meetings in the order they were added
+     */
+    List<InteractionRequest> snapshot() {
+        lock.readLock().lock();
+        try {
+            Columns c = working;
+            List<InteractionRequest> meetings = new ArrayList<>();
+            for (int meeting = 0; meeting < c.meetingCount; meeting++) {
+                if (c.deleted[meeting]) continue;
+                List<String> names = new ArrayList<>();
+                for (int i = c.participantsStart[meeting]; i < c.participantsStart[meeting + 1]; i++) {
+                    if (c.participants[i] >= 0) names.add(c.names.get(c.participants[i]));
+                }
+                meetings.add(new InteractionRequest(names.toArray(new String[0]), c.datetime[meeting],
+                        c.duration[meeting], c.distinctPersons[meeting] == 0));
+            }
+            return meetings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates the number of meetings, the sum of the durations and the minimal distinct persons for every pair
+     * of persons that met in a meeting matching the filters. Has to be called while holding the read lock.
+     * @param filter the filters as in {@link GraphFilters}
+     * @return a map from pairs of person ids (smaller id in the upper half) to the aggregates
+     */
+    private Map<Long, long[]> aggregatePairs(SortedMap<String, String> filter) {
+        Columns c = working;
+        Map<Long, long[]> pairs = new HashMap<>();
+        long minDatetime = filter.containsKey("MIN_DATETIME") ? Long.parseLong(filter.get("MIN_DATETIME")) : Long.MIN_VALUE;
+        long maxDatetime = filter.containsKey("MAX_DATETIME") ? Long.parseLong(filter.get("MAX_DATETIME")) : Long.MAX_VALUE;
+        long minDuration = filter.containsKey("MIN_DURATION") ? Long.parseLong(filter.get("MIN_DURATION")) : Long.MIN_VALUE;
+        long minPersons = filter.containsKey("MIN_PERSONS") ? Long.parseLong(filter.get("MIN_PERSONS")) : Long.MIN_VALUE;
+        long maxPersons = filter.containsKey("MAX_PERSONS") ? Long.parseLong(filter.get("MAX_PERSONS")) : Long.MAX_VALUE;
+        List<String> types = filter.containsKey("TYPE") ? GraphFilters.split(filter.get("TYPE")) : List.copyOf(GraphFilters.TYPES);
+        Set<Integer> names = filter.containsKey("NAME") ? this.personIds(c, filter.get("NAME")) : null;
+        Set<Integer> notNames = filter.containsKey("NOT_NAME") ? this.personIds(c, filter.get("NOT_NAME")) : Set.of();
+        if (names != null && names.isEmpty()) return pairs;
+
+        // With a name filter only the meetings of these persons can contain matching pairs
+        BitSet meetings = new BitSet(c.meetingCount);
+        if (names == null) {
+            meetings.set(0, c.meetingCount);
+        } else {
+            for (int id : names) {
+                IntList meetingsOfPerson = c.meetingsOfPerson.get(id);
+                for (int i = 0; i < meetingsOfPerson.size; i++) {
+                    meetings.set(meetingsOfPerson.values[i]);
+                }
+            }
+        }
+        for (int meeting = meetings.nextSetBit(0); meeting >= 0; meeting = meetings.nextSetBit(meeting + 1)) {
+            int distinctPersons = c.distinctPersons[meeting];
+            String type = distinctPersons == 0 ? "DOCUMENT" : distinctPersons == 2 ? "TALK" : "MEETING";
+            if (c.deleted[meeting] || c.datetime[meeting] <= minDatetime || c.datetime[meeting] >= maxDatetime
+                    || c.duration[meeting] < minDuration || distinctPersons < minPersons || distinctPersons > maxPersons
+                    || !types.contains(type)) {
+                continue;
+            }
+            int start = c.participantsStart[meeting];
+            int end = c.participantsStart[meeting + 1];
+            for (int i = start; i < end; i++) {
+                for (int j = start; j < end; j++) {
+                    int id1 = c.participants[i];
+                    int id2 = c.participants[j];
+                    if (id1 < 0 || id2 < 0 || id1 >= id2) continue;
+                    if (names != null && !names.contains(id1) && !names.contains(id2)) continue;
+                    if (notNames.contains(id1) || notNames.contains(id2)) continue;
+                    long[] aggregate = pairs.computeIfAbsent(((long) id1 << 32) | id2, k -> new long[]{0, 0, Long.MAX_VALUE});
+                    aggregate[0]++;
+                    aggregate[1] += c.duration[meeting];
+                    aggregate[2] = Math.min(aggregate[2], distinctPersons);
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Resolves the names of a filter value to the ids of the known persons.
+     * @param c the columns to resolve the names in
+     * @param value the filter value with one or more names
+     * @return the ids of the known persons
+     */
+    private Set<Integer> personIds(Columns c, String value) {
+        Set<Integer> ids = new HashSet<>();
+        for (String name : GraphFilters.split(value)) {
+            Integer id = c.ids.get(name);
+            if (id != null) ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Calculates the edge weight of a pair like the aggregates of {@link GraphOptions}.
+     * @param mode specifies how to calculate the edgeWeight
+     * @param count the number of meetings of the pair
+     * @param duration the sum of the durations of the meetings of the pair
+     * @return the edge weight, infinity if the weight divides by zero
+     */
+    private static double weight(GraphOptions mode, long count, long duration) {
+        return switch (mode) {
+            case INTERACTION_SUM -> count;
+            case DURATION_SUM -> duration;
+            case INTERACTION_TIMES_DURATION -> (double) count * duration;
+            case INVERTED_INTERACTION_SUM -> 1.0 / count;
+            case INVERTED_DURATION_SUM -> duration == 0 ? Double.POSITIVE_INFINITY : 1.0 / duration;
+            case INVERTED_INTERACTION_TIMES_DURATION -> 1.0 / count * duration;
+            case FLOW_DISTANCE -> throw new IllegalArgumentException("Flow distance is not an aggregate");
+        };
+    }
+
+    /**
+     * Sets the weight of the edge of a pair, declaring its persons on their first pair. The vertices are only sorted
+     * once the builder builds the graph.
+     * @param builder the graph that is built
+     * @param vertices the declared vertices by person id
+     * @param pair the pair of person ids (smaller id in the upper half)
+     * @param weight the weight of the edge
+     */
+    private void setWeight(GraphBuilder builder, Map<Integer, Vertex> vertices, long pair, double weight) {
+        Vertex v = vertices.computeIfAbsent((int) (pair >>> 32), id -> builder.declareVertex(working.names.get(id)));
+        int id2 = (int) pair;
+        vertices.computeIfAbsent(id2, id -> builder.declareVertex(working.names.get(id)));
+        builder.setWeight(v, working.names.get(id2), weight);
+    }
+}
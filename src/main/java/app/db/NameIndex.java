@@ -0,0 +1,72 @@
+package app.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The sorted names of all persons of a store, kept in memory so ids can be listed and searched by prefix without
+ * reading the persons of the store.
+ *
+ * The index is safe to read while it is updated. The stores update it after their writes, so it may lag behind a
+ * write that is still running.
+ */
+public class NameIndex {
+    private final ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<>();
+
+    public void add(String name) {
+        names.add(name);
+    }
+
+    public void addAll(Collection<String> names) {
+        this.names.addAll(names);
+    }
+
+    public void remove(String name) {
+        names.remove(name);
+    }
+
+    public void removeAll(Collection<String> names) {
+        names.forEach(this.names::remove);
+    }
+
+    public void clear() {
+        names.clear();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Returns all names in ascending order.
+     *
+     * @return a copy of the names
+     */
+    public List<String> list() {
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Returns the names with the given prefix in ascending order, starting after a given name.
+     *
+     * @param prefix the prefix of the names, empty for all names
+     * @param after the last name of the previous page, null to start with the first name
+     * @param limit the maximal number of names
+     * @return the names of the page
+     */
+    public List<String> page(String prefix, String after, int limit) {
+        NavigableSet<String> tail = after != null && after.compareTo(prefix) >= 0
+                ? names.tailSet(after, false)
+                : names.tailSet(prefix, true);
+        List<String> page = new ArrayList<>();
+        for (String name : tail) {
+            // Names with the prefix are consecutive, the first one without it ends the page
+            if (page.size() >= limit || !name.startsWith(prefix)) break;
+            page.add(name);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,117 @@
+package app.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a datetime range into whole days and hours that can be read from the pair rollups of the database and
+ * the remaining edges of the range that still have to be read from the raw meetings.
+ *
+ * All ranges are inclusive. Bucket ranges are given in bucket numbers (datetime divided by the resolution),
+ * raw ranges in milliseconds. A bound of {@code null} means that the range is unbounded on that side.
+ */
+public class Rollups {
+    public static final long HOUR = 3_600_000L;
+    public static final long DAY = 86_400_000L;
+
+    private final List<Long[]> raw = new ArrayList<>();
+    private final List<Long[]> hours = new ArrayList<>();
+    private final List<Long[]> days = new ArrayList<>();
+
+    /**
+     * Plans the buckets for all meetings with {@code min < datetime < max}, matching the MIN_DATETIME and
+     * MAX_DATETIME filters.
+     *
+     * @param min exclusive lower bound or {@code null}
+     * @param max exclusive upper bound or {@code null}
+     */
+    public Rollups(Long min, Long max) {
+        this(min, max, null);
+    }
+
+    /**
+     * Plans the buckets for all meetings with {@code min < datetime < max} like {@link #Rollups(Long, Long)}, but
+     * bounds before the given folded boundary are widened to whole hours. The meetings of folded days are deleted,
+     * so the edges of the range there can only be read from the hourly rollups.
+     *
+     * @param min exclusive lower bound or {@code null}
+     * @param max exclusive upper bound or {@code null}
+     * @param folded the start of the first day that was not folded or {@code null} if no days were folded
+     */
+    public Rollups(Long min, Long max, Long folded) {
+        Long lo = min == null ? null : min + 1;
+        Long hi = max == null ? null : max - 1;
+        if (lo != null && hi != null && lo > hi) {
+            return;
+        }
+        if (folded != null && lo != null && lo < folded) {
+            lo = Math.floorDiv(lo, HOUR) * HOUR;
+        }
+        if (folded != null && hi != null && hi < folded) {
+            hi = (Math.floorDiv(hi, HOUR) + 1) * HOUR - 1;
+        }
+
+        Long firstDay = lo == null ? null : ceilDiv(lo, DAY);
+        Long lastDay = hi == null ? null : Math.floorDiv(hi + 1, DAY) - 1;
+        if (firstDay == null || lastDay == null || firstDay <= lastDay) {
+            days.add(new Long[]{firstDay, lastDay});
+            if (lo != null && lo < firstDay * DAY) {
+                splitHours(lo, firstDay * DAY - 1);
+            }
+            if (hi != null && (lastDay + 1) * DAY <= hi) {
+                splitHours((lastDay + 1) * DAY, hi);
+            }
+        } else {
+            splitHours(lo, hi);
+        }
+    }
+
+    /**
+     * Splits a bounded range into whole hours and the raw milliseconds at its edges.
+     * @param lo inclusive lower bound in milliseconds
+     * @param hi inclusive upper bound in milliseconds
+     */
+    private void splitHours(long lo, long hi) {
+        long firstHour = ceilDiv(lo, HOUR);
+        long lastHour = Math.floorDiv(hi + 1, HOUR) - 1;
+        if (firstHour > lastHour) {
+            raw.add(new Long[]{lo, hi});
+            return;
+        }
+        hours.add(new Long[]{firstHour, lastHour});
+        if (lo < firstHour * HOUR) {
+            raw.add(new Long[]{lo, firstHour * HOUR - 1});
+        }
+        if ((lastHour + 1) * HOUR <= hi) {
+            raw.add(new Long[]{(lastHour + 1) * HOUR, hi});
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * Returns the ranges in milliseconds that have to be read from the raw meetings.
+     * @return the raw ranges, both bounds are always set
+     */
+    public List<Long[]> getRaw() {
+        return raw;
+    }
+
+    /**
+     * Returns the ranges of whole hours that can be read from the hourly rollups.
+     * @return the hour ranges, both bounds are always set
+     */
+    public List<Long[]> getHours() {
+        return hours;
+    }
+
+    /**
+     * Returns the ranges of whole days that can be read from the daily rollups.
+     * @return the day ranges, bounds may be {@code null}
+     */
+    public List<Long[]> getDays() {
+        return days;
+    }
+}
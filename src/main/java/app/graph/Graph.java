@@ -3,6 +3,10 @@ package app.graph;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -85,6 +89,25 @@ public class Graph {
         return description;
     }
 
+    /**
+     * Returns a deep copy of this graph with the same description, vertices and edge weights.
+     *
+     * @return the copied graph
+     */
+    public Graph copy() {
+        Graph copy = new Graph(description);
+        for (Vertex v : orderedVertices) { // already sorted, so no need to sort again as in addVertex
+            Vertex ver = new Vertex(v.getIdentifier());
+            copy.vertices.put(ver.getIdentifier(), ver);
+            copy.orderedVertices.add(ver);
+        }
+        for (Edge e : edges) {
+            copy.addEdge(copy.getVertex(e.getVertices()[0].getIdentifier()),
+                    copy.getVertex(e.getVertices()[1].getIdentifier()), e.getWeight());
+        }
+        return copy;
+    }
+
     /**
      * Adds a new vertex to this graph.
      *
@@ -93,16 +116,36 @@ public class Graph {
      * @throws IllegalArgumentException if a vertex with the given identifier already exists
      */
     public Vertex addVertex(String identifier) {
+        Vertex ver = addUnsortedVertex(identifier);
+        sortVertices();
+        return ver;
+    }
+
+    /**
+     * Adds a new vertex to this graph without sorting the ordered vertices, so many vertices can be added with a
+     * single sort by {@link #sortVertices()} afterwards, see {@link GraphBuilder}.
+     *
+     * @param identifier identifier of the new vertex
+     * @return the added Vertex
+     * @throws IllegalArgumentException if a vertex with the given identifier already exists
+     */
+    Vertex addUnsortedVertex(String identifier) {
         if (vertices.containsKey(identifier))
             throw new IllegalArgumentException("Couldn't add Vertex: " + identifier + " is already used.");
         Vertex ver = new Vertex(identifier);
         vertices.put(identifier, ver);
 
         orderedVertices.add(ver);
-        Collections.sort(orderedVertices);
         return ver;
     }
 
+    /**
+     * Sorts the ordered vertices after vertices were added by {@link #addUnsortedVertex(String)}.
+     */
+    void sortVertices() {
+        Collections.sort(orderedVertices);
+    }
+
     /**
      * Returns the vertex with the specified identifier, or {@code null} if no such vertex exists.
      *
@@ -431,4 +474,40 @@ public class Graph {
         }
         return true;
     }
+
+    /**
+     * Returns a hash of the vertices and weighted edges of this graph. Graphs that are equal have the same hash, so
+     * it identifies the content of a graph without comparing it to every other graph like {@link #equals(Object)}.
+     *
+     * @return the SHA-256 hash of the content as a hex string
+     */
+    public String contentHash() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer weight = ByteBuffer.allocate(Double.BYTES);
+        for (Vertex v : orderedVertices) {
+            digest.update(v.getIdentifier().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            // every edge is hashed once, at the vertex that is ordered first
+            List<Vertex> neighbors = v.getNeighbors().stream()
+                    .filter(w -> v.compareTo(w) < 0)
+                    .sorted()
+                    .collect(Collectors.toList());
+            for (Vertex w : neighbors) {
+                digest.update(w.getIdentifier().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(weight.clear().putDouble(v.getEdgeWith(w).getWeight()).array());
+            }
+            digest.update((byte) 1);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
 }
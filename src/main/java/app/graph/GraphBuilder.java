@@ -0,0 +1,69 @@
+package app.graph;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds a graph from an adjacency list that is read piece by piece, e.g. while a request is parsed.
+ *
+ * Vertices are declared by the keys of the adjacency list and may be referenced as neighbors before they are
+ * declared. The vertices are only sorted once when the graph is built instead of on every added vertex.
+ */
+public class GraphBuilder {
+    private final Graph graph = new Graph();
+    private final Set<String> undeclared = new HashSet<>();
+
+    /**
+     * Declares a vertex, i.e. a key of the adjacency list.
+     *
+     * @param identifier the identifier of the vertex
+     * @return the vertex
+     * @throws IllegalArgumentException if the vertex was already declared
+     */
+    public Vertex declareVertex(String identifier) {
+        Vertex v = graph.getVertex(identifier);
+        if (v == null) {
+            return graph.addUnsortedVertex(identifier);
+        }
+        if (!undeclared.remove(identifier)) {
+            throw new IllegalArgumentException("Vertex " + identifier + " is declared twice");
+        }
+        return v;
+    }
+
+    /**
+     * Sets the weight of the edge between two vertices, creating the edge if none exists. Vertices that are not
+     * declared yet have to be declared before the graph is built.
+     *
+     * @param v the vertex of the adjacency list
+     * @param neighbor the identifier of its neighbor
+     * @param weight the weight of the edge
+     */
+    public void setWeight(Vertex v, String neighbor, double weight) {
+        Vertex u = graph.getVertex(neighbor);
+        if (u == null) {
+            u = graph.addUnsortedVertex(neighbor);
+            undeclared.add(neighbor);
+        }
+        Edge e = v.getEdgeWith(u);
+        if (e == null) {
+            graph.addEdge(v, u, weight);
+        } else {
+            e.setWeight(weight);
+        }
+    }
+
+    /**
+     * Returns the built graph.
+     *
+     * @return the graph
+     * @throws IllegalArgumentException if a neighbor was never declared as a vertex
+     */
+    public Graph build() {
+        if (!undeclared.isEmpty()) {
+            throw new IllegalArgumentException("Could not add Edge since " + undeclared.iterator().next() + " is not a Vertex");
+        }
+        graph.sortVertices();
+        return graph;
+    }
+}
@@ -0,0 +1,139 @@
+package app.http;
+
+import app.graph.Graph;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed number of threads for the CPU bound analysis of graphs, e.g. centralities and rendering, separated from
+ * the threads handling the requests.
+ *
+ * Waiting tasks are ordered by their priority, interactive requests before background work, then by the size of
+ * their graph, small graphs first, and finally in the order they were submitted.
+ */
+public class AnalysisPool {
+
+    /**
+     * The priorities of analysis tasks, earlier constants are run first.
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int queueSize;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates the pool.
+     *
+     * @param threads the number of threads, 0 for the number of available processors
+     * @param queueSize the number of tasks that may wait for a thread
+     */
+    public AnalysisPool(int threads, int queueSize) {
+        this.queueSize = queueSize;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                r -> new Thread(r, "analysis-" + count.incrementAndGet()));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the size of a graph that is used to order the tasks.
+     * @param graph the graph that is analysed
+     * @return the number of vertices and edges of the graph
+     */
+    public static long sizeOf(Graph graph) {
+        return graph.getVertices().size() + graph.getEdges().size();
+    }
+
+    /**
+     * Submits a task to the pool.
+     *
+     * @param priority the priority of the task
+     * @param size the size of the analysed graph, see {@link #sizeOf(Graph)}
+     * @param task the task to run
+     * @param <T> the result of the task
+     * @return the future result of the task
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> Future<T> submit(Priority priority, long size, Callable<T> task) {
+        if (executor.getQueue().size() >= queueSize) {
+            throw new RejectedExecutionException("The analysis queue is full");
+        }
+        Task<T> future = new Task<>(task, priority, size, sequence.getAndIncrement());
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Submits a task without result to the pool.
+     *
+     * @param priority the priority of the task
+     * @param size the size of the analysed graph, see {@link #sizeOf(Graph)}
+     * @param task the task to run
+     * @return the future that completes with the task
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public Future<Void> submit(Priority priority, long size, Runnable task) {
+        return this.submit(priority, size, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Stops accepting tasks, the tasks already submitted are still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the statistics of the pool.
+     * @return the number of threads, active threads, queued and completed tasks
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("threads", (long) executor.getMaximumPoolSize());
+        statistics.put("active", (long) executor.getActiveCount());
+        statistics.put("queued", (long) executor.getQueue().size());
+        statistics.put("completed", executor.getCompletedTaskCount());
+        return statistics;
+    }
+
+    private static class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+        private static final Comparator<Task<?>> ORDER = Comparator.<Task<?>, Priority>comparing(t -> t.priority)
+                .thenComparingLong(t -> t.size)
+                .thenComparingLong(t -> t.sequence);
+
+        private final Priority priority;
+        private final long size;
+        private final long sequence;
+
+        Task(Callable<T> callable, Priority priority, long size, long sequence) {
+            super(callable);
+            this.priority = priority;
+            this.size = size;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package app.http;
+
+import app.graph.Edge;
+import app.graph.Graph;
+import app.graph.GraphBuilder;
+import app.graph.Vertex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads graphs and centrality results in a compact binary format, the content type
+ * {@value #MIME_TYPE}. It is much smaller and faster than JSON or serialized java objects for large graphs.
+ *
+ * All numbers are big endian. Varints are unsigned LEB128, i.e. 7 bits per byte starting with the lowest bits and
+ * the highest bit set on all but the last byte. Strings are a varint with the number of bytes followed by the UTF-8
+ * bytes. The format is
+ * <ul>
+ *     <li>the magic number {@code VHG1} as an int</li>
+ *     <li>the kind as a byte, {@code 1} for a graph or {@code 2} for centralities</li>
+ *     <li>the size of the weights as a byte, {@code 4} for floats or {@code 8} for doubles</li>
+ *     <li>the string table: a varint with the number of vertices followed by their names as strings. Vertices are
+ *     referenced by their index in this table.</li>
+ *     <li>for a graph: for every vertex of the string table in order a varint with the number of its neighbors with a
+ *     higher index, followed by these neighbors ascending by their index, each as a varint with the difference to the
+ *     index of the previous neighbor (to the index of the vertex for the first one) and the weight of the edge.</li>
+ *     <li>for centralities: a varint with the number of centralities, each as its name as a string, a varint with the
+ *     number of values and the values ascending by the index of their vertex, each as a varint with the difference
+ *     to the index of the previous vertex (to -1 for the first one) and the value. The centralizations are a
+ *     centrality named {@code centralization} whose "vertices" are the names of the centralities.</li>
+ * </ul>
+ * Floats are chosen with the parameter {@code precision=float} of the content type, e.g. in the Accept header.
+ */
+public class BinaryGraph {
+    public static final String MIME_TYPE = "application/x-analyse4-graph";
+    private static final int MAGIC = 0x56484731;
+    private static final byte KIND_GRAPH = 1;
+    private static final byte KIND_CENTRALITIES = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BinaryGraph() {} //prevent initialization
+
+    /**
+     * Checks whether weights are written as floats for the given content type.
+     * @param mimeType the content type, e.g. {@code application/x-analyse4-graph; precision=float}
+     * @return whether the parameter precision is float
+     */
+    public static boolean isSinglePrecision(String mimeType) {
+        String[] parameters = mimeType.split(";");
+        for (int i = 1; i < parameters.length; i++) {
+            if (parameters[i].strip().equalsIgnoreCase("precision=float")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a map can be written as centralities, i.e. it maps strings to maps from strings to numbers.
+     * @param map the map to check
+     * @return whether the map can be written with {@link #writeCentralities(Map, OutputStream, boolean)}
+     */
+    public static boolean isCentralities(Map<?, ?> map) {
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            if (!(e.getKey() instanceof String) || !(e.getValue() instanceof Map)) return false;
+            for (Map.Entry<?, ?> value : ((Map<?, ?>) e.getValue()).entrySet()) {
+                if (!(value.getKey() instanceof String) || !(value.getValue() instanceof Number)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a graph to the stream.
+     *
+     * @param graph the graph to write
+     * @param os the stream the graph is written to, it is flushed but not closed
+     * @param singlePrecision whether the weights are written as floats instead of doubles
+     * @throws IOException if the graph could not be written
+     */
+    public static void writeGraph(Graph graph, OutputStream os, boolean singlePrecision) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, BUFFER_SIZE));
+        writeHeader(out, KIND_GRAPH, singlePrecision);
+
+        Vertex[] vertices = graph.getVertices().toArray(new Vertex[0]);
+        Map<Vertex, Integer> indices = new HashMap<>(vertices.length * 2);
+        writeVarint(out, vertices.length);
+        for (int i = 0; i < vertices.length; i++) {
+            indices.put(vertices[i], i);
+            writeString(out, vertices[i].getIdentifier());
+        }
+
+        // The neighbors of each vertex packed as index << 32 | position in the edges to sort them by their index
+        List<Edge> edges = new ArrayList<>();
+        for (int i = 0; i < vertices.length; i++) {
+            edges.clear();
+            for (Edge e : vertices[i].getEdges()) {
+                if (indices.get(e.oppositeVertex(vertices[i])) > i) edges.add(e);
+            }
+            long[] neighbors = new long[edges.size()];
+            for (int j = 0; j < neighbors.length; j++) {
+                neighbors[j] = (long) indices.get(edges.get(j).oppositeVertex(vertices[i])) << 32 | j;
+            }
+            Arrays.sort(neighbors);
+
+            writeVarint(out, neighbors.length);
+            int previous = i;
+            for (long neighbor : neighbors) {
+                int index = (int) (neighbor >>> 32);
+                writeVarint(out, index - previous);
+                writeWeight(out, edges.get((int) neighbor).getWeight(), singlePrecision);
+                previous = index;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes centralities, e.g. the result of an analysis, to the stream.
+     *
+     * @param centralities the values of the vertices by the name of the centrality
+     * @param os the stream the centralities are written to, it is flushed but not closed
+     * @param singlePrecision whether the values are written as floats instead of doubles
+     * @throws IOException if the centralities could not be written
+     */
+    public static void writeCentralities(Map<String, ? extends Map<String, ? extends Number>> centralities, OutputStream os,
+                                         boolean singlePrecision) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, BUFFER_SIZE));
+        writeHeader(out, KIND_CENTRALITIES, singlePrecision);
+
+        Map<String, Integer> indices = new LinkedHashMap<>();
+        for (Map<String, ? extends Number> values : centralities.values()) {
+            for (String vertex : values.keySet()) {
+                indices.putIfAbsent(vertex, indices.size());
+            }
+        }
+        writeVarint(out, indices.size());
+        for (String vertex : indices.keySet()) {
+            writeString(out, vertex);
+        }
+
+        writeVarint(out, centralities.size());
+        for (Map.Entry<String, ? extends Map<String, ? extends Number>> centrality : centralities.entrySet()) {
+            writeString(out, centrality.getKey());
+            int[] vertices = new int[centrality.getValue().size()];
+            double[] values = new double[indices.size()];
+            int count = 0;
+            for (Map.Entry<String, ? extends Number> value : centrality.getValue().entrySet()) {
+                int index = indices.get(value.getKey());
+                vertices[count++] = index;
+                values[index] = value.getValue().doubleValue();
+            }
+            Arrays.sort(vertices);
+
+            writeVarint(out, vertices.length);
+            int previous = -1;
+            for (int index : vertices) {
+                writeVarint(out, index - previous);
+                writeWeight(out, values[index], singlePrecision);
+                previous = index;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a graph from the stream.
+     *
+     * @param is the stream to read, it is not closed
+     * @return the graph
+     * @throws IOException if the stream could not be read
+     * @throws IllegalArgumentException if the stream does not contain a graph in the binary format
+     */
+    public static Graph readGraph(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is, BUFFER_SIZE));
+        try {
+            boolean singlePrecision = readHeader(in, KIND_GRAPH);
+            GraphBuilder graph = new GraphBuilder();
+            List<String> names = readStrings(in);
+            List<Vertex> vertices = new ArrayList<>(names.size());
+            for (String name : names) {
+                vertices.add(graph.declareVertex(name));
+            }
+            for (int i = 0; i < vertices.size(); i++) {
+                int neighbors = readVarint(in);
+                int index = i;
+                for (int j = 0; j < neighbors; j++) {
+                    index += readVarint(in);
+                    if (index <= i || index >= vertices.size()) {
+                        throw new IllegalArgumentException("Binary graph references an unknown vertex: " + index);
+                    }
+                    graph.setWeight(vertices.get(i), names.get(index), readWeight(in, singlePrecision));
+                }
+            }
+            return graph.build();
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Binary graph ends unexpectedly");
+        }
+    }
+
+    /**
+     * Reads centralities from the stream.
+     *
+     * @param is the stream to read, it is not closed
+     * @return the values of the vertices by the name of the centrality
+     * @throws IOException if the stream could not be read
+     * @throws IllegalArgumentException if the stream does not contain centralities in the binary format
+     */
+    public static Map<String, Map<String, Double>> readCentralities(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is, BUFFER_SIZE));
+        try {
+            boolean singlePrecision = readHeader(in, KIND_CENTRALITIES);
+            List<String> vertices = readStrings(in);
+            int count = readVarint(in);
+            Map<String, Map<String, Double>> centralities = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                int size = readVarint(in);
+                Map<String, Double> values = new HashMap<>();
+                int index = -1;
+                for (int j = 0; j < size; j++) {
+                    index += readVarint(in);
+                    if (index < 0 || index >= vertices.size()) {
+                        throw new IllegalArgumentException("Binary centralities reference an unknown vertex: " + index);
+                    }
+                    values.put(vertices.get(index), readWeight(in, singlePrecision));
+                }
+                centralities.put(name, values);
+            }
+            return centralities;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Binary centralities end unexpectedly");
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, byte kind, boolean singlePrecision) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(kind);
+        out.writeByte(singlePrecision ? 4 : 8);
+    }
+
+    private static boolean readHeader(DataInputStream in, byte kind) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Body is not of expected type " + MIME_TYPE);
+        }
+        if (in.readByte() != kind) {
+            throw new IllegalArgumentException("Binary body is not a " + (kind == KIND_GRAPH ? "graph" : "centrality result"));
+        }
+        byte size = in.readByte();
+        if (size != 4 && size != 8) {
+            throw new IllegalArgumentException("Unsupported size of binary weights: " + size);
+        }
+        return size == 4;
+    }
+
+    private static void writeWeight(DataOutputStream out, double weight, boolean singlePrecision) throws IOException {
+        if (singlePrecision) {
+            out.writeFloat((float) weight);
+        } else {
+            out.writeDouble(weight);
+        }
+    }
+
+    private static double readWeight(DataInputStream in, boolean singlePrecision) throws IOException {
+        return singlePrecision ? in.readFloat() : in.readDouble();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        // Read in steps instead of allocating the announced length at once, which may be corrupt
+        int length = readVarint(in);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) throw new EOFException();
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = readVarint(in);
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) throw new IllegalArgumentException("Binary varint out of range");
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Binary varint is too long");
+    }
+}
@@ -0,0 +1,138 @@
+package app.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Negotiates and applies the content encoding of response bodies.
+ *
+ * The supported encodings are {@code gzip} and {@code deflate} (zlib format as defined by HTTP). If a client accepts
+ * both with the same weight gzip is preferred.
+ */
+public class Compression {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Compression() {} //prevent initialization
+
+    /**
+     * Selects the encoding for a response from the {@code Accept-Encoding} headers of a request.
+     *
+     * @param acceptEncoding the values of the Accept-Encoding headers, may be null
+     * @return {@link #GZIP}, {@link #DEFLATE} or null if the body should not be compressed
+     */
+    public static String negotiate(List<String> acceptEncoding) {
+        if (acceptEncoding == null) return null;
+        double gzip = 0;
+        double deflate = 0;
+        double any = -1;
+        boolean gzipListed = false;
+        boolean deflateListed = false;
+        for (String header : acceptEncoding) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].strip().toLowerCase();
+                double quality = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].strip();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                switch (name) {
+                    case GZIP, "x-gzip" -> {
+                        gzip = quality;
+                        gzipListed = true;
+                    }
+                    case DEFLATE -> {
+                        deflate = quality;
+                        deflateListed = true;
+                    }
+                    case "*" -> any = quality;
+                    default -> { }
+                }
+            }
+        }
+        if (!gzipListed && any >= 0) gzip = any;
+        if (!deflateListed && any >= 0) deflate = any;
+        if (gzip > 0 && gzip >= deflate) return GZIP;
+        if (deflate > 0) return DEFLATE;
+        return null;
+    }
+
+    /**
+     * Wraps the given stream so everything written to it is compressed with the given encoding.
+     *
+     * @param os the stream that receives the compressed body
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}
+     * @return the compressing stream, closing it finishes the body and closes the given stream
+     * @throws IOException if the stream could not be wrapped
+     */
+    public static OutputStream compress(OutputStream os, String encoding) throws IOException {
+        return switch (encoding) {
+            case GZIP -> new GZIPOutputStream(os, BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(os, new Deflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // The deflater is not the default one of the stream and has to be released by hand
+                        def.end();
+                    }
+                }
+            };
+            default -> throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        };
+    }
+
+    /**
+     * Compresses a body once, e.g. to cache it and serve it compressed to every client that accepts the encoding.
+     *
+     * @param content the uncompressed body
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}
+     * @return the compressed body
+     */
+    public static byte[] compress(byte[] content, String encoding) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream os = compress(compressed, encoding)) {
+            os.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Returns a stream that decompresses a compressed body, e.g. to send a pre-compressed body to a client that does
+     * not accept its encoding.
+     *
+     * @param content the compressed body
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}
+     * @return the stream of the uncompressed body
+     * @throws IOException if the body is not compressed with the given encoding
+     */
+    public static InputStream decompress(byte[] content, String encoding) throws IOException {
+        InputStream is = new ByteArrayInputStream(content);
+        return switch (encoding) {
+            case GZIP -> new GZIPInputStream(is, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(is);
+            default -> throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        };
+    }
+}
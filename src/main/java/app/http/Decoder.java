@@ -2,22 +2,36 @@ package app.http;
 
 import app.Main;
 import app.data.SVGRequest;
+import app.db.GraphFilters;
 import app.db.GraphOptions;
 import app.graph.Graph;
 import app.http.logger.Logger;
 import app.data.AnalysisRequest;
-import app.data.AdjacencyList;
+import app.data.FlowDistanceRequest;
+import app.data.GraphRequest;
+import app.data.IdsRequest;
 import app.data.InteractionRequest;
+import app.graph.GraphBuilder;
+import app.graph.Vertex;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -26,7 +40,6 @@ import java.util.stream.Collectors;
  *
  */
 public class Decoder {
-    private static final Gson GSON = new Gson();
 
     /**
      * If possible parses the request body given via the http exchange into the data class InteractionRequest
@@ -39,7 +52,18 @@ public class Decoder {
         String bodyAsString = Decoder.streamAsString(exchange.getRequestBody());
         Logger.logRequest(exchange, bodyAsString);
 
-        JsonObject bodyAsJsonObject = Decoder.strictJsonObject(bodyAsString, "names", "duration", "datetime");
+        return Decoder.asInteraction(bodyAsString);
+    }
+
+    /**
+     * If possible parses a single interaction in JSON, e.g. a line of /api/interaction/stream, into the data class
+     * InteractionRequest
+     * @param json The interaction as JSON
+     * @return The interaction parsed into the InteractionRequest data class
+     * @throws IllegalArgumentException if the given input does not match the required format.
+     */
+    public static InteractionRequest asInteraction(String json) {
+        JsonObject bodyAsJsonObject = Decoder.strictJsonObject(json, "names", "duration", "datetime");
 
         String[] names = Decoder.strictJsonStringArray(bodyAsJsonObject, "names");
 
@@ -78,46 +102,88 @@ public class Decoder {
     }
 
     /**
-     * If possible parses the request body given via the http exchange into the data class AnalysisRequest
+     * If possible parses the request body given via the http exchange into a list of names
+     * to delete from the database
      * @param exchange The exchange from which the body is decoded
-     * @return The body parsed into the AnalysisRequest data class
+     * @return The names to delete from the database
      * @throws IllegalArgumentException if the given input does not match the required format.
      */
-    public static AnalysisRequest asAnalysis(HttpExchange exchange){
-
+    public static List<String> asNamesToDelete(HttpExchange exchange) {
         String bodyAsString = Decoder.streamAsString(exchange.getRequestBody());
         Logger.logRequest(exchange, bodyAsString);
+        JsonObject bodyAsJsonObject = Decoder.strictJsonObject(bodyAsString, "names");
 
-        JsonObject bodyAsJsonObject = Decoder.strictJsonObject(bodyAsString, "centralities");
+        return List.of(strictJsonStringArray(bodyAsJsonObject, "names"));
+    }
 
-        Graph graph;
-        if (bodyAsJsonObject.has("data")) {
-            graph = GSON.fromJson(bodyAsJsonObject, AdjacencyList.class).asGraph(); // Todo: I have no idea what happens if this "fails"
-        } else {
-            graph = null;
+    /**
+     * If possible parses the request body given via the http exchange into the data class AnalysisRequest
+     * @param exchange The exchange from which the body is decoded
+     * @return The body parsed into the AnalysisRequest data class
+     * @throws IllegalArgumentException if the given input does not match the required format.
+     */
+    public static AnalysisRequest asAnalysis(HttpExchange exchange){
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.toLowerCase().startsWith(BinaryGraph.MIME_TYPE)) {
+            return asBinaryAnalysis(exchange);
         }
 
-        String[] centralities = Decoder.strictJsonStringArray(bodyAsJsonObject, "centralities");
+        Logger.logRequest(exchange, "{  }");
 
+        // The body is parsed while it is read, so large graphs are never held as a string or JSON tree
+        String[] centralities = null;
+        Graph graph = null;
         boolean centralization = false;
-        if (bodyAsJsonObject.has("centralization")) {
-            if (!bodyAsJsonObject.get("centralization").isJsonPrimitive() || !bodyAsJsonObject.getAsJsonPrimitive("centralization").isBoolean()) {
-                throw new IllegalArgumentException("JSON field centralization is not a boolean");
+        GraphOptions option = GraphOptions.valueOf(Main.properties.getProperty("default_graph_options"));
+        try (JsonReader reader = Decoder.jsonReader(exchange.getRequestBody())) {
+            Decoder.beginBody(reader);
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "centralities" -> centralities = Decoder.nextStringArray(reader, name);
+                    case "centralization" -> centralization = Decoder.nextBoolean(reader, name);
+                    case "data" -> graph = Decoder.nextGraph(reader);
+                    case "option" -> option = GraphOptions.valueOf(Decoder.nextString(reader, name));
+                    default -> reader.skipValue();
+                }
             }
-            centralization = bodyAsJsonObject.get("centralization").getAsBoolean();
+            Decoder.endBody(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Body is not of expected type JSON");
         }
 
-        GraphOptions option = GraphOptions.valueOf(Main.properties.getProperty("default_graph_options"));
-        if (bodyAsJsonObject.has("option")) {
-            if (!bodyAsJsonObject.get("option").isJsonPrimitive() || !bodyAsJsonObject.getAsJsonPrimitive("option").isString()) {
-                throw new IllegalArgumentException("JSON field option is not a string");
-            }
-            option = GraphOptions.valueOf(bodyAsJsonObject.get("option").getAsString());
+        if (centralities == null) {
+            throw new IllegalArgumentException("JSON is missing field: centralities");
         }
 
         return new AnalysisRequest(centralities, graph, option, centralization);
     }
 
+    /**
+     * Parses an analysis request whose body is a graph in the binary format of {@link BinaryGraph}. The other fields
+     * are given as query parameters, e.g. {@code ?centralities=closeness,degree&centralization=true}.
+     * @param exchange The exchange from which the body and query are decoded
+     * @return The body and query parsed into the AnalysisRequest data class
+     * @throws IllegalArgumentException if the given input does not match the required format.
+     */
+    private static AnalysisRequest asBinaryAnalysis(HttpExchange exchange) {
+        Logger.logRequest(exchange, "{ binary graph }");
+        Map<String, String> query = Decoder.asQuery(exchange);
+        if (!query.containsKey("centralities") || query.get("centralities").isEmpty()) {
+            throw new IllegalArgumentException("Query is missing parameter: centralities");
+        }
+        String[] centralities = query.get("centralities").split(",");
+        boolean centralization = Boolean.parseBoolean(query.get("centralization"));
+
+        Graph graph;
+        try (InputStream is = exchange.getRequestBody()) {
+            graph = BinaryGraph.readGraph(is);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error while reading body stream.");
+        }
+        return new AnalysisRequest(centralities, graph, GraphOptions.valueOf(Main.properties.getProperty("default_graph_options")), centralization);
+    }
+
     /**
      * If possible parses the request body given via the http exchange into the data class SVGRequest
      * @param exchange The exchange from which the body is decoded
@@ -125,57 +191,116 @@ public class Decoder {
      * @throws IllegalArgumentException if the given input does not match the required format.
      */
     public static SVGRequest asSVG(HttpExchange exchange) {
-        String bodyAsString = Decoder.streamAsString(exchange.getRequestBody());
-        Logger.logRequest(exchange, bodyAsString);
+        Logger.logRequest(exchange, "{  }");
+
+        String centrality = null;
+        Graph graph = null;
+        Map<String, String> colors = null;
+        String display = null;
+        String distanceString = null;
+        try (JsonReader reader = Decoder.jsonReader(exchange.getRequestBody())) {
+            Decoder.beginBody(reader);
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "centrality" -> centrality = Decoder.nextString(reader, name);
+                    case "data" -> graph = Decoder.nextGraph(reader);
+                    case "colors" -> colors = Decoder.nextColors(reader);
+                    case "display" -> display = Decoder.nextString(reader, name);
+                    case "distance" -> distanceString = Decoder.nextString(reader, name);
+                    default -> reader.skipValue();
+                }
+            }
+            Decoder.endBody(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Body is not of expected type JSON");
+        }
 
-        JsonObject bodyAsJsonObject = Decoder.strictJsonObject(bodyAsString, "centrality");
-        Graph graph;
-        if (bodyAsJsonObject.has("data")) {
-            graph = GSON.fromJson(bodyAsJsonObject, AdjacencyList.class).asGraph(); // Todo: I have no idea what happens if this "fails"
-        } else {
-            graph = null;
+        if (centrality == null) {
+            throw new IllegalArgumentException("JSON is missing field: centrality");
         }
+        int distance = -1;
+        if (display != null && distanceString != null) {
+            distance = Integer.parseInt(distanceString);
+        }
+        if (display == null) {
+            display = "";
+        }
+        return new SVGRequest(centrality, graph, colors, display, distance, GraphOptions.valueOf(Main.properties.getProperty("default_graph_options")));
+    }
 
-        Map<String, String> colors;
+    /**
+     * If possible parses the request body given via the http exchange into the data class FlowDistanceRequest
+     * @param exchange The exchange from which the body is decoded
+     * @return The body parsed into the FlowDistanceRequest data class
+     * @throws IllegalArgumentException if the given input does not match the required format.
+     */
+    public static FlowDistanceRequest asFlowDistance(HttpExchange exchange) {
+        String bodyAsString = Decoder.streamAsString(exchange.getRequestBody());
+        Logger.logRequest(exchange, bodyAsString);
 
-        if (bodyAsJsonObject.has("colors")) {
-            if (!bodyAsJsonObject.get("colors").isJsonObject()) {
-                throw new IllegalArgumentException("Value of field data is not of expected type JSON object");
-            }
+        JsonObject bodyAsJsonObject = Decoder.strictJsonObject(bodyAsString.isEmpty() ? "{}" : bodyAsString);
+        String source = bodyAsJsonObject.has("source") ? strictJsonString(bodyAsJsonObject, "source") : null;
+        String target = bodyAsJsonObject.has("target") ? strictJsonString(bodyAsJsonObject, "target") : null;
+        if (target != null && source == null) {
+            throw new IllegalArgumentException("JSON is missing field: source");
+        }
+        int pageSize = Integer.parseInt(Main.properties.getProperty("flow_page_size"));
+        int offset = bodyAsJsonObject.has("offset") ? strictJsonInt(bodyAsJsonObject, "offset") : 0;
+        int limit = bodyAsJsonObject.has("limit") ? strictJsonInt(bodyAsJsonObject, "limit") : pageSize;
+        int top = bodyAsJsonObject.has("top") ? strictJsonInt(bodyAsJsonObject, "top") : -1;
+        if (offset < 0 || limit < 0 || limit > pageSize) {
+            throw new IllegalArgumentException("JSON fields offset and limit have to be between 0 and " + pageSize);
+        }
 
-            colors = new HashMap<>();
-            for(Map.Entry<String, JsonElement> e :bodyAsJsonObject.getAsJsonObject("colors").entrySet()) {
-                if(!e.getValue().isJsonPrimitive() || !e.getValue().getAsJsonPrimitive().isString()) {
-                    throw new IllegalArgumentException("Expected colors to be of type Map<String, String>");
-                }
+        return new FlowDistanceRequest(source, target, offset, limit, top);
+    }
 
-                colors.put(e.getKey(), e.getValue().getAsString());
+    /**
+     * If possible parses the query of the request URI into the data class IdsRequest. The ids are paged if any of
+     * the parameters prefix, cursor or limit is given.
+     * @param exchange The exchange from which the query is decoded
+     * @return The query parsed into the IdsRequest data class
+     * @throws IllegalArgumentException if the given input does not match the required format.
+     */
+    public static IdsRequest asIdsRequest(HttpExchange exchange) {
+        Map<String, String> query = Decoder.asQuery(exchange);
+        int pageSize = Integer.parseInt(Main.properties.getProperty("ids_page_size"));
+        String prefix = query.getOrDefault("prefix", "");
+        String after = null;
+        if (query.containsKey("cursor")) {
+            try {
+                after = IdsRequest.idOf(query.get("cursor"));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value for parameter 'cursor'");
             }
-
-
-        } else {
-            colors = null;
         }
-        String display = "";
-        int distance = -1;
-        String centrality = strictJsonString(bodyAsJsonObject, "centrality");
-        if (bodyAsJsonObject.has("display")) {
-            display = strictJsonString(bodyAsJsonObject, "display");
-            if (bodyAsJsonObject.has("distance")) {
-                distance = Integer.parseInt(strictJsonString(bodyAsJsonObject, "distance"));
+        int limit = pageSize;
+        if (query.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(query.get("limit"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parameter limit is not an int");
             }
         }
-        return new SVGRequest(centrality, graph, colors, display, distance, GraphOptions.valueOf(Main.properties.getProperty("default_graph_options")));
+        if (limit < 1 || limit > pageSize) {
+            throw new IllegalArgumentException("Parameter limit has to be between 1 and " + pageSize);
+        }
+
+        boolean paged = query.containsKey("prefix") || query.containsKey("cursor") || query.containsKey("limit");
+        return new IdsRequest(prefix, after, limit, paged);
     }
 
     /**
-     * If possible parses the request body given via the http exchange into the enum GraphOptions.
+     * If possible parses the request body given via the http exchange into the data class GraphRequest.
      *
+     * The optional filters are given as an object from the filter names of {@link GraphFilters} to a number, a string
+     * or an array of strings.
      * @param exchange The exchange from which the body is decoded
-     * @return The body parsed into the SVGRequest data class
+     * @return The body parsed into the GraphRequest data class
      * @throws IllegalArgumentException if the given input does not match the required format.
      */
-    public static GraphOptions asGraphOption(HttpExchange exchange) {
+    public static GraphRequest asGraphRequest(HttpExchange exchange) {
         // Set to default
         String bodyAsString = Decoder.streamAsString(exchange.getRequestBody());
         Logger.logRequest(exchange, bodyAsString);
@@ -188,12 +313,54 @@ public class Decoder {
 
         String option = strictJsonString(bodyAsJsonObject, "option");
 
+        GraphOptions graphOption;
         try {
-            return GraphOptions.valueOf(option);
+            graphOption = GraphOptions.valueOf(option);
         }catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid value for field 'option'");
         }
 
+        SortedMap<String, String> filters = new TreeMap<>();
+        if (bodyAsJsonObject.has("filters")) {
+            if (!bodyAsJsonObject.get("filters").isJsonObject()) {
+                throw new IllegalArgumentException("JSON field filters is not a JSON object");
+            }
+            for (Map.Entry<String, JsonElement> e : bodyAsJsonObject.getAsJsonObject("filters").entrySet()) {
+                String value;
+                if (e.getValue().isJsonPrimitive() && e.getValue().getAsJsonPrimitive().isNumber()) {
+                    value = e.getValue().getAsString();
+                } else {
+                    String[] values = strictJsonStringArray(e.getValue());
+                    if (values.length == 0) {
+                        throw new IllegalArgumentException("Filter " + e.getKey() + " has no values");
+                    }
+                    value = GraphFilters.join(List.of(values));
+                }
+                GraphFilters.check(e.getKey(), value);
+                filters.put(e.getKey(), value);
+            }
+        }
+
+        return new GraphRequest(graphOption, filters);
+    }
+
+    /**
+     * Parses the query of the request URI into a map of URL decoded parameters. Parameters without a value are
+     * mapped to an empty string.
+     * @param exchange The exchange from which the query is decoded
+     * @return The parameters of the query
+     */
+    public static Map<String, String> asQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String parameter : rawQuery.split("&")) {
+            int split = parameter.indexOf('=');
+            String key = split < 0 ? parameter : parameter.substring(0, split);
+            String value = split < 0 ? "" : parameter.substring(split + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
     }
 
     /**
@@ -241,6 +408,24 @@ public class Decoder {
         return json.get(fieldName).getAsString();
     }
 
+    /**
+     * Gets the value for a given key of a Json Object as an int if it is an integral number.
+     * @param json The Json Object from which to extract the value
+     * @param fieldName The key value who's value is extracted
+     * @return The int in the field
+     * @throws IllegalArgumentException If field is not an integral number
+     */
+    private static int strictJsonInt(JsonObject json, String fieldName) {
+        if (!json.get(fieldName).isJsonPrimitive() || !json.getAsJsonPrimitive(fieldName).isNumber()) {
+            throw new IllegalArgumentException("JSON field " + fieldName + " is not a number");
+        }
+        try {
+            return json.getAsJsonPrimitive(fieldName).getAsBigDecimal().intValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("JSON field " + fieldName + " is not an integer");
+        }
+    }
+
     /**
      * Gets the value for a given key of a Json Object as a String-Array if it is either already an Array or a single string.
      * @param json The Json Object from which to extract the value
@@ -283,6 +468,177 @@ public class Decoder {
         return elements;
     }
 
+    /**
+     * Creates a reader that parses the JSON of a body while it is read from the stream.
+     * @param is The stream of the body
+     * @return The reader, closing it closes the stream
+     */
+    private static JsonReader jsonReader(InputStream is) {
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 1 << 16));
+        // As lenient as the JsonParser used for the other bodies
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Begins reading the JSON object of a body.
+     * @param reader The reader of the body
+     * @throws IOException if the body could not be read or is malformed
+     * @throws IllegalArgumentException if the body is not a JSON object
+     */
+    private static void beginBody(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IllegalArgumentException("Body is not of expected type JSON object");
+        }
+        reader.beginObject();
+    }
+
+    /**
+     * Ends reading the JSON object of a body and makes sure nothing follows it.
+     * @param reader The reader of the body
+     * @throws IOException if the body could not be read or is malformed
+     * @throws IllegalArgumentException if the object is followed by more JSON
+     */
+    private static void endBody(JsonReader reader) throws IOException {
+        reader.endObject();
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new IllegalArgumentException("Body is not of expected type JSON");
+        }
+    }
+
+    /**
+     * Reads the next value as a String if it is a String.
+     * @param reader The reader positioned at the value
+     * @param fieldName The name of the field of the value
+     * @return The String
+     * @throws IOException if the body could not be read or is malformed
+     * @throws IllegalArgumentException If the value is not of type String
+     */
+    private static String nextString(JsonReader reader, String fieldName) throws IOException {
+        if (reader.peek() != JsonToken.STRING) {
+            throw new IllegalArgumentException("JSON field " + fieldName + " is not a string");
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Reads the next value as a boolean if it is a boolean.
+     * @param reader The reader positioned at the value
+     * @param fieldName The name of the field of the value
+     * @return The boolean
+     * @throws IOException if the body could not be read or is malformed
+     * @throws IllegalArgumentException If the value is not of type boolean
+     */
+    private static boolean nextBoolean(JsonReader reader, String fieldName) throws IOException {
+        if (reader.peek() != JsonToken.BOOLEAN) {
+            throw new IllegalArgumentException("JSON field " + fieldName + " is not a boolean");
+        }
+        return reader.nextBoolean();
+    }
+
+    /**
+     * Reads the next value as a String-Array if it is either an Array of Strings or a single String.
+     * @param reader The reader positioned at the value
+     * @param fieldName The name of the field of the value
+     * @return A String-Array of the value
+     * @throws IOException if the body could not be read or is malformed
+     * @throws IllegalArgumentException if the value does not match the required format.
+     */
+    private static String[] nextStringArray(JsonReader reader, String fieldName) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return new String[]{reader.nextString()};
+        }
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            throw new IllegalArgumentException("For the field " + fieldName + " the JSON element is not an Array");
+        }
+
+        List<String> elements = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.STRING) {
+                throw new IllegalArgumentException("For the field " + fieldName + " the Array should only contain Strings");
+            }
+            elements.add(reader.nextString());
+        }
+        reader.endArray();
+        return elements.toArray(new String[0]);
+    }
+
+    /**
+     * Reads the field data of a request into a graph. It is either a graph in JSON as returned by /api/graph, which
+     * is built while it is read, or a string with the base64 encoded graph in the binary format of
+     * {@link BinaryGraph}.
+     * @param reader The reader positioned at the value of data
+     * @return The graph or null if data is null
+     * @throws IOException if the body could not be read or is malformed
+     * @throws IllegalArgumentException if the field does not contain a graph
+     */
+    private static Graph nextGraph(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL -> {
+                reader.nextNull();
+                return null;
+            }
+            case STRING -> {
+                try {
+                    return BinaryGraph.readGraph(new ByteArrayInputStream(Base64.getDecoder().decode(reader.nextString())));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("JSON field data is not a binary graph");
+                }
+            }
+            case BEGIN_OBJECT -> { }
+            default -> throw new IllegalArgumentException("JSON field data is not a graph");
+        }
+
+        GraphBuilder builder = new GraphBuilder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Vertex v = builder.declareVertex(reader.nextName());
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new IllegalArgumentException("Neighbors of " + v.getIdentifier() + " are not a JSON object");
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String neighbor = reader.nextName();
+                if (reader.peek() != JsonToken.NUMBER && reader.peek() != JsonToken.STRING) {
+                    throw new IllegalArgumentException("Weight between " + v.getIdentifier() + " and " + neighbor + " is not a number");
+                }
+                try {
+                    builder.setWeight(v, neighbor, reader.nextDouble());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Weight between " + v.getIdentifier() + " and " + neighbor + " is not a number");
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    /**
+     * Reads the field colors of a svg request.
+     * @param reader The reader positioned at the value of colors
+     * @return The colors by the name of the vertex
+     * @throws IOException if the body could not be read or is malformed
+     * @throws IllegalArgumentException if the field is not a map of strings
+     */
+    private static Map<String, String> nextColors(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IllegalArgumentException("JSON field colors is not of expected type JSON object");
+        }
+        Map<String, String> colors = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String vertex = reader.nextName();
+            if (reader.peek() != JsonToken.STRING) {
+                throw new IllegalArgumentException("Expected colors to be of type Map<String, String>");
+            }
+            colors.put(vertex, reader.nextString());
+        }
+        reader.endObject();
+        return colors;
+    }
+
     /**
      * Helper function that converts and consumes an Input Stream into a String
      * @param is Input stream to convert
@@ -0,0 +1,240 @@
+package app.http;
+
+import app.data.MeetingRecord;
+import app.db.InteractionStore;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes and reads dumps of all meetings of a store. Dumps are written gzip compressed in one of two formats.
+ * <ul>
+ *     <li>{@code ndjson} - one JSON object per line with the fields {@code names}, {@code datetime},
+ *     {@code duration} and {@code distinctPersons}</li>
+ *     <li>{@code binary} - the magic number {@code VHD1} followed by the meetings, each as an int with the number
+ *     of names, the names in modified UTF-8 ({@link DataOutputStream#writeUTF(String)}), a long datetime, an int
+ *     duration and an int distinctPersons. The dump ends with a meeting of -1 names.</li>
+ * </ul>
+ * Both formats are read compressed or uncompressed.
+ */
+public class Dump {
+    private static final Gson GSON = new Gson();
+    private static final int MAGIC = 0x56484431;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The formats of a dump.
+     */
+    public enum Format {
+        NDJSON("meetings.ndjson.gz"),
+        BINARY("meetings.bin.gz");
+
+        public final String fileName;
+
+        Format(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * Returns the format with the given name, e.g. {@code ndjson}.
+         * @param name the name of the format
+         * @return the format
+         * @throws IllegalArgumentException if there is no format with the given name
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) return format;
+            }
+            throw new IllegalArgumentException("Unknown dump format: " + name);
+        }
+    }
+
+    /**
+     * Writes the meetings it receives to a compressed dump.
+     */
+    public static class Writer implements InteractionStore.MeetingConsumer, Closeable {
+        private final Format format;
+        private final GZIPOutputStream gzip;
+        private final BufferedWriter text;
+        private final DataOutputStream binary;
+
+        /**
+         * Creates a writer that writes the dump to the given stream, which is closed with the writer.
+         * @param os the stream to write the dump to
+         * @param format the format of the dump
+         * @throws IOException if the dump could not be started
+         */
+        public Writer(OutputStream os, Format format) throws IOException {
+            this.format = format;
+            this.gzip = new GZIPOutputStream(os, BUFFER_SIZE);
+            if (format == Format.NDJSON) {
+                this.text = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+                this.binary = null;
+            } else {
+                this.text = null;
+                this.binary = new DataOutputStream(gzip);
+                this.binary.writeInt(MAGIC);
+            }
+        }
+
+        @Override
+        public void accept(MeetingRecord meeting) throws IOException {
+            if (format == Format.NDJSON) {
+                text.write(GSON.toJson(meeting));
+                text.write('\n');
+            } else {
+                binary.writeInt(meeting.names.length);
+                for (String name : meeting.names) {
+                    binary.writeUTF(name);
+                }
+                binary.writeLong(meeting.datetime);
+                binary.writeInt(meeting.duration);
+                binary.writeInt(meeting.distinctPersons);
+            }
+        }
+
+        /**
+         * Ends the dump and closes the underlying stream.
+         * @throws IOException if the end of the dump could not be written
+         */
+        @Override
+        public void close() throws IOException {
+            if (format == Format.NDJSON) {
+                text.close();
+            } else {
+                binary.writeInt(-1);
+                binary.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the meetings of a dump lazily from the given stream.
+     *
+     * The returned iterator throws an {@link IllegalArgumentException} if the dump is malformed and an
+     * {@link UncheckedIOException} if the stream could not be read.
+     * @param is the stream of the dump, compressed or not
+     * @param format the format of the dump
+     * @return the meetings of the dump
+     * @throws IOException if the stream could not be read
+     */
+    public static Iterator<MeetingRecord> read(InputStream is, Format format) throws IOException {
+        InputStream in = new BufferedInputStream(is, BUFFER_SIZE);
+        // Compressed dumps start with the gzip magic number
+        in.mark(2);
+        boolean compressed = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        if (compressed) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        return format == Format.NDJSON ? readNdjson(in) : readBinary(new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE)));
+    }
+
+    private static Iterator<MeetingRecord> readNdjson(InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return new Iterator<>() {
+            private MeetingRecord next = null;
+            private int line = 0;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null) {
+                        String json = reader.readLine();
+                        if (json == null) return false;
+                        line++;
+                        if (json.isBlank()) continue;
+                        next = parse(json);
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public MeetingRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                MeetingRecord meeting = next;
+                next = null;
+                return meeting;
+            }
+
+            private MeetingRecord parse(String json) {
+                MeetingRecord meeting;
+                try {
+                    meeting = GSON.fromJson(json, MeetingRecord.class);
+                } catch (JsonParseException e) {
+                    throw new IllegalArgumentException("Line " + line + " of the dump is not a valid meeting");
+                }
+                if (meeting == null || meeting.names == null) {
+                    throw new IllegalArgumentException("Line " + line + " of the dump has no names");
+                }
+                return meeting;
+            }
+        };
+    }
+
+    private static Iterator<MeetingRecord> readBinary(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Dump is not of the binary format");
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Dump is empty");
+        }
+        return new Iterator<>() {
+            private MeetingRecord next = null;
+            private boolean end = false;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) return true;
+                if (end) return false;
+                try {
+                    int count = in.readInt();
+                    if (count < 0) {
+                        end = true;
+                        return false;
+                    }
+                    String[] names = new String[count];
+                    for (int i = 0; i < count; i++) {
+                        names[i] = in.readUTF();
+                    }
+                    next = new MeetingRecord(names, in.readLong(), in.readInt(), in.readInt());
+                    return true;
+                } catch (EOFException e) {
+                    throw new IllegalArgumentException("Dump ended unexpectedly");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public MeetingRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                MeetingRecord meeting = next;
+                next = null;
+                return meeting;
+            }
+        };
+    }
+}
@@ -6,13 +6,19 @@ import app.graph.Graph;
 import app.http.logger.Logger;
 import app.http.logger.LoggerLevel;
 import app.data.AdjacencyList;
+import app.graph.Edge;
+import app.graph.Vertex;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
@@ -28,7 +34,8 @@ public class Encoder {
 
     /**
      * Returns the given object encoded in a byte array. Given the list of mime types, the first supported type is
-     * being used. The chosen mime type is returned as well.
+     * being used. The chosen mime type is returned as well. Graphs, maps, lists and JsonElements encoded as JSON are
+     * not encoded into a byte array but returned as a body that writes them directly to the response.
      *
      * @param object The object to encode.
      * @param mimeTypes Mime types ordered by priority.
@@ -38,6 +45,9 @@ public class Encoder {
         List<String> mimeTypesWithFallback = mimeTypes != null? new ArrayList<>(mimeTypes): new ArrayList<>();
         mimeTypesWithFallback.add("application/json");
 
+        // Bodies that are already encoded, e.g. cached compressed bodies, are sent as they are
+        if(object instanceof MimeObject) return (MimeObject) object;
+
         for(String mimeType: mimeTypesWithFallback) {
             if(mimeType.toLowerCase().startsWith("text")) {
                 if(object instanceof String)        return new MimeObject(mimeType, toText((String) object));
@@ -47,18 +57,42 @@ public class Encoder {
             } else if(mimeType.toLowerCase().startsWith("application/x-java-serialized-object")) {
                 if(object instanceof Map)           return new MimeObject(mimeType, toSerialize((Map) object));
                 if(object instanceof Graph)         return new MimeObject(mimeType, toSerialize((Graph) object));
+            } else if(mimeType.toLowerCase().startsWith(BinaryGraph.MIME_TYPE)) {
+                boolean singlePrecision = BinaryGraph.isSinglePrecision(mimeType);
+                if(object instanceof Graph)         return new MimeObject(mimeType, os -> BinaryGraph.writeGraph((Graph) object, os, singlePrecision));
+                if(object instanceof Map && BinaryGraph.isCentralities((Map<?, ?>) object)) {
+                    // isCentralities checked the types of the keys and values
+                    @SuppressWarnings("unchecked")
+                    Map<String, ? extends Map<String, ? extends Number>> centralities = (Map<String, ? extends Map<String, ? extends Number>>) object;
+                    return new MimeObject(mimeType, os -> BinaryGraph.writeCentralities(centralities, os, singlePrecision));
+                }
             } else if(mimeType.toLowerCase().startsWith("application/json")) {
                 if(object instanceof String)        return new MimeObject(mimeType, toJson((String) object));
-                if(object instanceof Graph)         return new MimeObject(mimeType, toJson((Graph) object));
-                if(object instanceof JsonElement)   return new MimeObject(mimeType, toJson((JsonElement) object));
-                if(object instanceof Map)           return new MimeObject(mimeType, toJson((Map) object));
-                if(object instanceof List)          return new MimeObject(mimeType, toJson((List) object));
+                if(object instanceof Graph)         return new MimeObject(mimeType, os -> toJson((Graph) object, os));
+                if(object instanceof JsonElement)   return new MimeObject(mimeType, os -> toJson((JsonElement) object, os));
+                if(object instanceof Map)           return new MimeObject(mimeType, os -> toJson((Map) object, os));
+                if(object instanceof List)          return new MimeObject(mimeType, os -> toJson((List) object, os));
             }
         }
         Logger.log("Error", "Could not find fitting encoding method for any type of " + mimeTypes, LoggerLevel.BASIC);
         throw new IllegalArgumentException("Could not find fitting encoding method for any type of " + mimeTypes);
     }
 
+    /**
+     * Returns the given encoded object with a streamed body written into a byte array, so it can be sent to more than
+     * one response. Objects already encoded into a byte array are returned as they are.
+     *
+     * @param object The encoded object.
+     * @return The encoded object with its content in a byte array.
+     * @throws IOException If the body could not be written.
+     */
+    public static MimeObject buffer(MimeObject object) throws IOException {
+        if(object.body == null) return object;
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        object.body.writeTo(os);
+        return new MimeObject(object.type, os.toByteArray());
+    }
+
     /**
      * Returns the given string encoded encoded with UTF-8 in a byte array.
      *
@@ -146,46 +180,77 @@ public class Encoder {
 
 
     /**
-     * Returns the given list encoded as a JSON UTF-8 string in a byte array.
+     * Writes the given list as a JSON UTF-8 string to the stream.
      *
      * @param l List to encode.
-     * @return Encoded List
+     * @param os Stream the list is written to, it is flushed but not closed.
+     * @throws IOException if the list could not be written.
      */
-    private static byte[] toJson(List<?> l) {
-        return stringToBytes(GSON.toJson(l));
+    private static void toJson(List<?> l, OutputStream os) throws IOException {
+        JsonWriter writer = jsonWriter(os);
+        GSON.toJson(l, l.getClass(), writer);
+        writer.flush();
     }
 
     /**
-     * Returns the given graph encoded as a JSON UTF-8 string in a byte array.
-     * (Map[String: vertex id 1 -> Map[String: vertex id 2 -> Double: edge weight]: neighbors]) for cross platform support.
+     * Writes the given graph as a JSON UTF-8 string to the stream, vertex by vertex without building the JSON in
+     * memory. (Map[String: vertex id 1 -> Map[String: vertex id 2 -> Double: edge weight]: neighbors]) for cross
+     * platform support.
      *
      * @param g Graph to encode.
-     * @return Encoded graph.
+     * @param os Stream the graph is written to, it is flushed but not closed.
+     * @throws IOException if the graph could not be written.
+     * @throws IllegalArgumentException if an edge weight is NaN or infinite.
      */
-    private static byte[] toJson(Graph g) {
-        // Create a parsable graph data structure for GSON
-        AdjacencyList data = new AdjacencyList(g);
-        return stringToBytes(GSON.toJsonTree(data).getAsJsonObject().getAsJsonObject("data").toString());
+    public static void toJson(Graph g, OutputStream os) throws IOException {
+        JsonWriter writer = jsonWriter(os);
+        writer.beginObject();
+        for (Vertex v : g.getVertices()) {
+            writer.name(v.getIdentifier());
+            writer.beginObject();
+            for (Edge e : v.getEdges()) {
+                writer.name(e.oppositeVertex(v).getIdentifier()).value(e.getWeight());
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.flush();
     }
 
     /**
-     * Returns the given JsonElement encoded as JSON UTF-8 string in a byte array.
+     * Writes the given JsonElement as a JSON UTF-8 string to the stream.
      *
      * @param j JsonElement to encode.
-     * @return Encoded JsonElement.
+     * @param os Stream the element is written to, it is flushed but not closed.
+     * @throws IOException if the element could not be written.
      */
-    private static byte[] toJson(JsonElement j) {
-        return stringToBytes(j.toString());
+    private static void toJson(JsonElement j, OutputStream os) throws IOException {
+        JsonWriter writer = jsonWriter(os);
+        GSON.toJson(j, writer);
+        writer.flush();
     }
 
     /**
-     * Returns the given map encoded as JSON UTF-8 string in a byte array.
+     * Writes the given map, e.g. the centralities of an analysis, as a JSON UTF-8 string to the stream.
      *
      * @param m Map to encode.
-     * @return Encoded map.
+     * @param os Stream the map is written to, it is flushed but not closed.
+     * @throws IOException if the map could not be written.
+     */
+    private static void toJson(Map m, OutputStream os) throws IOException {
+        JsonWriter writer = jsonWriter(os);
+        GSON.toJson(m, m.getClass(), writer);
+        writer.flush();
+    }
+
+    /**
+     * Returns a JsonWriter that writes UTF-8 to the given stream. The writer is buffered and has to be flushed.
+     *
+     * @param os Stream to write to.
+     * @return The writer.
      */
-    private static byte[] toJson(Map m) {
-        return stringToBytes(GSON.toJson(m));
+    private static JsonWriter jsonWriter(OutputStream os) {
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16));
     }
 
 
@@ -0,0 +1,88 @@
+package app.http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Entity tags of responses that only depend on the data version of the store and the parameters of the request.
+ *
+ * A client that sends the tag of its last response in the {@code If-None-Match} header is answered with
+ * {@code 304 Not Modified} as long as no interaction was written since, without generating the response again.
+ */
+public class EntityTag {
+    // tags start with the time the server was started, the data versions of an earlier server count from 0 again
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Returns the tag of a response.
+     *
+     * @param version the data version of the store, see {@link app.db.InteractionStore#getVersion()}. Versions are
+     *                only compared within one run of the server, tags of an earlier run never match.
+     * @param parameters the parameters the response depends on, byte arrays are hashed by their content
+     * @return the quoted entity tag
+     */
+    public static String of(long version, Object... parameters) {
+        MessageDigest digest = sha256();
+        for (Object parameter : parameters) {
+            digest.update(parameter instanceof byte[] ? (byte[]) parameter
+                    : String.valueOf(parameter).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        StringBuilder tag = new StringBuilder("\"").append(EPOCH).append('-').append(Long.toHexString(version)).append('-');
+        byte[] hash = digest.digest();
+        // 64 bits of the hash are enough to tell the parameters of one version apart
+        for (int i = 0; i < 8; i++) {
+            tag.append(String.format("%02x", hash[i]));
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Returns a stream that hashes the bytes read from the given one, so a request body can be part of a tag while it
+     * is decoded instead of being buffered first. The hash of the read bytes is
+     * {@code stream.getMessageDigest().digest()}.
+     *
+     * @param in the stream to hash, e.g. the body of a request
+     * @return the hashing stream
+     */
+    public static DigestInputStream digesting(InputStream in) {
+        return new DigestInputStream(in, sha256());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks whether the {@code If-None-Match} header of the request contains the given tag.
+     *
+     * @param exchange the request
+     * @param tag the tag of the current response
+     * @return whether the client already has the current response
+     */
+    public static boolean matches(HttpExchange exchange, String tag) {
+        List<String> headers = exchange.getRequestHeaders().get("If-None-Match");
+        if (headers == null) return false;
+
+        for (String header : headers) {
+            for (String candidate : header.split(",")) {
+                candidate = candidate.trim();
+                // If-None-Match uses the weak comparison, W/ prefixes are ignored
+                if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+                if (candidate.equals("*") || candidate.equals(tag)) return true;
+            }
+        }
+        return false;
+    }
+}
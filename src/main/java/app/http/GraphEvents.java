@@ -0,0 +1,422 @@
+package app.http;
+
+import app.db.GraphOptions;
+import app.db.InteractionStore;
+import app.graph.Edge;
+import app.graph.Graph;
+import app.graph.Vertex;
+import app.http.logger.Logger;
+import app.http.logger.LoggerLevel;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the changes of the graph of /api/graph/events to its subscribers as server-sent events.
+ *
+ * Every interval the data version of the store is checked. If it changed, the graph of every option with subscribers
+ * is generated again and compared to the previous one, so all writes of an interval are sent as one event with the
+ * changed edges. Events that are larger than the graph itself are replaced by the whole graph.
+ *
+ * The last events of every option are kept, so a client that reconnects with the id of its last event in the
+ * {@code Last-Event-ID} header only receives the events it missed. Clients without a known id receive the whole graph
+ * first.
+ *
+ * Every subscriber has its own queue of events, which is written to the client by a pool of writer threads. The
+ * thread that checks the store only adds the events to the queues, so a client that stops reading blocks at most one
+ * writer thread and never delays the events of the others. A subscriber with more than {@value #MAX_QUEUED} unsent
+ * events is disconnected, it can reconnect and resume with the id of its last event.
+ */
+public class GraphEvents implements Closeable {
+    // comment lines sent after this many milliseconds without an event, so closed connections are noticed
+    private static final long HEARTBEAT = 15000;
+    // unsent events of a subscriber until it is disconnected
+    static final int MAX_QUEUED = 64;
+
+    private final InteractionStore store;
+    private final int history;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writers;
+    private final Map<GraphOptions, Feed> feeds = new EnumMap<>(GraphOptions.class);
+    // event ids start with the time the events were created, so ids of an earlier server are not resumed
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Creates the events and starts checking the store for changes.
+     *
+     * @param store the store the graphs are generated from
+     * @param interval the milliseconds between two checks, writes within an interval are sent as one event
+     * @param history the number of events per option kept for clients that reconnect
+     */
+    public GraphEvents(InteractionStore store, long interval, int history) {
+        this.store = store;
+        this.history = history;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "graph-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::update, interval, interval, TimeUnit.MILLISECONDS);
+        AtomicInteger count = new AtomicInteger();
+        this.writers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "graph-events-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribes a client to the changes of a graph. The response headers have to be sent already. The first events
+     * are queued like all others, this returns before they are written.
+     *
+     * @param option the option the graph is generated with
+     * @param lastEventId the id of the last event the client received, null if it did not receive any
+     * @param events the stream the events are written to
+     * @param connection closes the connection of the client once its events can not be written anymore
+     */
+    public void subscribe(GraphOptions option, String lastEventId, OutputStream events, Closeable connection) {
+        Feed feed;
+        synchronized (this) {
+            feed = feeds.computeIfAbsent(option, Feed::new);
+        }
+        feed.subscribe(new Subscriber(events, connection), lastEventId);
+    }
+
+    /**
+     * Sends the changes of all graphs with subscribers.
+     */
+    private void update() {
+        List<Feed> feeds;
+        synchronized (this) {
+            feeds = new ArrayList<>(this.feeds.values());
+        }
+        for (Feed feed : feeds) {
+            try {
+                feed.update();
+            } catch (RuntimeException e) {
+                Logger.log("ERROR", "Could not send graph events: " + e.getMessage(), LoggerLevel.BASIC);
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of the events.
+     *
+     * @return the number of connected subscribers and the number of sent events
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        long subscribers = 0;
+        long events = 0;
+        for (Feed feed : feeds.values()) {
+            synchronized (feed) {
+                subscribers += feed.subscribers.size();
+                events += feed.sequence;
+            }
+        }
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("subscribers", subscribers);
+        statistics.put("events", events);
+        return statistics;
+    }
+
+    /**
+     * Stops checking for changes and closes the connections of all subscribers.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        List<Feed> feeds;
+        synchronized (this) {
+            feeds = new ArrayList<>(this.feeds.values());
+            this.feeds.clear();
+        }
+        for (Feed feed : feeds) {
+            synchronized (feed) {
+                feed.subscribers.forEach(Subscriber::close);
+                feed.subscribers.clear();
+            }
+        }
+        // The connections are closed by the writers, which stop once they did
+        writers.shutdown();
+    }
+
+    /**
+     * Returns the pairs of vertices whose edge weight differs between two graphs, mapped to the new weight or null
+     * if the edge was removed. The vertices of a pair are ordered by their identifier.
+     *
+     * @param before the previous graph
+     * @param after the current graph
+     * @return the changed edges
+     */
+    static Map<List<String>, Double> diff(Graph before, Graph after) {
+        Map<List<String>, Double> changes = new LinkedHashMap<>();
+        for (Edge e : after.getEdges()) {
+            Edge previous = getEdge(before, e);
+            if (previous == null || Double.compare(previous.getWeight(), e.getWeight()) != 0) {
+                changes.put(pair(e), e.getWeight());
+            }
+        }
+        for (Edge e : before.getEdges()) {
+            if (getEdge(after, e) == null) {
+                changes.put(pair(e), null);
+            }
+        }
+        return changes;
+    }
+
+    private static Edge getEdge(Graph graph, Edge e) {
+        Vertex[] vertices = e.getVertices();
+        Vertex v1 = graph.getVertex(vertices[0].getIdentifier());
+        Vertex v2 = graph.getVertex(vertices[1].getIdentifier());
+        return v1 != null && v2 != null ? graph.getEdge(v1, v2) : null;
+    }
+
+    private static List<String> pair(Edge e) {
+        String id1 = e.getVertices()[0].getIdentifier();
+        String id2 = e.getVertices()[1].getIdentifier();
+        return id1.compareTo(id2) <= 0 ? List.of(id1, id2) : List.of(id2, id1);
+    }
+
+    /**
+     * The graph of one option, its last events and its subscribers.
+     */
+    private final class Feed {
+        private final GraphOptions option;
+        private final ArrayDeque<Event> events = new ArrayDeque<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private Graph graph = null;
+        private long version = -1;
+        private long sequence = 0;
+        private long lastWrite = System.currentTimeMillis();
+
+        private Feed(GraphOptions option) {
+            this.option = option;
+        }
+
+        /**
+         * Compares the graph to the one of the current data version and sends the changes to the subscribers.
+         * Feeds without subscribers are only compared once a client subscribes, then their event contains all
+         * changes since the last one.
+         */
+        private synchronized void update() {
+            if (subscribers.isEmpty()) return;
+            if (refresh()) {
+                lastWrite = System.currentTimeMillis();
+            } else if (System.currentTimeMillis() - lastWrite >= HEARTBEAT) {
+                send(":\n\n".getBytes(StandardCharsets.UTF_8));
+                lastWrite = System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * Generates the graph again if the data version changed and sends the changes as an event.
+         *
+         * @return whether an event was sent
+         */
+        private boolean refresh() {
+            long version = store.getVersion();
+            if (version == this.version) return false;
+            // The version is read before the graph, so changes during the generation are sent with the next event
+            Graph graph = store.generateGraph(option);
+            Graph before = this.graph;
+            this.graph = graph;
+            this.version = version;
+            if (before == null) return false;
+
+            Map<List<String>, Double> changes = diff(before, graph);
+            if (changes.isEmpty()) return false;
+            sequence++;
+            Event event = new Event(sequence, changes.size() > graph.getEdges().size()
+                    ? graphFrame(sequence, graph) : deltaFrame(sequence, changes));
+            events.addLast(event);
+            while (events.size() > history) {
+                events.removeFirst();
+            }
+            send(event.frame);
+            return true;
+        }
+
+        /**
+         * Queues the first events of a subscriber and adds it to the subscribers. The events are only queued, so they
+         * are ordered before the following ones without writing to the client while the feed is locked.
+         */
+        private synchronized void subscribe(Subscriber subscriber, String lastEventId) {
+            refresh();
+            long last = parseId(lastEventId);
+            long first = events.isEmpty() ? sequence : events.peekFirst().id - 1;
+            boolean queued = true;
+            if (last >= first && last <= sequence) {
+                // Resume with the events the client missed
+                for (Event event : events) {
+                    if (event.id > last) queued &= subscriber.offer(event.frame);
+                }
+            } else {
+                queued = subscriber.offer(graphFrame(sequence, graph));
+            }
+            if (queued) subscribers.add(subscriber);
+        }
+
+        /**
+         * Queues a frame for all subscribers, subscribers that are closed or fell behind are removed.
+         */
+        private void send(byte[] frame) {
+            subscribers.removeIf(subscriber -> !subscriber.offer(frame));
+        }
+    }
+
+    /**
+     * Returns the sequence number of an event id of these events, -1 if the id is unknown.
+     */
+    private long parseId(String id) {
+        if (id == null || !id.startsWith(epoch + "-")) return -1;
+        try {
+            return Long.parseLong(id.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns an event with the whole graph, encoded like the responses of /api/graph.
+     */
+    private byte[] graphFrame(long id, Graph graph) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try {
+            Encoder.toJson(graph, data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return frame(id, "graph", data.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns an event with the changed edges, removed edges have the weight null.
+     */
+    private byte[] deltaFrame(long id, Map<List<String>, Double> changes) {
+        StringWriter data = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(data)) {
+            writer.setLenient(true);
+            writer.beginObject().name("edges").beginArray();
+            for (Map.Entry<List<String>, Double> change : changes.entrySet()) {
+                writer.beginObject();
+                writer.name("source").value(change.getKey().get(0));
+                writer.name("target").value(change.getKey().get(1));
+                writer.name("weight").value(change.getValue());
+                writer.endObject();
+            }
+            writer.endArray().endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return frame(id, "delta", data.toString());
+    }
+
+    private byte[] frame(long id, String event, String data) {
+        return ("id: " + epoch + "-" + id + "\nevent: " + event + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Event {
+        private final long id;
+        private final byte[] frame;
+
+        private Event(long id, byte[] frame) {
+            this.id = id;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * A client with its queue of unsent frames. At most one writer thread writes the frames of a subscriber.
+     */
+    private final class Subscriber {
+        private final OutputStream events;
+        private final Closeable connection;
+        private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+        private boolean writing = false;
+        private boolean closed = false;
+
+        private Subscriber(OutputStream events, Closeable connection) {
+            this.events = events;
+            this.connection = connection;
+        }
+
+        /**
+         * Queues a frame and starts a writer if none is writing the frames of this subscriber.
+         *
+         * @return false if the subscriber is closed, either before or because it fell too far behind
+         */
+        private synchronized boolean offer(byte[] frame) {
+            if (closed) return false;
+            if (queue.size() >= MAX_QUEUED) {
+                close();
+                return false;
+            }
+            queue.addLast(frame);
+            if (!writing) {
+                writing = true;
+                writers.execute(this::drain);
+            }
+            return true;
+        }
+
+        /**
+         * Writes the queued frames until the queue is empty, runs on a writer thread.
+         */
+        private void drain() {
+            while (true) {
+                byte[] frame;
+                synchronized (this) {
+                    frame = queue.pollFirst();
+                    if (frame == null || closed) {
+                        writing = false;
+                        return;
+                    }
+                }
+                try {
+                    events.write(frame);
+                    events.flush();
+                } catch (IOException e) {
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Drops the queued frames and closes the connection on a writer thread, closing it may block like writing.
+         */
+        private void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                queue.clear();
+            }
+            Runnable close = () -> {
+                try {
+                    connection.close();
+                } catch (IOException ignored) { }
+            };
+            try {
+                writers.execute(close);
+            } catch (RejectedExecutionException e) {
+                close.run();
+            }
+        }
+    }
+}
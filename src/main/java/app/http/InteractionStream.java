@@ -0,0 +1,158 @@
+package app.http;
+
+import app.data.InteractionRequest;
+import app.db.InteractionStore;
+import com.google.gson.JsonObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the interactions of /api/interaction/stream into batches and writes them to the store.
+ *
+ * A batch is written as soon as it is full and at least every ack interval, also if the client pauses. After every
+ * written batch a line with the stored and rejected counts is sent back, so the client knows which of its
+ * interactions are stored. Interactions the store does not add, i.e. with less than two distinct names, count as
+ * rejected. Adding blocks while a batch is written, which slows down clients that send faster than
+ * the store can write.
+ */
+public class InteractionStream implements Closeable {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "interaction-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final InteractionStore store;
+    private final OutputStream acks;
+    private final int batchSize;
+    private final ScheduledFuture<?> timer;
+    private List<InteractionRequest> pending = new ArrayList<>();
+    private long stored = 0;
+    private long rejected = 0;
+    private String error = null;
+    private IOException failure = null;
+    private boolean changed = false;
+
+    /**
+     * Creates the stream, the response headers have to be sent already.
+     *
+     * @param store the store the interactions are written to
+     * @param acks the stream the acknowledgements are written to, it is closed with this stream
+     * @param batchSize the number of interactions written at once
+     * @param ackInterval the milliseconds after which a started batch is written and acknowledged at the latest
+     */
+    public InteractionStream(InteractionStore store, OutputStream acks, int batchSize, long ackInterval) {
+        this.store = store;
+        this.acks = acks;
+        this.batchSize = batchSize;
+        this.timer = SCHEDULER.scheduleWithFixedDelay(this::flushQuietly, ackInterval, ackInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds an interaction, writing the batch if it is full.
+     *
+     * @param data the interaction
+     * @throws IOException if a batch could not be written or acknowledged, the stream should be given up then
+     */
+    public synchronized void add(InteractionRequest data) throws IOException {
+        if (failure != null) throw failure;
+        pending.add(data);
+        if (pending.size() >= batchSize) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Counts a line that could not be decoded. The message of the last rejection is acknowledged as well.
+     *
+     * @param line the line of the interaction in the request
+     * @param message why the interaction was rejected
+     */
+    public synchronized void reject(long line, String message) {
+        rejected++;
+        error = "Line " + line + ": " + message;
+        changed = true;
+    }
+
+    private void writeBatch() throws IOException {
+        if (!pending.isEmpty()) {
+            List<InteractionRequest> batch = pending;
+            pending = new ArrayList<>();
+            int added = store.addInteractionBatch(batch);
+            stored += added;
+            if (added < batch.size()) {
+                rejected += batch.size() - added;
+                error = (batch.size() - added) + " interactions with less than two distinct names were not stored";
+            }
+            changed = true;
+        }
+    }
+
+    private synchronized void flush() throws IOException {
+        this.writeBatch();
+        if (changed) {
+            this.acknowledge(false);
+            changed = false;
+        }
+    }
+
+    private synchronized void flushQuietly() {
+        if (failure != null) return;
+        try {
+            this.flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void acknowledge(boolean done) throws IOException {
+        JsonObject ack = new JsonObject();
+        ack.addProperty("stored", stored);
+        ack.addProperty("rejected", rejected);
+        if (error != null) {
+            ack.addProperty("error", error);
+        }
+        if (done) {
+            ack.addProperty("done", true);
+        }
+        acks.write((ack + "\n").getBytes(StandardCharsets.UTF_8));
+        acks.flush();
+    }
+
+    /**
+     * Writes the last batch, sends the final acknowledgement with {@code "done": true} and closes the
+     * acknowledgements. If writing failed before, the final acknowledgement contains the error and the
+     * interactions that were not acknowledged as stored are dropped.
+     *
+     * @throws IOException if the last batch could not be written or acknowledged
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        timer.cancel(false);
+        try {
+            if (failure == null) {
+                try {
+                    this.writeBatch();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                error = "Could not store the interactions: " + failure.getMessage();
+            }
+            this.acknowledge(true);
+        } finally {
+            acks.close();
+        }
+        if (failure != null) throw failure;
+    }
+}
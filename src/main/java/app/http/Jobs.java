@@ -0,0 +1,214 @@
+package app.http;
+
+import app.analysis.Centralization;
+import app.data.AnalysisRequest;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps the asynchronous analysis jobs of /api/jobs.
+ *
+ * Jobs run on the {@link AnalysisPool} with background priority. Finished jobs are kept for {@code job_ttl} seconds
+ * after they finished and are removed on the next access to the jobs after that.
+ */
+public class Jobs {
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The states of a job.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED
+    }
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AnalysisPool pool;
+    private final long ttl;
+
+    /**
+     * Creates the jobs.
+     *
+     * @param pool the pool that runs the analyses
+     * @param ttl the milliseconds a finished job is kept
+     */
+    public Jobs(AnalysisPool pool, long ttl) {
+        this.pool = pool;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Calculates the requested centralities, and their centralizations if requested, of an analysis request.
+     *
+     * @param data the analysis request
+     * @param progress receives the number of finished calculations after each calculation
+     * @return the centralities by their name and the centralizations under {@code centralization}
+     * @throws IllegalArgumentException if a centrality is not supported
+     */
+    public static Map<String, Map<String, Double>> analyse(AnalysisRequest data, IntConsumer progress) {
+        Map<String, Map<String, Double>> resultObject = new HashMap<>();
+        Map<String, Double> centralizations = new HashMap<>();
+        if(data.centralizationRequested()) {
+            resultObject.put("centralization", centralizations);
+        }
+
+        int finished = 0;
+        for(int i = 0; i < data.getCentralitySize(); i++) {
+            resultObject.put(data.getCentrality(i), data.getCentralityFunction(i).apply(data.getGraph()));
+            progress.accept(++finished);
+            if(data.centralizationRequested()) {
+                centralizations.put(data.getCentrality(i), Centralization.getCentralization(data.getGraph(), data.getCentralityFunction(i)));
+                progress.accept(++finished);
+            }
+        }
+        return resultObject;
+    }
+
+    /**
+     * Submits a job that analyses the given request.
+     *
+     * @param data the analysis request
+     * @return the submitted job
+     * @throws java.util.concurrent.RejectedExecutionException if the analysis pool is full
+     */
+    public Job submit(AnalysisRequest data) {
+        this.removeExpired();
+        Job job = new Job(UUID.randomUUID().toString(), data.getCentralitySize() * (data.centralizationRequested() ? 2 : 1));
+        jobs.put(job.id, job);
+        try {
+            job.future = pool.submit(AnalysisPool.Priority.BACKGROUND, AnalysisPool.sizeOf(data.getGraph()), () -> job.run(data));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Returns the job with the given id.
+     *
+     * @param id the id of the job
+     * @return the job or null if there is no such job or it expired
+     */
+    public Job get(String id) {
+        this.removeExpired();
+        return jobs.get(id);
+    }
+
+    /**
+     * Cancels the job with the given id. Running jobs stop after their current calculation.
+     *
+     * @param id the id of the job
+     * @return the cancelled job or null if there is no such job or it expired
+     */
+    public Job cancel(String id) {
+        Job job = this.get(id);
+        if (job != null) {
+            job.cancel();
+        }
+        return job;
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isExpired(now, ttl));
+    }
+
+    /**
+     * A single analysis job.
+     */
+    public static class Job {
+        private final String id;
+        private final int steps;
+        private volatile Status status = Status.QUEUED;
+        private volatile int finished = 0;
+        private volatile Map<String, Map<String, Double>> result = null;
+        private volatile String error = null;
+        private volatile long finishedAt = 0;
+        private volatile Future<Void> future = null;
+
+        private Job(String id, int steps) {
+            this.id = id;
+            this.steps = steps;
+        }
+
+        public String getId() {
+            return this.id;
+        }
+
+        public Status getStatus() {
+            return this.status;
+        }
+
+        private void run(AnalysisRequest data) {
+            synchronized (this) {
+                if (status != Status.QUEUED) return;
+                status = Status.RUNNING;
+            }
+            try {
+                Map<String, Map<String, Double>> result = analyse(data, finished -> {
+                    this.finished = finished;
+                    if (Thread.interrupted()) throw new CancellationException();
+                });
+                this.finish(Status.DONE, result, null);
+            } catch (CancellationException e) {
+                this.finish(Status.CANCELLED, null, null);
+            } catch (Exception e) {
+                this.finish(Status.FAILED, null, e.getMessage());
+            }
+        }
+
+        private synchronized void finish(Status status, Map<String, Map<String, Double>> result, String error) {
+            if (this.status == Status.CANCELLED) return;
+            this.result = result;
+            this.error = error;
+            this.finishedAt = System.currentTimeMillis();
+            this.status = status;
+        }
+
+        private void cancel() {
+            synchronized (this) {
+                if (status != Status.QUEUED && status != Status.RUNNING) return;
+                this.result = null;
+                this.finishedAt = System.currentTimeMillis();
+                this.status = Status.CANCELLED;
+            }
+            Future<Void> future = this.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        private boolean isExpired(long now, long ttl) {
+            return finishedAt != 0 && now - finishedAt > ttl;
+        }
+
+        /**
+         * Returns the state of the job as JSON, including the result if the job is done.
+         * @return the id, status and progress of the job and its result or error
+         */
+        public JsonObject asJsonObject() {
+            JsonObject json = new JsonObject();
+            json.addProperty("id", id);
+            json.addProperty("status", status.name());
+            json.addProperty("progress", steps == 0 ? 1 : (double) finished / steps);
+            if (status == Status.DONE) {
+                json.add("result", GSON.toJsonTree(result));
+            } else if (status == Status.FAILED) {
+                json.addProperty("error", error);
+            }
+            return json;
+        }
+    }
+}
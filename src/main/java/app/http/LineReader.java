@@ -0,0 +1,85 @@
+package app.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a newline delimited body, e.g. of /api/interaction/stream. Unlike a {@link java.io.BufferedReader}
+ * a line is never buffered beyond the maximal length, so a client cannot exhaust the memory with a body without line
+ * breaks.
+ */
+class LineReader {
+    private final InputStream in;
+    private final int maxLength;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position = 0;
+    private int limit = 0;
+    private byte[] line = new byte[256];
+    private long lineNumber = 0;
+
+    /**
+     * @param in the body to read
+     * @param maxLength the maximal number of bytes of a line without its line break
+     */
+    LineReader(InputStream in, int maxLength) {
+        this.in = in;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Reads the next line, {@code \n} and {@code \r\n} end a line.
+     *
+     * @return the line without its line break or null at the end of the body
+     * @throws IllegalArgumentException if the line is longer than the maximal length, the rest of it is not read
+     * @throws IOException if the body could not be read
+     */
+    String readLine() throws IOException {
+        lineNumber++;
+        int length = 0;
+        while (true) {
+            if (position == limit) {
+                int read = in.read(buffer);
+                if (read < 0) {
+                    return length > 0 ? decode(length) : null;
+                }
+                position = 0;
+                limit = read;
+            }
+            int end = position;
+            while (end < limit && buffer[end] != '\n') end++;
+            int size = end - position;
+            if (length + size > maxLength + 1) {
+                // One more byte is allowed for the \r of a \r\n line break
+                throw new IllegalArgumentException("longer than " + maxLength + " bytes");
+            }
+            if (length + size > line.length) {
+                line = Arrays.copyOf(line, Math.min(Math.max(line.length * 2, length + size), maxLength + 1));
+            }
+            System.arraycopy(buffer, position, line, length, size);
+            length += size;
+            if (end < limit) {
+                position = end + 1;
+                return decode(length);
+            }
+            position = limit;
+        }
+    }
+
+    private String decode(int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        } else if (length > maxLength) {
+            throw new IllegalArgumentException("longer than " + maxLength + " bytes");
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of the line that was read last, starting with 1
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+}
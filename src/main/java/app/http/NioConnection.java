@@ -0,0 +1,475 @@
+package app.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * A connection of the {@link NioHttpServer}.
+ *
+ * The selector thread only moves bytes between the socket and the buffers of the connection. Requests are parsed by
+ * the selector thread, their bodies are decoded by the thread of the handler while it reads them. If the handler does
+ * not read the body, the connection stops reading from the socket once its buffer is full.
+ *
+ * Responses are written directly from the arrays of the handler to the socket. Only the bytes the socket does not
+ * take are copied and sent by the selector thread once the client reads again, the handler waits if too many of them
+ * are queued.
+ *
+ * A handler waits at most the idle timeout for a client that stops sending its body or reading its response, then
+ * the connection is closed and the handler fails with an {@link IOException}.
+ */
+final class NioConnection {
+    // bytes of responses that may be queued before the handler waits for the client
+    private static final int MAX_QUEUED = 256 * 1024;
+
+    private final NioHttpServer server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    // received bytes that are not parsed yet, always ready to be read into
+    private final ByteBuffer in;
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private long queued = 0;
+    private NioExchange exchange = null;
+    private RequestBody body = null;
+    private boolean responseDone = false;
+    // set once the connection is closed after the queued bytes are sent
+    private boolean closing = false;
+    private boolean closed = false;
+    private long lastActivity = System.currentTimeMillis();
+
+    NioConnection(NioHttpServer server, SocketChannel channel, SelectionKey key, int bufferSize) {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+        this.in = ByteBuffer.allocate(bufferSize);
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Reads the available bytes from the socket, called by the selector thread.
+     */
+    synchronized void read() {
+        if (closed) return;
+        int n;
+        try {
+            n = channel.read(in);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (n < 0) {
+            // A running handler fails on its next read or write
+            close();
+            return;
+        }
+        lastActivity = System.currentTimeMillis();
+        if (exchange == null) {
+            parse();
+        } else {
+            notifyAll();
+        }
+        if (!closed && !in.hasRemaining()) {
+            key.interestOpsAnd(~SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Parses the head of the next request if it was received completely and dispatches its exchange.
+     */
+    private void parse() {
+        if (closing) return;
+        in.flip();
+        // Empty lines before a request are ignored
+        while (in.remaining() >= 2 && in.get(in.position()) == '\r' && in.get(in.position() + 1) == '\n') {
+            in.position(in.position() + 2);
+        }
+        int end = indexOf(in, "\r\n\r\n");
+        if (end < 0) {
+            in.compact();
+            if (!in.hasRemaining()) {
+                reject(431);
+            }
+            return;
+        }
+        byte[] head = new byte[end - in.position()];
+        in.get(head);
+        in.position(end + 4);
+        in.compact();
+
+        String[] lines = new String(head, StandardCharsets.ISO_8859_1).split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            reject(400);
+            return;
+        }
+        Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            // Folded header lines are obsolete and rejected like malformed ones
+            if (colon <= 0 || Character.isWhitespace(lines[i].charAt(0))) {
+                reject(400);
+                return;
+            }
+            headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+
+        URI uri;
+        try {
+            uri = new URI(requestLine[1]);
+        } catch (Exception e) {
+            reject(400);
+            return;
+        }
+        long length;
+        boolean chunked = headers.containsKey("Transfer-Encoding");
+        if (chunked) {
+            String encoding = headers.getFirst("Transfer-Encoding").toLowerCase();
+            // A body with both framings could be read differently by a proxy, so the request is rejected
+            if (!encoding.endsWith("chunked") || headers.containsKey("Content-Length")) {
+                reject(400);
+                return;
+            }
+            length = -1;
+        } else {
+            List<String> values = headers.get("Content-Length");
+            try {
+                length = values == null ? 0 : Long.parseLong(values.get(0));
+            } catch (NumberFormatException e) {
+                length = -1;
+            }
+            if (length < 0 || values != null && values.stream().distinct().count() > 1) {
+                reject(400);
+                return;
+            }
+        }
+        if (server.getMaxBodySize() > 0 && length > server.getMaxBodySize()) {
+            reject(413);
+            return;
+        }
+        NioHttpContext context = server.findContext(uri.getPath() == null ? "/" : uri.getPath());
+        if (context == null) {
+            reject(404);
+            return;
+        }
+
+        String protocol = requestLine[2];
+        String connection = String.valueOf(headers.getFirst("Connection")).toLowerCase();
+        boolean keepAlive = protocol.equals("HTTP/1.0") ? connection.contains("keep-alive") : !connection.contains("close");
+        if ("100-continue".equalsIgnoreCase(headers.getFirst("Expect")) && (chunked || length > 0)) {
+            send(new ByteBuffer[]{ascii("HTTP/1.1 100 Continue\r\n\r\n")});
+        }
+        body = new RequestBody(chunked, length);
+        exchange = new NioExchange(this, context, requestLine[0], uri, protocol, headers, body, keepAlive);
+        server.dispatch(exchange);
+    }
+
+    /**
+     * Answers a request that can not be handled without a body and closes the connection once it is sent.
+     */
+    private void reject(int rCode) {
+        server.rejected();
+        closing = true;
+        key.interestOps(0);
+        send(new ByteBuffer[]{ascii("HTTP/1.1 " + rCode + " " + NioExchange.reason(rCode)
+                + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")});
+        if (out.isEmpty()) close();
+    }
+
+    /**
+     * Writes bytes of a response, called by the thread of the handler. The buffers are written directly as long as
+     * nothing is queued, the rest is copied, so the buffers can be reused once this returns.
+     *
+     * @param buffers the bytes to write
+     * @throws IOException if the connection is closed or the client did not read for the idle timeout
+     */
+    synchronized void write(ByteBuffer... buffers) throws IOException {
+        if (closed) throw new IOException("Connection closed");
+        send(buffers);
+        try {
+            while (queued > MAX_QUEUED && !closed) {
+                long since = lastActivity;
+                wait(server.getIdleTimeout());
+                if (queued > MAX_QUEUED && lastActivity == since) {
+                    close();
+                    throw new IOException("Client did not read the response for " + server.getIdleTimeout() + " ms");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (closed) throw new IOException("Connection closed");
+    }
+
+    private void send(ByteBuffer[] buffers) {
+        if (out.isEmpty()) {
+            try {
+                channel.write(buffers);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+        }
+        boolean added = false;
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                queued += buffer.remaining();
+                out.addLast(ByteBuffer.allocate(buffer.remaining()).put(buffer).flip());
+                added = true;
+            }
+        }
+        if (added) {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+            key.selector().wakeup();
+        }
+    }
+
+    /**
+     * Writes the queued bytes the socket takes, called by the selector thread.
+     */
+    synchronized void flush() {
+        if (closed) return;
+        try {
+            while (!out.isEmpty()) {
+                ByteBuffer buffer = out.peekFirst();
+                queued -= channel.write(buffer);
+                if (buffer.hasRemaining()) break;
+                out.removeFirst();
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        lastActivity = System.currentTimeMillis();
+        notifyAll();
+        if (out.isEmpty()) {
+            key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            if (closing) {
+                close();
+            } else if (responseDone) {
+                finish();
+            }
+        }
+    }
+
+    /**
+     * Marks the response of the current exchange as complete. The next request is parsed once it is sent.
+     */
+    synchronized void complete() {
+        if (closed || exchange == null || responseDone) return;
+        responseDone = true;
+        if (out.isEmpty()) finish();
+    }
+
+    private void finish() {
+        // The next request starts after the body, which can only be found if it was read completely
+        boolean reusable = exchange.isKeepAlive() && body.skipBuffered();
+        exchange = null;
+        body = null;
+        responseDone = false;
+        server.completed();
+        if (!reusable) {
+            close();
+            return;
+        }
+        lastActivity = System.currentTimeMillis();
+        key.interestOpsOr(SelectionKey.OP_READ);
+        key.selector().wakeup();
+        // A pipelined request may already be buffered
+        parse();
+    }
+
+    /**
+     * Checks whether the connection waits for a request for longer than the idle timeout.
+     */
+    synchronized boolean isIdle(long now) {
+        return exchange == null && now - lastActivity > server.getIdleTimeout();
+    }
+
+    synchronized boolean isActive() {
+        return exchange != null;
+    }
+
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) { }
+        out.clear();
+        queued = 0;
+        notifyAll();
+        server.closed(this);
+    }
+
+    private static ByteBuffer ascii(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Returns the index of the first occurrence of an ascii string between the position and the limit of a buffer.
+     */
+    private static int indexOf(ByteBuffer buffer, String s) {
+        for (int i = buffer.position(); i <= buffer.limit() - s.length(); i++) {
+            int j = 0;
+            while (j < s.length() && buffer.get(i + j) == s.charAt(j)) j++;
+            if (j == s.length()) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * The body of a request, decoded from the buffer of the connection while it is read.
+     */
+    final class RequestBody extends InputStream {
+        private static final int DATA = 0;
+        private static final int SIZE = 1;
+        private static final int CRLF = 2;
+        private static final int TRAILER = 3;
+        private static final int DONE = 4;
+
+        private final boolean chunked;
+        private int state;
+        // bytes left of the body or of the current chunk
+        private long remaining;
+        private long total = 0;
+
+        private RequestBody(boolean chunked, long length) {
+            this.chunked = chunked;
+            this.remaining = length;
+            this.state = chunked ? SIZE : length > 0 ? DATA : DONE;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            synchronized (NioConnection.this) {
+                try {
+                    while (true) {
+                        int n = decode(b, off, len);
+                        if (n != 0) return n;
+                        if (closed) throw new IOException("Connection closed");
+                        // A client that stops sending its body does not hold the thread of the handler longer than
+                        // the idle timeout
+                        long idle = System.currentTimeMillis() - lastActivity;
+                        if (idle >= server.getIdleTimeout()) {
+                            close();
+                            throw new SocketTimeoutException("Client did not send the request body for " + server.getIdleTimeout() + " ms");
+                        }
+                        NioConnection.this.wait(server.getIdleTimeout() - idle);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        /**
+         * Skips the rest of the body if it is already buffered.
+         *
+         * @return whether the body was read completely
+         */
+        private boolean skipBuffered() {
+            byte[] skipped = new byte[4096];
+            try {
+                while (decode(skipped, 0, skipped.length) > 0) ;
+            } catch (IOException e) {
+                return false;
+            }
+            return state == DONE;
+        }
+
+        /**
+         * Decodes bytes of the body from the buffer of the connection.
+         *
+         * @return the number of decoded bytes, 0 if more bytes have to be received or -1 at the end of the body
+         */
+        private int decode(byte[] b, int off, int len) throws IOException {
+            in.flip();
+            try {
+                while (true) {
+                    String line;
+                    switch (state) {
+                        case DATA:
+                            if (!in.hasRemaining()) return 0;
+                            int n = (int) Math.min(Math.min(len, remaining), in.remaining());
+                            in.get(b, off, n);
+                            remaining -= n;
+                            if (remaining == 0) state = chunked ? CRLF : DONE;
+                            return n;
+                        case SIZE:
+                            if ((line = line()) == null) return 0;
+                            int extension = line.indexOf(';');
+                            try {
+                                remaining = Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+                            } catch (NumberFormatException e) {
+                                remaining = -1;
+                            }
+                            if (remaining < 0) throw new IOException("Invalid chunk size: " + line);
+                            total += remaining;
+                            if (server.getMaxBodySize() > 0 && total > server.getMaxBodySize()) {
+                                throw new IOException("Request body exceeds " + server.getMaxBodySize() + " bytes");
+                            }
+                            state = remaining > 0 ? DATA : TRAILER;
+                            break;
+                        case CRLF:
+                            if ((line = line()) == null) return 0;
+                            if (!line.isEmpty()) throw new IOException("Invalid chunk end");
+                            state = SIZE;
+                            break;
+                        case TRAILER:
+                            if ((line = line()) == null) return 0;
+                            if (line.isEmpty()) state = DONE;
+                            break;
+                        default:
+                            return -1;
+                    }
+                }
+            } finally {
+                in.compact();
+                if (in.hasRemaining() && !closed && (key.interestOps() & SelectionKey.OP_READ) == 0) {
+                    // The client waited for the handler, so the idle time starts again
+                    lastActivity = System.currentTimeMillis();
+                    key.interestOpsOr(SelectionKey.OP_READ);
+                    key.selector().wakeup();
+                }
+            }
+        }
+
+        /**
+         * Returns the next line of a chunked body without its line break or null if it was not received completely.
+         */
+        private String line() throws IOException {
+            int end = indexOf(in, "\r\n");
+            if (end < 0) {
+                if (in.position() == 0 && in.limit() == in.capacity()) throw new IOException("Chunk line too long");
+                return null;
+            }
+            byte[] line = new byte[end - in.position()];
+            in.get(line);
+            in.position(end + 2);
+            return new String(line, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package app.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An exchange of the {@link NioHttpServer}, it behaves like the exchanges of the blocking server so the handlers
+ * work with both.
+ */
+class NioExchange extends HttpExchange {
+    // small writes are collected into chunks of this size, larger ones are written directly
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final NioConnection connection;
+    private final NioHttpContext context;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final InputStream requestBody;
+    private final Body responseBody = new Body();
+    private InputStream in;
+    private OutputStream out;
+    private boolean keepAlive;
+    private int rCode = -1;
+    private HttpPrincipal principal = null;
+
+    NioExchange(NioConnection connection, NioHttpContext context, String method, URI uri, String protocol,
+                Headers requestHeaders, InputStream requestBody, boolean keepAlive) {
+        this.connection = connection;
+        this.context = context;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = requestBody;
+        this.in = requestBody;
+        this.out = responseBody;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Runs the filters and the handler of the context, the connection is closed if they fail.
+     */
+    void run() {
+        try {
+            context.handle(this);
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Checks whether the connection may be used for the next request once the response is sent.
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    void setPrincipal(HttpPrincipal principal) {
+        this.principal = principal;
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (rCode == -1) {
+                // Without a response the client can only be told by closing the connection
+                connection.close();
+                return;
+            }
+            responseBody.close();
+        } catch (IOException ignored) { }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return in;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return out;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (this.rCode != -1) throw new IOException("Headers already sent");
+        this.rCode = rCode;
+        boolean noBody = rCode < 200 || rCode == 204 || rCode == 304;
+        if (noBody || responseLength == -1) {
+            responseBody.length = 0;
+            if (!noBody) responseHeaders.set("Content-Length", "0");
+        } else if (responseLength > 0) {
+            responseBody.length = responseLength;
+            responseHeaders.set("Content-Length", Long.toString(responseLength));
+        } else if (protocol.equals("HTTP/1.0")) {
+            // Clients of HTTP/1.0 do not know chunks, the end of the body is the end of the connection
+            keepAlive = false;
+        } else {
+            responseBody.chunked = true;
+            responseHeaders.set("Transfer-Encoding", "chunked");
+        }
+        // The body of a response to HEAD is not sent, but its headers are
+        responseBody.discard = method.equals("HEAD");
+        responseHeaders.set("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+        if (!keepAlive) {
+            responseHeaders.set("Connection", "close");
+        }
+
+        StringBuilder head = new StringBuilder("HTTP/1.1 ").append(rCode).append(' ').append(reason(rCode)).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+        connection.write(ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        try {
+            return (InetSocketAddress) connection.getChannel().getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getResponseCode() {
+        return rCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) connection.getChannel().getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) in = i;
+        if (o != null) out = o;
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * Returns the reason phrase of a status code.
+     */
+    static String reason(int rCode) {
+        switch (rCode) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 201: return "Created";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 206: return "Partial Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 406: return "Not Acceptable";
+            case 409: return "Conflict";
+            case 413: return "Payload Too Large";
+            case 415: return "Unsupported Media Type";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default: return "";
+        }
+    }
+
+    /**
+     * The body of the response. Writes of at least the buffer size are written directly, smaller ones are collected
+     * until the buffer is full or the body is flushed.
+     */
+    private final class Body extends OutputStream {
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        // the announced length, -1 if the body is chunked or ends with the connection
+        private long length = -1;
+        private boolean chunked = false;
+        private boolean discard = false;
+        private long written = 0;
+        private boolean closed = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (rCode == -1) throw new IOException("Response headers not sent");
+            if (closed) throw new IOException("Stream closed");
+            if (length >= 0 && written + len > length) throw new IOException("Too many bytes to write to stream");
+            written += len;
+            if (discard || len == 0) return;
+            if (len <= buffer.remaining()) {
+                buffer.put(b, off, len);
+                if (!buffer.hasRemaining()) this.flush();
+                return;
+            }
+            this.flush();
+            send(ByteBuffer.wrap(b, off, len));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.position() == 0) return;
+            buffer.flip();
+            try {
+                send(buffer);
+            } finally {
+                buffer.clear();
+            }
+        }
+
+        private void send(ByteBuffer data) throws IOException {
+            if (chunked) {
+                byte[] size = (Integer.toHexString(data.remaining()) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+                connection.write(ByteBuffer.wrap(size), data, ByteBuffer.wrap(CRLF));
+            } else {
+                connection.write(data);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            if (length >= 0 && written < length) {
+                connection.close();
+                throw new IOException("Insufficient bytes written to stream");
+            }
+            this.flush();
+            if (chunked && !discard) {
+                connection.write(ByteBuffer.wrap("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)));
+            }
+            connection.complete();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package app.http;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A context of the {@link NioHttpServer}. Like in the blocking server the authenticator runs before the filters and
+ * the filters before the handler.
+ */
+class NioHttpContext extends HttpContext {
+    private final NioHttpServer server;
+    private final String path;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private volatile HttpHandler handler;
+    private volatile Authenticator authenticator = null;
+
+    NioHttpContext(NioHttpServer server, String path, HttpHandler handler) {
+        this.server = server;
+        this.path = path;
+        this.handler = handler;
+    }
+
+    /**
+     * Authenticates the exchange and passes it to the filters and the handler. Exchanges that are not authenticated
+     * are answered with the status code of the authenticator.
+     *
+     * @param exchange the exchange of a request to this context
+     * @throws IOException if the exchange could not be handled
+     */
+    void handle(NioExchange exchange) throws IOException {
+        Authenticator authenticator = this.authenticator;
+        if (authenticator != null) {
+            Authenticator.Result result = authenticator.authenticate(exchange);
+            if (result instanceof Authenticator.Success) {
+                exchange.setPrincipal(((Authenticator.Success) result).getPrincipal());
+            } else {
+                int rCode = result instanceof Authenticator.Retry
+                        ? ((Authenticator.Retry) result).getResponseCode()
+                        : ((Authenticator.Failure) result).getResponseCode();
+                exchange.sendResponseHeaders(rCode, -1);
+                exchange.close();
+                return;
+            }
+        }
+        HttpHandler handler = this.handler;
+        if (handler == null) throw new IOException("No handler for context " + path);
+        new Filter.Chain(filters, handler).doFilter(exchange);
+    }
+
+    @Override
+    public HttpHandler getHandler() {
+        return handler;
+    }
+
+    @Override
+    public void setHandler(HttpHandler handler) {
+        if (handler == null) throw new NullPointerException("Null handler parameter");
+        if (this.handler != null) throw new IllegalArgumentException("Handler already set");
+        this.handler = handler;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public HttpServer getServer() {
+        return server;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public List<Filter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public Authenticator setAuthenticator(Authenticator authenticator) {
+        Authenticator previous = this.authenticator;
+        this.authenticator = authenticator;
+        return previous;
+    }
+
+    @Override
+    public Authenticator getAuthenticator() {
+        return authenticator;
+    }
+}
@@ -0,0 +1,299 @@
+package app.http;
+
+import app.http.logger.Logger;
+import app.http.logger.LoggerLevel;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An http server on a non-blocking selector, an alternative to the blocking server of the JDK with the same
+ * interface, so the handlers and contexts of {@link Server} work with both.
+ *
+ * A single selector thread accepts the connections and reads and writes their bytes, the executor only runs the
+ * handlers. Connections that wait for their next request or for a slow client therefore do not hold a thread. Idle
+ * connections are kept alive until the idle timeout, requests with headers or bodies larger than the limits are
+ * answered with {@code 431} or {@code 413} without running a handler.
+ */
+public class NioHttpServer extends HttpServer {
+    private final int maxHeaderSize;
+    private final long maxBodySize;
+    private final long idleTimeout;
+    private final List<NioHttpContext> contexts = new CopyOnWriteArrayList<>();
+    private final Set<NioConnection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong exchanges = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private ServerSocketChannel channel = null;
+    private Selector selector = null;
+    private Executor executor = null;
+    private Thread dispatcher = null;
+    private volatile boolean running = false;
+
+    /**
+     * Creates an unbound server.
+     *
+     * @param maxHeaderSize the maximal size of the request line and headers of a request in bytes
+     * @param maxBodySize the maximal size of a request body in bytes, 0 for no limit
+     * @param idleTimeout the milliseconds a connection is kept open without a request or while the client does not
+     *                    read its response
+     */
+    public NioHttpServer(int maxHeaderSize, long maxBodySize, long idleTimeout) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Creates a server bound to the given address.
+     *
+     * @param address the address to listen on
+     * @param backlog the maximal number of queued incoming connections, 0 for the default of the system
+     * @param maxHeaderSize the maximal size of the request line and headers of a request in bytes
+     * @param maxBodySize the maximal size of a request body in bytes, 0 for no limit
+     * @param idleTimeout the milliseconds a connection is kept open without a request
+     * @return the server, it still has to be started
+     * @throws IOException if the address could not be bound
+     */
+    public static NioHttpServer create(InetSocketAddress address, int backlog, int maxHeaderSize, long maxBodySize,
+                                       long idleTimeout) throws IOException {
+        NioHttpServer server = new NioHttpServer(maxHeaderSize, maxBodySize, idleTimeout);
+        server.bind(address, backlog);
+        return server;
+    }
+
+    @Override
+    public void bind(InetSocketAddress address, int backlog) throws IOException {
+        if (channel != null) throw new IllegalStateException("Server already bound");
+        channel = ServerSocketChannel.open();
+        channel.bind(address, backlog);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    @Override
+    public void start() {
+        if (channel == null) throw new IllegalStateException("Server not bound");
+        if (dispatcher != null) throw new IllegalStateException("Server already started");
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool();
+        }
+        running = true;
+        dispatcher = new Thread(this::select, "nio-http-dispatcher");
+        dispatcher.start();
+    }
+
+    /**
+     * The loop of the selector thread.
+     */
+    private void select() {
+        long lastCheck = System.currentTimeMillis();
+        while (running) {
+            try {
+                selector.select(1000);
+            } catch (IOException e) {
+                Logger.log("ERROR", "Selector failed: " + e.getMessage(), LoggerLevel.BASIC);
+                break;
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                try {
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (key.isValid() && key.isWritable()) connection.flush();
+                    if (key.isValid() && key.isReadable()) connection.read();
+                } catch (CancelledKeyException ignored) { }
+            }
+            selector.selectedKeys().clear();
+
+            long now = System.currentTimeMillis();
+            if (now - lastCheck >= 1000) {
+                lastCheck = now;
+                for (NioConnection connection : connections) {
+                    if (connection.isIdle(now)) connection.close();
+                }
+            }
+        }
+    }
+
+    private void accept() {
+        SocketChannel socket;
+        try {
+            while ((socket = channel.accept()) != null) {
+                socket.configureBlocking(false);
+                // Responses are written as soon as they are complete, so they are not delayed to be combined
+                socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = socket.register(selector, SelectionKey.OP_READ);
+                NioConnection connection = new NioConnection(this, socket, key, maxHeaderSize);
+                key.attach(connection);
+                connections.add(connection);
+                accepted.incrementAndGet();
+            }
+        } catch (IOException e) {
+            Logger.log("ERROR", "Could not accept connection: " + e.getMessage(), LoggerLevel.BASIC);
+        }
+    }
+
+    /**
+     * Runs the handler of an exchange on the executor, the connection is closed if the executor rejects it.
+     */
+    void dispatch(NioExchange exchange) {
+        try {
+            executor.execute(exchange::run);
+        } catch (RejectedExecutionException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the context with the longest path that is a prefix of the given path.
+     */
+    NioHttpContext findContext(String path) {
+        NioHttpContext found = null;
+        for (NioHttpContext context : contexts) {
+            if (path.startsWith(context.getPath()) && (found == null || context.getPath().length() > found.getPath().length())) {
+                found = context;
+            }
+        }
+        return found;
+    }
+
+    void completed() {
+        exchanges.incrementAndGet();
+    }
+
+    void rejected() {
+        rejected.incrementAndGet();
+    }
+
+    void closed(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Returns the statistics of the connections.
+     *
+     * @return the number of open and accepted connections, completed exchanges and requests rejected for exceeding
+     * the limits
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("connections", (long) connections.size());
+        statistics.put("accepted", accepted.get());
+        statistics.put("exchanges", exchanges.get());
+        statistics.put("rejected", rejected.get());
+        return statistics;
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        if (dispatcher != null) throw new IllegalStateException("Server already started");
+        this.executor = executor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Stops accepting connections and waits up to the given delay for running exchanges before all connections are
+     * closed.
+     *
+     * @param delay the maximal number of seconds to wait for running exchanges
+     */
+    @Override
+    public void stop(int delay) {
+        try {
+            channel.close();
+        } catch (IOException ignored) { }
+        long deadline = System.currentTimeMillis() + delay * 1000L;
+        while (System.currentTimeMillis() < deadline && connections.stream().anyMatch(NioConnection::isActive)) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        new ArrayList<>(connections).forEach(NioConnection::close);
+        try {
+            selector.close();
+        } catch (IOException ignored) { }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        if (path == null || !path.startsWith("/")) throw new IllegalArgumentException("Invalid path: " + path);
+        for (NioHttpContext context : contexts) {
+            if (context.getPath().equals(path)) throw new IllegalArgumentException("Context already exists: " + path);
+        }
+        NioHttpContext context = new NioHttpContext(this, path, handler);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public HttpContext createContext(String path) {
+        return createContext(path, null);
+    }
+
+    @Override
+    public void removeContext(String path) {
+        if (!contexts.removeIf(context -> context.getPath().equals(path))) {
+            throw new IllegalArgumentException("No context with path: " + path);
+        }
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        contexts.remove(context);
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
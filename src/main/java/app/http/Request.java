@@ -2,13 +2,16 @@ package app.http;
 
 import app.data.MimeObject;
 import app.data.ResponseObject;
+import app.graph.Graph;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Map;
 
 
 /**
@@ -22,11 +25,23 @@ public class Request {
      * @return Returns the response body and status code
      */
     public static ResponseObject get(String url) {
+        return get(url, "application/json");
+    }
+
+    /**
+     * A Function that creates a HTTP-GET request to a given url.
+     *
+     * @param url The url to create the GET request to
+     * @param accept The content type that is expected from the response, e.g. {@link BinaryGraph#MIME_TYPE}
+     * @return Returns the response body and status code
+     */
+    public static ResponseObject get(String url, String accept) {
         // Create a http-client which will send the request and handle the response
         HttpClient client = HttpClient.newHttpClient();
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .timeout(Duration.ofMinutes(1))
+                .header("Accept", accept)
                 .header("Content-Type", "application/json")
                 .GET()
                 .build();
@@ -83,4 +98,67 @@ public class Request {
     public static ResponseObject post(String url, String body) {
         return post(url, body, "application/json");
     }
+
+    /**
+     * A Function that creates a HTTP-POST request with a graph in the binary format of {@link BinaryGraph} as its
+     * body, e.g. to /api/network-analysis with the other fields as query parameters.
+     *
+     * @param url  The url to create the a POST request to
+     * @param graph The graph that is sent as the body
+     * @param accept The content type that is expected from the response
+     * @return Returns the response body and status code
+     */
+    public static ResponseObject post(String url, Graph graph, String accept) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            BinaryGraph.writeGraph(graph, body, false);
+        } catch (IOException e) {
+            return null;
+        }
+
+        // Create a http-client which will sent the request and handle the response
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofMinutes(1))
+                .header("Accept", accept)
+                .header("Content-Type", BinaryGraph.MIME_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        try {
+            // Get the response body and status code and return it
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            return new ResponseObject(response.statusCode(), new MimeObject(response.headers().firstValue("Content-Type").orElse(""), response.body()));
+
+        } catch (IOException | InterruptedException e) {
+            // If an error occurred during reading the response return null
+            return null;
+        }
+    }
+
+    /**
+     * Reads the graph of a response in the binary format of {@link BinaryGraph}, e.g. of /api/graph requested
+     * with {@link BinaryGraph#MIME_TYPE}.
+     *
+     * @param response The response to read
+     * @return The graph of the response
+     * @throws IOException if the body could not be read
+     * @throws IllegalArgumentException if the body is not a binary graph
+     */
+    public static Graph readGraph(ResponseObject response) throws IOException {
+        return BinaryGraph.readGraph(response.bodyAsStream());
+    }
+
+    /**
+     * Reads the centralities of a response in the binary format of {@link BinaryGraph}, e.g. of
+     * /api/network-analysis requested with {@link BinaryGraph#MIME_TYPE}.
+     *
+     * @param response The response to read
+     * @return The values of the vertices by the name of the centrality
+     * @throws IOException if the body could not be read
+     * @throws IllegalArgumentException if the body is not binary centralities
+     */
+    public static Map<String, Map<String, Double>> readCentralities(ResponseObject response) throws IOException {
+        return BinaryGraph.readCentralities(response.bodyAsStream());
+    }
 }
@@ -0,0 +1,152 @@
+package app.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor the http server runs its exchanges on.
+ *
+ * Exchanges are handled by a fixed number of worker threads and wait in a bounded queue while all workers are busy.
+ * If the queue is full the exchange is handed to a single shedding thread instead, on which
+ * {@link #isShedding()} is true so the handler only answers with {@code 503 Service Unavailable}. If even the
+ * shedding thread can not keep up, the exchange is rejected and the server closes the connection.
+ *
+ * Alternatively every exchange runs on its own virtual thread, see {@link #virtual()}. Exchanges are never shed
+ * then, the handlers are only limited by the resources they use, e.g. the connections of the database.
+ */
+public class RequestExecutor implements Executor {
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> false);
+
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor shedder;
+    private final AtomicLong rejected = new AtomicLong();
+    // used instead of the workers in the virtual thread mode
+    private final ExecutorService virtual;
+    private final AtomicLong active = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Creates the executor.
+     *
+     * @param threads the number of worker threads
+     * @param queueSize the number of exchanges that may wait for a worker
+     */
+    public RequestExecutor(int threads, int queueSize) {
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory("http-worker"));
+        this.workers.allowCoreThreadTimeOut(true);
+        this.shedder = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory("http-shedder"));
+        this.shedder.allowCoreThreadTimeOut(true);
+        this.virtual = null;
+    }
+
+    private RequestExecutor(ExecutorService virtual) {
+        this.workers = null;
+        this.shedder = null;
+        this.virtual = virtual;
+    }
+
+    /**
+     * Creates an executor that runs every exchange on a new virtual thread.
+     *
+     * The executor is looked up reflectively, so the server still builds and runs on JDKs without virtual threads.
+     * @return the executor
+     * @throws UnsupportedOperationException if the JDK does not support virtual threads
+     */
+    public static RequestExecutor virtual() {
+        try {
+            return new RequestExecutor((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by Java " + Runtime.version().feature());
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(r, name + "-" + count.incrementAndGet());
+    }
+
+    @Override
+    public void execute(Runnable exchange) {
+        if (virtual != null) {
+            virtual.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    exchange.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+            return;
+        }
+        try {
+            workers.execute(exchange);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            shedder.execute(() -> {
+                SHEDDING.set(true);
+                try {
+                    exchange.run();
+                } finally {
+                    SHEDDING.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks whether the current exchange was rejected because all workers are busy and the queue is full.
+     * Never true in the virtual thread mode.
+     * @return whether the current thread only sheds exchanges
+     */
+    public static boolean isShedding() {
+        return SHEDDING.get();
+    }
+
+    /**
+     * Stops accepting exchanges, the exchanges already accepted are still handled.
+     */
+    public void shutdown() {
+        if (virtual != null) {
+            virtual.shutdown();
+            return;
+        }
+        workers.shutdown();
+        shedder.shutdown();
+    }
+
+    /**
+     * Returns the statistics of the executor.
+     * @return the number of worker threads, active workers, queued and completed exchanges and rejected exchanges
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        if (virtual != null) {
+            // Every active exchange has its own thread and none are queued or rejected
+            statistics.put("threads", active.get());
+            statistics.put("active", active.get());
+            statistics.put("queued", 0L);
+            statistics.put("completed", completed.get());
+            statistics.put("rejected", 0L);
+            return statistics;
+        }
+        statistics.put("threads", (long) workers.getPoolSize());
+        statistics.put("active", (long) workers.getActiveCount());
+        statistics.put("queued", (long) workers.getQueue().size());
+        statistics.put("completed", workers.getCompletedTaskCount());
+        statistics.put("rejected", rejected.get());
+        return statistics;
+    }
+}
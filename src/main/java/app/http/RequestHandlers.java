@@ -1,36 +1,72 @@
 package app.http;
 
 import app.Main;
-import app.analysis.Centralization;
+import app.analysis.FlowDistances;
 import app.data.AnalysisRequest;
+import app.data.FlowDistanceRequest;
+import app.data.GraphRequest;
+import app.data.IdsRequest;
 import app.data.InteractionRequest;
+import app.data.MeetingRecord;
+import app.data.MimeObject;
 import app.data.SVGRequest;
+import app.db.Database;
 import app.db.GraphOptions;
 import app.graph.Graph;
 import app.graph.Utils;
 import app.http.logger.Logger;
 import app.http.logger.LoggerLevel;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Class containing functions to handle request for specific routes
  * /                        -   rootRequests                (GET)
  * /admin                   -   apiHandlerAdmin             (GET)
+ * /admin/rollups           -   apiHandlerRollups           (POST)
+ * /admin/stats             -   apiHandlerStats             (GET)
+ * /admin/export            -   apiHandlerExport            (GET)
+ * /admin/import            -   apiHandlerImport            (POST)
  * /shutdown                -   shutdown                    (GET)
  * /api/interaction         -   apiHandlerInteraction       (POST)
+ * /api/interaction/stream  -   apiHandlerInteractionStream (POST)
+ * /api/persons             -   apiHandlerPersons           (DELETE)
  * /api/graph               -   apiHandlerGraph             (GET, POST)
+ * /api/graph/events        -   apiHandlerGraphEvents       (GET)
  * /api/network-analysis    -   apiHandlerNetworkAnalysis   (POST)
  * /api/graph-svg           -   apiHandlerGraphSvg          (GET)
+ * /api/flow-distance       -   apiHandlerFlowDistance      (POST)
+ * /api/jobs                -   apiHandlerJobs              (POST, GET, DELETE)
  * /api/ids                 -   apiHandlerIds               (GET)
  */
 public class RequestHandlers {
+    // lazily evaluated flow distances of the newest data version, built by one request per version
+    private static final SingleFlight<Long, FlowDistances> flowDistancesFlight = new SingleFlight<>();
+    private static FlowDistances flowDistances = null;
+    private static long flowDistancesVersion = -1;
+    // the html page of /admin, compressed once
+    private static MimeObject adminPage = null;
 
     /**
      * Function called to handle a request GET at /.
@@ -118,6 +154,216 @@ public class RequestHandlers {
         }
     }
 
+    /**
+     * Function called to handle a POST request at /api/interaction/stream.
+     * The body is a stream of interactions as newline delimited JSON, each line like the body of /api/interaction.
+     * The interactions are written in batches while the body is read and every written batch is acknowledged with a
+     * line of newline delimited JSON in the response, so one request can carry interactions for as long as the client
+     * keeps it open. Lines that are no valid interaction are rejected and counted without ending the stream, a line
+     * longer than {@code stream_max_line} bytes ends it.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerInteractionStream(HttpExchange exchange) {
+        Logger.logRequest(exchange, "{  }");
+
+        // Only handle POST requests
+        if (!exchange.getRequestMethod().equals("POST")) {
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        int batchSize = Integer.parseInt(Main.properties.getProperty("stream_batch_size"));
+        long ackInterval = Long.parseLong(Main.properties.getProperty("stream_ack_interval"));
+        LineReader body = new LineReader(exchange.getRequestBody(), Integer.parseInt(Main.properties.getProperty("stream_max_line")));
+        String line;
+        try {
+            // The status is sent once the first line is read, so a body without line breaks is rejected with 413
+            line = body.readLine();
+        } catch (IllegalArgumentException e) {
+            JsonObject response = new JsonObject();
+            response.addProperty("error", "Line 1: " + e.getMessage());
+            Server.sendResponse(exchange, 413, response.toString(), "application/json");
+            return;
+        } catch (IOException e) {
+            Logger.log("ERROR", "Error while streaming interactions", LoggerLevel.BASIC);
+            Logger.log(e);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        try {
+            exchange.sendResponseHeaders(200, 0);
+            try (InteractionStream stream = new InteractionStream(Server.db, exchange.getResponseBody(), batchSize, ackInterval)) {
+                while (line != null) {
+                    if (!line.isBlank()) {
+                        InteractionRequest data = null;
+                        try {
+                            data = Decoder.asInteraction(line);
+                        } catch (IllegalArgumentException e) {
+                            stream.reject(body.getLineNumber(), e.getMessage());
+                        }
+                        if (data != null) stream.add(data);
+                    }
+                    try {
+                        line = body.readLine();
+                    } catch (IllegalArgumentException e) {
+                        // The rest of the line is not read, so the stream can not go on behind it
+                        stream.reject(body.getLineNumber(), e.getMessage() + ", the stream ends here");
+                        break;
+                    }
+                }
+            }
+            Logger.logResponse(exchange, "{ streamed }");
+        } catch (IOException e) {
+            // The status is already sent, the client notices the error by the last acknowledgement or the closed stream
+            Logger.log("ERROR", "Error while streaming interactions", LoggerLevel.BASIC);
+            Logger.log(e);
+        }
+        exchange.close();
+    }
+
+    /**
+     * Function called to handle a DELETE request at /api/persons.
+     * All persons given in the body are deleted from the database in one transaction.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerPersons(HttpExchange exchange) {
+
+        // Only handle DELETE requests
+        if (!exchange.getRequestMethod().equals("DELETE")) {
+            Logger.logRequest(exchange, "{  }");
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        int deleted;
+        try {
+            List<String> toDelete = Decoder.asNamesToDelete(exchange);
+            deleted = Server.db.removePersons(toDelete);
+        } catch (IllegalArgumentException e) {
+            Server.sendBadRequest(exchange, e.getMessage());
+            return;
+        } catch (Exception e) {
+            Server.sendInternalError(exchange, e.getMessage());
+            Logger.log(e);
+            return;
+        }
+
+        // Create Json response
+        JsonObject response = new JsonObject();
+        response.addProperty("deleted", deleted);
+
+        Server.sendResponse(exchange, 200, response, "application/json");
+    }
+
+    /**
+     * Function called to handle a POST request at /api/flow-distance.
+     * Returns the flow distance of a pair, the distances from a single source or a page of rows of the
+     * flow distance matrix. Rows are calculated on demand instead of generating the complete flow graph.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerFlowDistance(HttpExchange exchange) {
+        // Only handle POST requests
+        if (!exchange.getRequestMethod().equals("POST")) {
+            Logger.logRequest(exchange, "{  }");
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        FlowDistanceRequest request;
+        FlowDistances distances;
+        try {
+            request = Decoder.asFlowDistance(exchange);
+            distances = RequestHandlers.getFlowDistances();
+        } catch (IllegalArgumentException e) {
+            Server.sendBadRequest(exchange, e.getMessage());
+            return;
+        } catch (Exception e) {
+            Server.sendInternalError(exchange, e.getMessage());
+            Logger.log(e);
+            return;
+        }
+
+        // Create Json response
+        JsonObject response = new JsonObject();
+        try {
+            if (request.getTarget() != null) {
+                double distance = distances.distance(request.getSource(), request.getTarget());
+                response.addProperty("source", request.getSource());
+                response.addProperty("target", request.getTarget());
+                // Not connected persons have no flow distance
+                if (distance == Double.POSITIVE_INFINITY) {
+                    response.add("distance", JsonNull.INSTANCE);
+                } else {
+                    response.addProperty("distance", distance);
+                }
+            } else if (request.getSource() != null) {
+                response.addProperty("source", request.getSource());
+                response.add("distances", asJsonObject(distances.distancesFrom(request.getSource(), request.getTop())));
+            } else {
+                List<String> vertices = distances.getVertices();
+                int from = Math.min(request.getOffset(), vertices.size());
+                int to = Math.min(from + request.getLimit(), vertices.size());
+                JsonObject rows = new JsonObject();
+                for (String source : vertices.subList(from, to)) {
+                    rows.add(source, asJsonObject(distances.distancesFrom(source, request.getTop())));
+                }
+                response.addProperty("total", vertices.size());
+                response.addProperty("offset", from);
+                response.add("rows", rows);
+            }
+        } catch (IllegalArgumentException e) {
+            Server.sendBadRequest(exchange, e.getMessage());
+            return;
+        }
+
+        Server.sendResponse(exchange, 200, response, "application/json");
+    }
+
+    /**
+     * Returns the flow distances of the current data, the view is created again after every write.
+     * The first request of a new version builds the view without holding a lock, the requests of the same version
+     * that arrive meanwhile wait for it and all other requests keep using the view of their version.
+     * @return the flow distances
+     */
+    private static FlowDistances getFlowDistances() {
+        long version = Server.db.getVersion();
+        synchronized (RequestHandlers.class) {
+            if (flowDistances != null && flowDistancesVersion >= version) return flowDistances;
+        }
+        CompletableFuture<FlowDistances> future = flowDistancesFlight.run(version, built -> {
+            Graph weights = Server.db.generateFlowWeights(Collections.emptySortedMap());
+            if (weights == null) {
+                throw new IllegalStateException("Could not read the interactions");
+            }
+            built.complete(new FlowDistances(weights, Integer.parseInt(Main.properties.getProperty("flow_cache_rows"))));
+        });
+        FlowDistances distances;
+        try {
+            distances = future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        synchronized (RequestHandlers.class) {
+            // A request of a newer version may have finished first
+            if (flowDistancesVersion < version) {
+                flowDistances = distances;
+                flowDistancesVersion = version;
+            }
+        }
+        return distances;
+    }
+
+    private static JsonObject asJsonObject(Map<String, Double> distances) {
+        JsonObject json = new JsonObject();
+        distances.forEach(json::addProperty);
+        return json;
+    }
+
     /**
      * Function called to handle a POST request at /api/ids.
      * Handles only GET requests.
@@ -134,16 +380,53 @@ public class RequestHandlers {
             return;
         }
 
+        IdsRequest request;
+        try {
+            request = Decoder.asIdsRequest(exchange);
+        } catch (IllegalArgumentException e) {
+            Server.sendBadRequest(exchange, e.getMessage());
+            return;
+        }
+
+        // Clients that already have the ids of the current data version are not sent them again
+        String tag = EntityTag.of(Server.db.getVersion(), "ids", exchange.getRequestURI().getRawQuery(),
+                exchange.getRequestHeaders().get("Accept"), exchange.getRequestHeaders().get("Accept-Encoding"));
+        if (EntityTag.matches(exchange, tag)) {
+            Server.sendNotModified(exchange, tag);
+            return;
+        }
+
         List<String> ids;
         try {
-            ids = Server.db.getAllIds();
+            // One more id than requested tells whether there is a next page
+            ids = request.isPaged()
+                    ? Server.db.getIds(request.getPrefix(), request.getAfter(), request.getLimit() + 1)
+                    : Server.db.getAllIds();
         } catch (Exception e) {
             Server.sendInternalError(exchange, e.getMessage());
             Logger.log(e);
             return;
         }
 
-        Server.sendResponse(exchange, 200, ids, "application/json");
+        Server.setEntityTag(exchange, tag);
+        if (!request.isPaged()) {
+            Server.sendResponse(exchange, 200, ids, "application/json");
+            return;
+        }
+
+        boolean more = ids.size() > request.getLimit();
+        if (more) {
+            ids = ids.subList(0, request.getLimit());
+        }
+        JsonArray page = new JsonArray();
+        ids.forEach(page::add);
+        JsonObject response = new JsonObject();
+        response.add("ids", page);
+        // The last page has no cursor
+        if (more) {
+            response.addProperty("cursor", IdsRequest.cursorOf(ids.get(ids.size() - 1)));
+        }
+        Server.sendResponse(exchange, 200, response, "application/json");
     }
 
     /**
@@ -156,12 +439,16 @@ public class RequestHandlers {
         Logger.logRequest(exchange, "{  }");
 
         GraphOptions option;
+        SortedMap<String, String> filters;
         // Only handle GET or POST requests
         if (exchange.getRequestMethod().equals("GET")) {
             option = GraphOptions.valueOf(Main.properties.getProperty("default_graph_options"));
+            filters = Collections.emptySortedMap();
         } else if (exchange.getRequestMethod().equals("POST")) {
             try {
-                option = Decoder.asGraphOption(exchange);
+                GraphRequest request = Decoder.asGraphRequest(exchange);
+                option = request.getOption();
+                filters = request.getFilters();
             } catch (IllegalArgumentException e) {
                 Server.sendBadRequest(exchange, e.getMessage());
                 Logger.log(e);
@@ -176,16 +463,79 @@ public class RequestHandlers {
             return;
         }
 
-        Graph graph;
+        if (option == GraphOptions.FLOW_DISTANCE) {
+            // The complete flow distance graph grows quadratically, /api/flow-distance pages the distances instead
+            exchange.getResponseHeaders().set("Deprecation", "true");
+            exchange.getResponseHeaders().set("Link", "</api/flow-distance>; rel=\"successor-version\"");
+        }
+
+        // Clients that already have the graph of the current data version are not sent it again
+        long version = Server.db.getVersion();
+        List<String> accept = exchange.getRequestHeaders().get("Accept");
+        String tag = EntityTag.of(version, "graph", option, filters, accept, exchange.getRequestHeaders().get("Accept-Encoding"));
+        if (EntityTag.matches(exchange, tag)) {
+            Server.sendNotModified(exchange, tag);
+            return;
+        }
+
+        // Identical requests of the same data version share one generated and encoded graph
+        List<Object> key = Arrays.asList("graph", option, filters, accept, version);
+        CompletableFuture<MimeObject> response = Server.getSingleFlight().run(key, future -> {
+            try {
+                future.complete(Encoder.buffer(Encoder.encode(Server.db.generateGraph(option, filters), accept)));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+
+        MimeObject body;
         try {
-            graph = Server.db.generateGraph(option);
-        } catch(Exception e) {
-            Server.sendInternalError(exchange, e.getMessage());
-            Logger.log(e);
+            body = response.join();
+        } catch (CompletionException e) {
+            sendShared(exchange, null, e);
             return;
         }
+        Server.setEntityTag(exchange, tag);
+        sendShared(exchange, body, null);
+    }
 
-        Server.sendResponse(exchange, 200, graph);
+    /**
+     * Function called to handle a GET request at /api/graph/events.
+     * Subscribes to the changes of the graph generated with the option of the query parameter {@code option}. The
+     * changes are sent as server-sent events until the client disconnects, see {@link GraphEvents}.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerGraphEvents(HttpExchange exchange) {
+        Logger.logRequest(exchange, "{  }");
+
+        // Only handle GET requests
+        if (!exchange.getRequestMethod().equals("GET")) {
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        GraphOptions option;
+        try {
+            option = GraphOptions.valueOf(Decoder.asQuery(exchange)
+                    .getOrDefault("option", Main.properties.getProperty("default_graph_options")));
+        } catch (IllegalArgumentException e) {
+            Server.sendBadRequest(exchange, "Invalid value for parameter 'option'");
+            return;
+        }
+
+        // The exchange stays open after the handler returned, the events are written by the events thread
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        try {
+            exchange.sendResponseHeaders(200, 0);
+            Server.getGraphEvents().subscribe(option, exchange.getRequestHeaders().getFirst("Last-Event-ID"),
+                    exchange.getResponseBody(), exchange::close);
+        } catch (IOException | RuntimeException e) {
+            Logger.log("ERROR", "Could not subscribe to graph events: " + e.getMessage(), LoggerLevel.BASIC);
+            exchange.close();
+        }
     }
 
     /**
@@ -213,30 +563,108 @@ public class RequestHandlers {
             return;
         }
 
-        Map<String, Map<String, Double>> resultObject = new HashMap<>();
-        Map<String, Double> centralizations = new HashMap<>();
-        if(data.centralizationRequested()) {
-            resultObject.put("centralization", centralizations);
+        // The centralities are calculated by the analysis pool and sent once they are done, the handler thread is
+        // free again. Identical requests share one analysis and its encoded result.
+        List<String> accept = exchange.getRequestHeaders().get("Accept");
+        List<Object> key = Arrays.asList("network-analysis", data.getKey(), accept);
+        Server.getSingleFlight().run(key, future ->
+                Server.getAnalysisPool().submit(AnalysisPool.Priority.INTERACTIVE, AnalysisPool.sizeOf(data.getGraph()), () -> {
+                    try {
+                        future.complete(Encoder.buffer(Encoder.encode(Jobs.analyse(data, finished -> { }), accept)));
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                })
+        ).whenComplete((response, error) -> sendShared(exchange, response, error));
+    }
+
+    /**
+     * Sends the result of a computation shared by identical requests, see {@link SingleFlight}.
+     *
+     * @param exchange The request that will be answered.
+     * @param response The encoded result, null if the computation failed.
+     * @param error The error of the computation, null if it succeeded.
+     */
+    private static void sendShared(HttpExchange exchange, MimeObject response, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        if (error == null) {
+            Server.sendResponse(exchange, 200, response, response.type);
+        } else if (error instanceof RejectedExecutionException) {
+            Server.sendServiceUnavailable(exchange);
+        } else if (error instanceof IllegalArgumentException) {
+            Server.sendBadRequest(exchange, error.getMessage());
+        } else {
+            Server.sendInternalError(exchange, error.getMessage());
+            Logger.log("ERROR", error.toString(), LoggerLevel.BASIC);
         }
+    }
+
+    /**
+     * Function called to handle requests at /api/jobs.
+     * POST /api/jobs/network-analysis submits an analysis like /api/network-analysis as a background job and
+     * returns its id right away. GET /api/jobs/{id} returns the status, progress and, when done, the result of
+     * the job and DELETE /api/jobs/{id} cancels it.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerJobs(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath().substring("/api/jobs".length());
+        if (path.startsWith("/")) path = path.substring(1);
+
+        if (path.equals("network-analysis")) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                Logger.logRequest(exchange, "{  }");
+                Server.sendMethodNotAllowed(exchange);
+                return;
+            }
 
-        for(int i = 0; i < data.getCentralitySize(); i++) {
+            Jobs.Job job;
             try {
-                resultObject.put(data.getCentrality(i), data.getCentralityFunction(i).apply(data.getGraph()));
-                if(data.centralizationRequested()) {
-                    centralizations.put(data.getCentrality(i), Centralization.getCentralization(data.getGraph(), data.getCentralityFunction(i)));
+                AnalysisRequest data = Decoder.asAnalysis(exchange);
+                // Unknown centralities are reported right away instead of failing the job
+                for (int i = 0; i < data.getCentralitySize(); i++) {
+                    data.getCentralityFunction(i);
                 }
-            } catch(IllegalArgumentException e) {
+                job = Server.getJobs().submit(data);
+            } catch (IllegalArgumentException e) {
                 Server.sendBadRequest(exchange, e.getMessage());
                 return;
-            } catch(Exception e) {
+            } catch (RejectedExecutionException e) {
+                Server.sendServiceUnavailable(exchange);
+                return;
+            } catch (Exception e) {
                 Server.sendInternalError(exchange, e.getMessage());
                 Logger.log(e);
                 return;
             }
+
+            exchange.getResponseHeaders().set("Location", "/api/jobs/" + job.getId());
+            Server.sendResponse(exchange, 202, job.asJsonObject(), "application/json");
+            return;
+        }
+
+        Logger.logRequest(exchange, "{  }");
+        Jobs.Job job;
+        if (exchange.getRequestMethod().equals("GET")) {
+            job = Server.getJobs().get(path);
+        } else if (exchange.getRequestMethod().equals("DELETE")) {
+            job = Server.getJobs().cancel(path);
+        } else {
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        if (job == null) {
+            JsonObject response = new JsonObject();
+            response.addProperty("error", "Unknown job: " + path);
+            Server.sendResponse(exchange, 404, response, "application/json");
+            return;
         }
 
-        // Return all calculated centralities as a JSON
-        Server.sendResponse(exchange, 200, resultObject);
+        Server.sendResponse(exchange, 200, job.asJsonObject(), "application/json");
     }
 
     /**
@@ -253,6 +681,12 @@ public class RequestHandlers {
             return;
         }
 
+        // The svg only depends on the body and the data version, the body is hashed while it is decoded so clients
+        // that already have the svg are not sent it again
+        long version = Server.db.getVersion();
+        DigestInputStream body = EntityTag.digesting(exchange.getRequestBody());
+        exchange.setStreams(body, null);
+
         SVGRequest data;
         try {
             data = Decoder.asSVG(exchange);
@@ -265,14 +699,39 @@ public class RequestHandlers {
             return;
         }
 
+        // The decoder read the body up to its end, so the hash covers all of it
+        String tag = EntityTag.of(version, "graph-svg", body.getMessageDigest().digest(), exchange.getRequestHeaders().get("Accept-Encoding"));
+        if (EntityTag.matches(exchange, tag)) {
+            Server.sendNotModified(exchange, tag);
+            return;
+        }
+
         if (data.getCentralitySize() != 1) {
             Server.sendBadRequest(exchange, "Exactly one centrality needs to be specified");
             return;
         }
 
+        // The graph is rendered and sent by the analysis pool, the handler thread is free again
+        try {
+            Server.getAnalysisPool().submit(AnalysisPool.Priority.INTERACTIVE, AnalysisPool.sizeOf(data.getGraph()),
+                    () -> render(exchange, data, tag));
+        } catch (RejectedExecutionException e) {
+            Server.sendServiceUnavailable(exchange);
+        }
+    }
+
+    /**
+     * Renders the graph of a svg request and sends it as the response.
+     *
+     * @param exchange The request that will be answered.
+     * @param data The decoded svg request.
+     * @param tag The entity tag of the svg, set if it is rendered.
+     */
+    private static void render(HttpExchange exchange, SVGRequest data, String tag) {
         String svgFile;
         try {
             svgFile = Utils.graphToSvgWithExternalGraphviz(data);
+            Server.setEntityTag(exchange, tag);
         } catch (IllegalArgumentException e) {
             Server.sendBadRequest(exchange, e.getMessage());
             return;
@@ -281,6 +740,7 @@ public class RequestHandlers {
             Logger.log(e);
             try {
                 svgFile = Utils.graphToSvg(data);
+                Server.setEntityTag(exchange, tag);
             } catch(Exception e2) {
                 Logger.log(e2);
                 svgFile = """
@@ -314,11 +774,200 @@ public class RequestHandlers {
             return;
         }
 
-        try(InputStream s = RequestHandlers.class.getResourceAsStream("/index.html")) {
-            Server.sendResponse(exchange, 200, s, "text/html");
+        MimeObject page;
+        try {
+            page = getAdminPage();
         } catch (IOException e) {
             Server.sendInternalError(exchange, "Error while reading html file. Please contact an administrator.");
+            return;
+        }
+        Server.sendResponse(exchange, 200, page, "text/html");
+    }
+
+    /**
+     * Returns the html page of /admin, read and compressed on the first request.
+     * @return the gzip compressed page
+     * @throws IOException if the page could not be read
+     */
+    private static synchronized MimeObject getAdminPage() throws IOException {
+        if (adminPage == null) {
+            try(InputStream s = RequestHandlers.class.getResourceAsStream("/index.html")) {
+                adminPage = new MimeObject("text/html", Compression.compress(s.readAllBytes(), Compression.GZIP), Compression.GZIP);
+            }
+        }
+        return adminPage;
+    }
+
+    /**
+     * Function called to handle a POST request at /admin/rollups.
+     * Rebuilds the hourly and daily pair rollups that answer the datetime filtered graph queries.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerRollups(HttpExchange exchange) {
+        Logger.logRequest(exchange, "{  }");
+
+        // Only handle POST requests
+        if (!exchange.getRequestMethod().equals("POST")) {
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        // Only the MariaDB store keeps rollups
+        if (!(Server.db instanceof Database)) {
+            Server.sendBadRequest(exchange, "The selected store has no rollups");
+            return;
+        }
+
+        int rollups = ((Database) Server.db).rebuildRollups();
+        if (rollups < 0) {
+            Server.sendInternalError(exchange, "Could not rebuild the rollups");
+            return;
+        }
+
+        // Create Json response
+        JsonObject response = new JsonObject();
+        response.addProperty("rollups", rollups);
+
+        Server.sendResponse(exchange, 200, response, "application/json");
+    }
+
+    /**
+     * Function called to handle a GET request at /admin/stats.
+     * Returns the statistics of the server, e.g. the load of the request executor and the hits and misses of the
+     * graph cache.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerStats(HttpExchange exchange) {
+        Logger.logRequest(exchange, "{  }");
+
+        // Only handle GET requests
+        if (!exchange.getRequestMethod().equals("GET")) {
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        Map<String, Map<String, Long>> response = new HashMap<>();
+        response.put("executor", Server.getExecutorStatistics());
+        response.put("transport", Server.getTransportStatistics());
+        response.put("analysis", Server.getAnalysisStatistics());
+        response.put("single_flight", Server.getSingleFlightStatistics());
+        response.put("graph_events", Server.getGraphEventsStatistics());
+        if (Server.db instanceof Database) {
+            response.put("graph_cache", ((Database) Server.db).getCacheStatistics());
+        }
+
+        Server.sendResponse(exchange, 200, response, "application/json");
+    }
+
+    /**
+     * Function called to handle a GET request at /admin/export.
+     * Streams all meetings of the store as a gzip compressed dump in the format given by the query parameter
+     * {@code format} (ndjson or binary). The dump is written while the meetings are read, so the response is sent
+     * chunked and an error after the headers can only be noticed by the truncated dump.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerExport(HttpExchange exchange) {
+        Logger.logRequest(exchange, "{  }");
+
+        // Only handle GET requests
+        if (!exchange.getRequestMethod().equals("GET")) {
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        Dump.Format format;
+        try {
+            format = Dump.Format.of(Decoder.asQuery(exchange).getOrDefault("format", "ndjson"));
+        } catch (IllegalArgumentException e) {
+            Server.sendBadRequest(exchange, e.getMessage());
+            return;
         }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/gzip");
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + format.fileName + "\"");
+        try (Dump.Writer writer = new Dump.Writer(exchange.getResponseBody(), format)) {
+            exchange.sendResponseHeaders(200, 0);
+            int exported = Server.db.exportMeetings(writer);
+            Logger.logResponse(exchange, "{ \"exported\": " + exported + " }");
+        } catch (IOException e) {
+            Logger.log("ERROR", "Error while exporting the meetings", LoggerLevel.BASIC);
+            Logger.log(e);
+        }
+        exchange.close();
+    }
+
+    /**
+     * Function called to handle a POST request at /admin/import.
+     * Adds all meetings of a dump created by /admin/export, compressed or not, in the format given by the query
+     * parameter {@code format} (ndjson or binary). With {@code replace=true} the dump is spooled to a temporary file
+     * and read once before the store is cleared, so a malformed dump leaves the store untouched. Replacing is refused
+     * once interactions were folded by the retention.
+     *
+     * @param exchange The request that will be handled.
+     */
+    public static void apiHandlerImport(HttpExchange exchange) {
+        Logger.logRequest(exchange, "{  }");
+
+        // Only handle POST requests
+        if (!exchange.getRequestMethod().equals("POST")) {
+            Server.sendMethodNotAllowed(exchange);
+            return;
+        }
+
+        int imported;
+        Path spooled = null;
+        try (InputStream body = exchange.getRequestBody()) {
+            Map<String, String> query = Decoder.asQuery(exchange);
+            Dump.Format format = Dump.Format.of(query.getOrDefault("format", "ndjson"));
+            if (Boolean.parseBoolean(query.get("replace"))) {
+                // The folded interactions are not part of any dump, clearing the store would lose them for good
+                if (Server.db.hasFoldedInteractions()) {
+                    JsonObject response = new JsonObject();
+                    response.addProperty("error", "The store contains interactions folded by the retention, they can not be replaced by a dump");
+                    Server.sendResponse(exchange, 409, response.toString(), "application/json");
+                    return;
+                }
+                spooled = Files.createTempFile("import-", ".dump");
+                Files.copy(body, spooled, StandardCopyOption.REPLACE_EXISTING);
+                try (InputStream in = Files.newInputStream(spooled)) {
+                    Iterator<MeetingRecord> meetings = Dump.read(in, format);
+                    while (meetings.hasNext()) meetings.next();
+                }
+                Server.db.clear();
+                try (InputStream in = Files.newInputStream(spooled)) {
+                    imported = Server.db.importMeetings(Dump.read(in, format));
+                }
+            } else {
+                imported = Server.db.importMeetings(Dump.read(body, format));
+            }
+        } catch (IllegalArgumentException e) {
+            Server.sendBadRequest(exchange, e.getMessage());
+            return;
+        } catch (UncheckedIOException e) {
+            Server.sendBadRequest(exchange, "Could not read the dump: " + e.getCause().getMessage());
+            return;
+        } catch (Exception e) {
+            Server.sendInternalError(exchange, e.getMessage());
+            Logger.log(e);
+            return;
+        } finally {
+            if (spooled != null) {
+                try {
+                    Files.deleteIfExists(spooled);
+                } catch (IOException e) {
+                    Logger.log(e);
+                }
+            }
+        }
+
+        // Create Json response
+        JsonObject response = new JsonObject();
+        response.addProperty("imported", imported);
+
+        Server.sendResponse(exchange, 200, response, "application/json");
     }
 
     /**
@@ -0,0 +1,97 @@
+package app.http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The body of a response whose length is not known before it is written.
+ *
+ * The first bytes up to the compression threshold are buffered. If the body ends within them it is sent uncompressed
+ * with a fixed length, otherwise the headers are sent as soon as the threshold is exceeded and the body is streamed
+ * chunked, compressed with the negotiated encoding if there is one.
+ */
+class ResponseBody extends OutputStream {
+    private final HttpExchange exchange;
+    private final int rCode;
+    private final String encoding;
+    private final int threshold;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream out = null;
+    private long length = 0;
+
+    /**
+     * Creates the body, the headers are not sent yet.
+     *
+     * @param exchange The exchange to which will be responded.
+     * @param rCode    The status code of the response.
+     * @param encoding The negotiated content encoding or null to send the body uncompressed.
+     * @param threshold The number of bytes that are buffered before the body is streamed.
+     */
+    ResponseBody(HttpExchange exchange, int rCode, String encoding, int threshold) {
+        this.exchange = exchange;
+        this.rCode = rCode;
+        this.encoding = encoding;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the number of bytes written to the body before it was compressed.
+     * @return the uncompressed length of the body
+     */
+    long getLength() {
+        return length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        length += len;
+        if (out == null) {
+            if (buffer.size() + len <= threshold) {
+                buffer.write(b, off, len);
+                return;
+            }
+            this.open();
+        }
+        out.write(b, off, len);
+    }
+
+    private void open() throws IOException {
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+            exchange.sendResponseHeaders(rCode, 0);
+            out = Compression.compress(exchange.getResponseBody(), encoding);
+        } else {
+            exchange.sendResponseHeaders(rCode, 0);
+            out = exchange.getResponseBody();
+        }
+        buffer.writeTo(out);
+        buffer = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            // The whole body fit into the buffer, send it with its length
+            exchange.sendResponseHeaders(rCode, buffer.size() == 0 ? -1 : buffer.size());
+            out = exchange.getResponseBody();
+            buffer.writeTo(out);
+            buffer = null;
+        }
+        out.close();
+    }
+}
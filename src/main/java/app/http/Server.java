@@ -2,27 +2,35 @@ package app.http;
 
 import app.Main;
 import app.data.MimeObject;
-import app.db.Database;
+import app.db.InteractionStore;
 import app.http.logger.Logger;
 import app.http.logger.LoggerLevel;
 import com.google.gson.JsonObject;
 import com.sun.net.httpserver.BasicAuthenticator;
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
 
 /**
  * Contains the http server for the rest API.
  */
 public class Server {
 	private static HttpServer server = null;
-	private static ExecutorService executor = null;
-	public static Database db = null;
+	private static RequestExecutor executor = null;
+	private static AnalysisPool analysis = null;
+	private static Jobs jobs = null;
+	private static SingleFlight<Object, MimeObject> singleFlight = null;
+	private static GraphEvents graphEvents = null;
+	public static InteractionStore db = null;
 
 
 	/**
@@ -30,9 +38,9 @@ public class Server {
 	 * HTTP requests.
 	 *
 	 * @param port Port that the server should operate on
-	 * @param db Database used for storing interactions and generating graphs
+	 * @param db Store used for storing interactions and generating graphs
 	 */
-	public static void start(int port, Database db) {
+	public static void start(int port, InteractionStore db) {
 		Server.db = db;
 		if(server != null) {
 			Logger.logStartError(port);
@@ -48,22 +56,38 @@ public class Server {
 		};
 
 		try {
-			// Creates a new HTTP server with the given port.
-			server = HttpServer.create(new InetSocketAddress(port), 0);
+			// Creates a new HTTP server with the given port on the blocking or the non-blocking transport.
+			server = createServer(Main.properties.getProperty("server_transport"), new InetSocketAddress(port));
 
-			// Set execution mode to parallel.
-			executor = java.util.concurrent.Executors.newCachedThreadPool();
+			// Set execution mode to parallel, on virtual threads or a bounded number of threads and queued requests.
+			executor = createExecutor(Main.properties.getProperty("server_mode"));
 			server.setExecutor(executor);
+			// Analyses run on their own threads, so they do not block the threads handling requests.
+			analysis = new AnalysisPool(Integer.parseInt(Main.properties.getProperty("analysis_threads")),
+					Integer.parseInt(Main.properties.getProperty("analysis_queue_size")));
+			jobs = new Jobs(analysis, Long.parseLong(Main.properties.getProperty("job_ttl")) * 1000);
+			singleFlight = new SingleFlight<>();
+			graphEvents = new GraphEvents(db, Long.parseLong(Main.properties.getProperty("events_interval")),
+					Integer.parseInt(Main.properties.getProperty("events_history")));
 
 			// Create new end points
-			server.createContext("/", RequestHandlers::rootRequests);
-			server.createContext("/admin", RequestHandlers::apiHandlerAdminPage).setAuthenticator(authenticator);
-			server.createContext("/api/interaction", RequestHandlers::apiHandlerInteraction);
-			server.createContext("/api/graph", RequestHandlers::apiHandlerGraph);
-			server.createContext("/api/network-analysis", RequestHandlers::apiHandlerNetworkAnalysis);
-			server.createContext("/api/graph-svg", RequestHandlers::apiHandlerGraphSVG);
-			server.createContext("/shutdown", RequestHandlers::shutdown).setAuthenticator(authenticator);
-			server.createContext("/api/ids", RequestHandlers::apiHandlerIds);
+			createContext("/", RequestHandlers::rootRequests);
+			createContext("/admin", RequestHandlers::apiHandlerAdminPage).setAuthenticator(authenticator);
+			createContext("/admin/rollups", RequestHandlers::apiHandlerRollups).setAuthenticator(authenticator);
+			createContext("/admin/stats", RequestHandlers::apiHandlerStats).setAuthenticator(authenticator);
+			createContext("/admin/export", RequestHandlers::apiHandlerExport).setAuthenticator(authenticator);
+			createContext("/admin/import", RequestHandlers::apiHandlerImport).setAuthenticator(authenticator);
+			createContext("/api/interaction", RequestHandlers::apiHandlerInteraction);
+			createContext("/api/interaction/stream", RequestHandlers::apiHandlerInteractionStream);
+			createContext("/api/persons", RequestHandlers::apiHandlerPersons);
+			createContext("/api/graph", RequestHandlers::apiHandlerGraph);
+			createContext("/api/graph/events", RequestHandlers::apiHandlerGraphEvents);
+			createContext("/api/network-analysis", RequestHandlers::apiHandlerNetworkAnalysis);
+			createContext("/api/graph-svg", RequestHandlers::apiHandlerGraphSVG);
+			createContext("/api/flow-distance", RequestHandlers::apiHandlerFlowDistance);
+			createContext("/api/jobs", RequestHandlers::apiHandlerJobs);
+			createContext("/shutdown", RequestHandlers::shutdown).setAuthenticator(authenticator);
+			createContext("/api/ids", RequestHandlers::apiHandlerIds);
 
 			Logger.logStartSuccess(port);
 
@@ -74,16 +98,169 @@ public class Server {
 		server.start();
 	}
 
+	/**
+	 * Creates the http server for the given transport. The non-blocking transport enforces the limits of requests
+	 * and closes idle connections, see {@link NioHttpServer}.
+	 *
+	 * @param transport The transport, {@code blocking} or {@code nio}
+	 * @param address The address the server listens on
+	 * @return The bound server
+	 * @throws IOException if the address could not be bound
+	 */
+	private static HttpServer createServer(String transport, InetSocketAddress address) throws IOException {
+		if (transport.equals("nio")) {
+			return NioHttpServer.create(address, 0,
+					Integer.parseInt(Main.properties.getProperty("server_max_header_size")),
+					Long.parseLong(Main.properties.getProperty("server_max_body_size")),
+					Long.parseLong(Main.properties.getProperty("server_idle_timeout")) * 1000);
+		} else if (!transport.equals("blocking")) {
+			throw new IllegalArgumentException("Unknown server transport: " + transport);
+		}
+		return HttpServer.create(address, 0);
+	}
+
+	/**
+	 * Creates the executor for the given server mode. Falls back to the bounded executor if virtual threads are
+	 * not supported by the JDK.
+	 *
+	 * @param mode The server mode, {@code virtual} or {@code bounded}
+	 * @return The executor for the requests
+	 */
+	private static RequestExecutor createExecutor(String mode) {
+		if (mode.equals("virtual")) {
+			try {
+				return RequestExecutor.virtual();
+			} catch (UnsupportedOperationException e) {
+				Logger.log("ERROR", e.getMessage() + ", using the bounded executor instead", LoggerLevel.BASIC);
+			}
+		} else if (!mode.equals("bounded")) {
+			throw new IllegalArgumentException("Unknown server mode: " + mode);
+		}
+		return new RequestExecutor(Integer.parseInt(Main.properties.getProperty("server_threads")),
+				Integer.parseInt(Main.properties.getProperty("server_queue_size")));
+	}
+
+	/**
+	 * Creates a context whose handler only answers with {@code 503 Service Unavailable} while the server is
+	 * overloaded, see {@link RequestExecutor}.
+	 *
+	 * @param path The path of the context
+	 * @param handler The handler of the context
+	 * @return The created context
+	 */
+	private static HttpContext createContext(String path, HttpHandler handler) {
+		return server.createContext(path, exchange -> {
+			if (RequestExecutor.isShedding()) {
+				sendServiceUnavailable(exchange);
+				return;
+			}
+			handler.handle(exchange);
+		});
+	}
+
+	/**
+	 * Returns the statistics of the executor that handles the requests.
+	 *
+	 * @return The statistics of the executor or an empty map if the server is not running
+	 */
+	public static Map<String, Long> getExecutorStatistics() {
+		RequestExecutor executor = Server.executor;
+		return executor != null ? executor.getStatistics() : Map.of();
+	}
+
+	/**
+	 * Returns the statistics of the connections of the non-blocking transport.
+	 *
+	 * @return The statistics of the connections or an empty map if the server is not running on that transport
+	 */
+	public static Map<String, Long> getTransportStatistics() {
+		HttpServer server = Server.server;
+		return server instanceof NioHttpServer ? ((NioHttpServer) server).getStatistics() : Map.of();
+	}
+
+	/**
+	 * Returns the pool that runs the CPU bound analyses of graphs.
+	 *
+	 * @return The analysis pool of the running server
+	 */
+	public static AnalysisPool getAnalysisPool() {
+		return analysis;
+	}
+
+	/**
+	 * Returns the asynchronous analysis jobs.
+	 *
+	 * @return The jobs of the running server
+	 */
+	public static Jobs getJobs() {
+		return jobs;
+	}
+
+	/**
+	 * Returns the computations that are shared by identical concurrent requests.
+	 *
+	 * @return The shared computations of the running server
+	 */
+	public static SingleFlight<Object, MimeObject> getSingleFlight() {
+		return singleFlight;
+	}
+
+	/**
+	 * Returns the statistics of the computations shared by identical requests.
+	 *
+	 * @return The statistics of the shared computations or an empty map if the server is not running
+	 */
+	public static Map<String, Long> getSingleFlightStatistics() {
+		SingleFlight<Object, MimeObject> singleFlight = Server.singleFlight;
+		return singleFlight != null ? singleFlight.getStatistics() : Map.of();
+	}
+
+	/**
+	 * Returns the changes of the graphs that are pushed to subscribed clients.
+	 *
+	 * @return The graph events of the running server
+	 */
+	public static GraphEvents getGraphEvents() {
+		return graphEvents;
+	}
+
+	/**
+	 * Returns the statistics of the clients subscribed to graph changes.
+	 *
+	 * @return The statistics of the graph events or an empty map if the server is not running
+	 */
+	public static Map<String, Long> getGraphEventsStatistics() {
+		GraphEvents graphEvents = Server.graphEvents;
+		return graphEvents != null ? graphEvents.getStatistics() : Map.of();
+	}
+
+	/**
+	 * Returns the statistics of the pool that runs the analyses.
+	 *
+	 * @return The statistics of the pool or an empty map if the server is not running
+	 */
+	public static Map<String, Long> getAnalysisStatistics() {
+		AnalysisPool analysis = Server.analysis;
+		return analysis != null ? analysis.getStatistics() : Map.of();
+	}
+
 	/**
 	 * Method that stops the server
 	 *
 	 * @param delay Delay after how many seconds the server should stop and all active connections should be terminated
 	 */
 	public static void stop(int delay) {
+		// Subscribers of graph events never finish their exchange, so they are closed first
+		graphEvents.close();
 		server.stop(delay);
 		executor.shutdown();
+		analysis.shutdown();
 		server = null;
 		executor = null;
+		analysis = null;
+		jobs = null;
+		singleFlight = null;
+		graphEvents = null;
 	}
 
 	/**
@@ -105,21 +282,84 @@ public class Server {
 		}
 
 		try {
-			OutputStream os = exchange.getResponseBody();
-			exchange.getResponseHeaders().set("Content-Type", responseObject.type);
-			exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*"); // Risky misky
-			exchange.sendResponseHeaders(rCode, responseObject.content.length);
-			os.write(responseObject.content);
-			Logger.logResponse(exchange, new String(responseObject.content));
-			os.close();
-		} catch (IOException e) {
-			sendInternalError(exchange);
+			String encoding = Compression.negotiate(exchange.getRequestHeaders().get("Accept-Encoding"));
+			if (responseObject.encoding != null) {
+				if (responseObject.encoding.equals(encoding)) {
+					// Pre-compressed bodies are sent as they are to clients that accept their encoding
+					exchange.getResponseHeaders().set("Content-Encoding", responseObject.encoding);
+					try (OutputStream os = openResponseBody(exchange, rCode, responseObject.type, responseObject.content.length, null)) {
+						os.write(responseObject.content);
+					}
+				} else {
+					try (OutputStream os = openResponseBody(exchange, rCode, responseObject.type, -1, encoding);
+						 InputStream is = Compression.decompress(responseObject.content, responseObject.encoding)) {
+						is.transferTo(os);
+					}
+				}
+				Logger.logResponse(exchange, responseObject.content.length, () -> "{ " + responseObject.content.length + " bytes " + responseObject.encoding + " }");
+			} else if (responseObject.body != null) {
+				// Streamed bodies are not closed if writing fails, so nothing buffered is sent as a complete response
+				setResponseHeaders(exchange, responseObject.type);
+				ResponseBody os = new ResponseBody(exchange, rCode, encoding, getCompressionThreshold());
+				responseObject.body.writeTo(os);
+				os.close();
+				Logger.logResponse(exchange, os.getLength(), () -> "{ streamed }");
+			} else {
+				try (OutputStream os = openResponseBody(exchange, rCode, responseObject.type, responseObject.content.length, encoding)) {
+					os.write(responseObject.content);
+				}
+				Logger.logResponse(exchange, responseObject.content.length, () -> new String(responseObject.content, StandardCharsets.UTF_8));
+			}
+		} catch (IOException | RuntimeException e) {
+			// Once the headers are sent, e.g. while streaming a large body, the status can not be changed anymore
+			if (exchange.getResponseCode() == -1) {
+				sendInternalError(exchange);
+			}
 			Logger.log("ERROR", "Error while sending response", LoggerLevel.BASIC);
 			e.printStackTrace();
 		}
 		exchange.close();
 	}
 
+	/**
+	 * Sends the headers of a response and returns the stream for its body. Bodies of at least
+	 * {@code compression_threshold} bytes are compressed with the given encoding and sent chunked, smaller ones are
+	 * sent as they are with a fixed length. For bodies of unknown length a {@link ResponseBody} is returned that sends
+	 * the headers once it knows which case applies.
+	 *
+	 * @param exchange The exchange to which will be responded.
+	 * @param rCode    The status code of the response.
+	 * @param contentType The type of the body.
+	 * @param length   The length of the uncompressed body or -1 if it is unknown.
+	 * @param encoding The encoding negotiated with {@link Compression#negotiate(List)} or null to send the body uncompressed.
+	 * @return The stream to write the body to, closing it completes the response.
+	 * @throws IOException if the headers could not be sent
+	 */
+	public static OutputStream openResponseBody(HttpExchange exchange, int rCode, String contentType, long length, String encoding) throws IOException {
+		setResponseHeaders(exchange, contentType);
+		int threshold = getCompressionThreshold();
+		if (length < 0) {
+			return new ResponseBody(exchange, rCode, encoding, threshold);
+		}
+		if (encoding != null && length >= threshold) {
+			exchange.getResponseHeaders().set("Content-Encoding", encoding);
+			exchange.sendResponseHeaders(rCode, 0);
+			return Compression.compress(exchange.getResponseBody(), encoding);
+		}
+		exchange.sendResponseHeaders(rCode, Math.max(length, 0));
+		return exchange.getResponseBody();
+	}
+
+	private static void setResponseHeaders(HttpExchange exchange, String contentType) {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*"); // Risky misky
+		exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+	}
+
+	private static int getCompressionThreshold() {
+		return Integer.parseInt(Main.properties.getProperty("compression_threshold"));
+	}
+
 	/**
 	 * Sends a response to the given exchange with a given status code and response-body.
 	 *
@@ -144,6 +384,39 @@ public class Server {
 		sendResponse(exchange, rCode, response, exchange.getRequestHeaders().get("Accept"));
 	}
 
+	/**
+	 * Sets the entity tag of a response, see {@link EntityTag}. It is only set for successful responses, so clients
+	 * do not revalidate errors.
+	 *
+	 * @param exchange The exchange to which will be responded.
+	 * @param tag The quoted entity tag.
+	 */
+	public static void setEntityTag(HttpExchange exchange, String tag) {
+		exchange.getResponseHeaders().set("ETag", tag);
+		exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "ETag");
+	}
+
+	/**
+	 * Function that returns a 304 HTTP-status code without a body and lets the client know that its cached response
+	 * with the given entity tag is still up to date.
+	 *
+	 * @param exchange The request that will be handled.
+	 * @param tag The quoted entity tag of the cached response.
+	 */
+	public static void sendNotModified(HttpExchange exchange, String tag) {
+		setEntityTag(exchange, tag);
+		exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+		exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+		try {
+			exchange.sendResponseHeaders(304, -1);
+			Logger.logResponse(exchange, 0, () -> "");
+		} catch (IOException e) {
+			Logger.log("ERROR", "Error while sending response", LoggerLevel.BASIC);
+			e.printStackTrace();
+		}
+		exchange.close();
+	}
+
 	/**
 	 * Function that returns a 500 HTTP-status code and lets the user know that some internal
 	 * server error has happened and their request could not be handled correctly.
@@ -167,6 +440,19 @@ public class Server {
 		sendInternalError(exchange, "Oops, this should not have happened.");
 	}
 
+	/**
+	 * Function that returns a 503 HTTP-status code and lets the user know that the server is overloaded and
+	 * the request should be retried after {@code server_retry_after} seconds.
+	 *
+	 * @param exchange The request that will be handled.
+	 */
+	public static void sendServiceUnavailable(HttpExchange exchange) {
+		Logger.logRequest(exchange, "{  }");
+		exchange.getResponseHeaders().set("Retry-After", Main.properties.getProperty("server_retry_after"));
+		String response = "{\"error\": \"Service Unavailable\"}";
+		sendResponse(exchange, 503, response, "application/json");
+	}
+
 	/**
 	 * Function that returns a 405 HTTP-status code and lets the user know that the request
 	 * method used is not allowed for the chosen route.
@@ -0,0 +1,65 @@
+package app.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces identical requests that are computed at the same time. The first request with a key starts the
+ * computation, every request with the same key that arrives before it is finished waits for the same result instead
+ * of computing it again.
+ *
+ * A key is only in flight while it is computed, finished results are not cached.
+ *
+ * @param <K> the key identifying identical requests
+ * @param <V> the shared result
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Returns the result of the computation with the given key. If no computation with the key is in flight, the
+     * given function is called with a new future that it has to complete, possibly on another thread.
+     *
+     * @param key the key of the request
+     * @param start starts the computation and completes the given future with its result
+     * @return the future result shared by all requests with the key
+     */
+    public CompletableFuture<V> run(K key, Consumer<CompletableFuture<V>> start) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return running;
+        }
+
+        started.incrementAndGet();
+        // Requests arriving after the result are computed again, so they see newer data
+        future.whenComplete((result, e) -> inFlight.remove(key, future));
+        try {
+            start.accept(future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Returns the statistics of the coalesced requests.
+     *
+     * @return the number of computations in flight, started and requests that waited for another computation
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("in_flight", (long) inFlight.size());
+        statistics.put("started", started.get());
+        statistics.put("coalesced", coalesced.get());
+        return statistics;
+    }
+}
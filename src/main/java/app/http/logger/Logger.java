@@ -4,6 +4,7 @@ import com.sun.net.httpserver.HttpExchange;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
 
 /**
  * This class contains the logger that is used for logging events within the application.
@@ -105,6 +106,17 @@ public class Logger {
      * @param exchange The exchange containing information about the response.
      */
     public static void logResponse(HttpExchange exchange, String responseBody) {
+        logResponse(exchange, responseBody.getBytes().length, () -> responseBody);
+    }
+
+    /**
+     * Log an outgoing response from the server to a specified amount of detail. The body is only created if it is
+     * logged, so large bodies are not copied into a string for every response.
+     * @param exchange The exchange containing information about the response.
+     * @param bodyLength The number of bytes of the body.
+     * @param responseBody Creates the logged body.
+     */
+    public static void logResponse(HttpExchange exchange, long bodyLength, Supplier<String> responseBody) {
         if (loggerLevel == LoggerLevel.DISABLED) {
             return;
         }
@@ -112,14 +124,15 @@ public class Logger {
         // Create string for each detail
         String statusCode = String.valueOf(exchange.getResponseCode());
         String time = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").format(LocalDateTime.now());
-        String contentType = exchange.getResponseHeaders().get("Content-Type").toString().replace("[", "").replace("]", "").strip();
+        // responses without a body, e.g. 304 Not Modified, have no content type
+        String contentType = String.valueOf(exchange.getResponseHeaders().get("Content-Type")).replace("[", "").replace("]", "").strip();
         String headers = exchange.getResponseHeaders().entrySet().toString();
-        String bytes = ((responseBody + headers).getBytes().length) + " Bytes";
+        String bytes = (bodyLength + headers.getBytes().length) + " Bytes";
 
         StringBuilder builder = new StringBuilder();
         switch (loggerLevel) {
             case DETAILED:
-                builder.insert(0, String.format("tBody: %s%n",  responseBody));
+                builder.insert(0, String.format("tBody: %s%n",  responseBody.get()));
             case INTERMEDIATE:
                 builder.insert(0, String.format("\tHeaders: %s%n", headers));
             case BASIC:
@@ -0,0 +1,60 @@
+package app.analysis;
+
+import app.graph.Graph;
+import app.graph.Vertex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestFlowDistances {
+
+	private static Graph getFlowGraph() {
+		Graph graph = new Graph();
+		for (String v : List.of("a", "b", "c", "d", "e")) {
+			graph.addVertex(v);
+		}
+		graph.addEdge("a", "b", 1);
+		graph.addEdge("b", "c", 1.2);
+		graph.addEdge("a", "c", 1.7);
+		graph.addEdge("c", "d", 1);
+		return graph;
+	}
+
+	@Test
+	void matchesCompleteFlowGraph() {
+		Graph graph = getFlowGraph();
+		Graph complete = Centrality.flowDistance(graph);
+		FlowDistances distances = new FlowDistances(graph, 2);
+		for (Vertex v : graph.getVertices()) {
+			for (Vertex w : graph.getVertices()) {
+				if (v == w) continue;
+				assertEquals(complete.getEdge(v.getIdentifier(), w.getIdentifier()).getWeight(),
+						distances.distance(v.getIdentifier(), w.getIdentifier()), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	void distancesFrom() {
+		FlowDistances distances = new FlowDistances(getFlowGraph(), 0);
+		Map<String, Double> row = distances.distancesFrom("a", -1);
+		assertEquals(List.of("b", "c", "d"), List.copyOf(row.keySet()));
+		assertEquals(2.7, row.get("d"), 1e-9);
+		// unconnected vertices are left out
+		assertFalse(row.containsKey("e"));
+		assertTrue(distances.distancesFrom("e", -1).isEmpty());
+		assertEquals(Double.POSITIVE_INFINITY, distances.distance("a", "e"));
+		// top k
+		assertEquals(Map.of("b", 1.0), distances.distancesFrom("a", 1));
+	}
+
+	@Test
+	void unknownVertex() {
+		FlowDistances distances = new FlowDistances(getFlowGraph(), 1);
+		assertThrows(IllegalArgumentException.class, () -> distances.distance("a", "x"));
+		assertThrows(IllegalArgumentException.class, () -> distances.distancesFrom("x", -1));
+	}
+}
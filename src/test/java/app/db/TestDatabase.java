@@ -6,7 +6,10 @@ import app.graph.Graph;
 import org.junit.jupiter.api.*;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -244,6 +247,157 @@ public class TestDatabase {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void generateGraphWithDatetime() {
+        long day = Rollups.DAY;
+        this.db.addInteractions(new InteractionRequest(testNames4, day - 5, 10, false));
+        this.db.addInteractions(new InteractionRequest(testNames4, day + 5, 20, false));
+        this.db.addInteractions(new InteractionRequest(testNames5, 2 * day + Rollups.HOUR, 30, false));
+        this.db.addInteractions(new InteractionRequest(testNames6, 3 * day + 1, 40, false));
+
+        // edges of the range from the raw meetings, whole days from the rollups
+        SortedMap<String, String> filter = new TreeMap<>();
+        filter.put("MIN_DATETIME", String.valueOf(day - 10));
+        filter.put("MAX_DATETIME", String.valueOf(3 * day + 1));
+        Graph expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addVertex("3");
+        expected.addEdge("1", "2", 30);
+        expected.addEdge("1", "3", 30);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.db.generateGraph(GraphOptions.DURATION_SUM, filter));
+
+        // rebuilt rollups give the same result
+        assertTrue(this.db.rebuildRollups() > 0);
+        assertEquals(expected, this.db.generateGraph(GraphOptions.DURATION_SUM, filter));
+
+        // removing a person updates the rollups
+        this.db.removePerson("3");
+        filter.put("NAME", "1");
+        expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addEdge("1", "2", 3);
+        expected.normalizeEdgeWeights();
+        filter.remove("MAX_DATETIME");
+        assertEquals(expected, this.db.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+    }
+
+    @Test
+    public void generateGraphWithMeetingFilters() {
+        this.db.addInteractions(new InteractionRequest(testNames4, 0, 10, false));
+        this.db.addInteractions(new InteractionRequest(testNames4, 0, 50, false));
+        this.db.addInteractions(new InteractionRequest(testNames7, 0, 60, false));
+        this.db.addInteractions(new InteractionRequest(testNames8, 0, 70, true));
+
+        //minimal duration and talks only
+        SortedMap<String, String> filter = new TreeMap<>();
+        filter.put("MIN_DURATION", "50");
+        filter.put("TYPE", "TALK");
+        Graph expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addEdge("1", "2", 50);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.db.generateGraph(GraphOptions.DURATION_SUM, filter));
+
+        //meeting size and a set of names
+        filter = new TreeMap<>();
+        filter.put("MIN_PERSONS", "3");
+        filter.put("NAME", GraphFilters.join(List.of("3", "4", "unknown")));
+        filter.put("NOT_NAME", GraphFilters.join(List.of("1", "2")));
+        expected = new Graph();
+        expected.addVertex("3");
+        expected.addVertex("4");
+        expected.addEdge("3", "4", 1);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.db.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+
+        //documents only
+        filter = new TreeMap<>();
+        filter.put("TYPE", "DOCUMENT");
+        filter.put("MAX_PERSONS", "0");
+        expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("https://www.mysqltutorial.org/mysql-case-function/");
+        expected.addEdge("1", "https://www.mysqltutorial.org/mysql-case-function/", 1);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.db.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+    }
+
+    @Test
+    public void applyRetention() {
+        Properties prop = new Properties();
+        prop.putAll(Main.properties);
+        prop.setProperty("retention_days", "1");
+        prop.setProperty("retention_batch_size", "2");
+        prop.setProperty("retention_interval", "86400");
+        Database retained = new Database(prop);
+        if (!retained.initTest()) fail();
+        try {
+            long now = System.currentTimeMillis();
+            retained.addInteractions(new InteractionRequest(testNames4, 0, 10, false));
+            retained.addInteractions(new InteractionRequest(testNames6, Rollups.DAY, 20, false));
+            retained.addInteractions(new InteractionRequest(testNames5, 2 * Rollups.DAY, 30, false));
+            retained.addInteractions(new InteractionRequest(testNames8, 3 * Rollups.DAY, 40, true));
+            retained.addInteractions(new InteractionRequest(testNames4, now, 50, false));
+            retained.addInteractions(new InteractionRequest(testNames7, now, 60, false));
+
+            SortedMap<String, String> names = new TreeMap<>();
+            names.put("NOT_NAME", "4");
+            Map<GraphOptions, Graph> expected = new HashMap<>();
+            for (GraphOptions option : GraphOptions.values()) {
+                expected.put(option, retained.generateGraph(option, names));
+            }
+            List<String> ids = retained.getAllIds();
+
+            //all meetings but the recent ones are folded in batches
+            assertEquals(4, retained.applyRetention());
+            assertEquals(0, retained.applyRetention());
+            for (GraphOptions option : GraphOptions.values()) {
+                assertEquals(expected.get(option), retained.generateGraph(option, names));
+            }
+            assertEquals(ids, retained.getAllIds());
+
+            //the rollups of the folded days survive a rebuild and still answer datetime filters
+            SortedMap<String, String> days = new TreeMap<>();
+            days.put("MAX_DATETIME", Long.toString(4 * Rollups.DAY));
+            Graph folded = retained.generateGraph(GraphOptions.INTERACTION_SUM, days);
+            assertEquals(4, folded.getVertices().size());
+            retained.rebuildRollups();
+            assertEquals(folded, retained.generateGraph(GraphOptions.INTERACTION_SUM, days));
+
+            //filters on single meetings can not be applied to the folded meetings
+            SortedMap<String, String> filter = new TreeMap<>();
+            filter.put("MIN_DURATION", "0");
+            assertThrows(IllegalArgumentException.class, () -> retained.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+
+            //but to the meetings after the folded days
+            filter.put("MIN_DATETIME", Long.toString(now - 1));
+            Graph recent = new Graph();
+            recent.addVertex("1");
+            recent.addVertex("2");
+            recent.addVertex("3");
+            recent.addVertex("4");
+            recent.addEdge("1", "2", 2);
+            recent.addEdge("1", "3", 1);
+            recent.addEdge("1", "4", 1);
+            recent.addEdge("2", "3", 1);
+            recent.addEdge("2", "4", 1);
+            recent.addEdge("3", "4", 1);
+            recent.normalizeEdgeWeights();
+            assertEquals(recent, retained.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+
+            //the folded meeting of 1, 2 and 3 can not be recounted, so 2 and 3 keep their meeting without 1
+            retained.removePerson("1");
+            Graph weights = retained.generateFlowWeights(Collections.emptySortedMap());
+            assertEquals(Double.parseDouble(prop.getProperty("meeting_weight")), weights.getEdge("2", "3").getWeight());
+        } finally {
+            retained.deInitTest();
+        }
+    }
+
     @Test
     public void generateFlowGraph() {
         SortedMap<String, String> sortedEmptyMap = Collections.emptySortedMap();
@@ -300,6 +454,43 @@ public class TestDatabase {
         assertTrue(this.db.isEmpty());
     }
 
+    @Test
+    public void removeMultiplePersons() {
+        assertEquals(0, this.db.removePersons(List.of()));
+
+        //talk, meeting and document of the removed persons are deleted
+        this.db.addInteractions(testData4);
+        this.db.addInteractions(testData8);
+        this.db.addInteractions(testData10);
+        assertEquals(5, this.db.removePersons(List.of("1", "2", "Max")));
+        assertTrue(this.db.isEmpty());
+        this.db.clear();
+
+        //meetings with two persons left are kept
+        this.db.addInteractions(testData9);
+        assertEquals(2, this.db.removePersons(List.of("1", "2")));
+        assertTrue(this.db.contains("3", "4", 0, 0, 2));
+        assertEquals(List.of("3", "4"), this.db.getAllIds());
+    }
+
+    @Test
+    public void getAllIdsAfterRemove() {
+        this.db.addInteractions(testData2);
+        this.db.addInteractions(testData3);
+        this.db.removePerson("T1");
+        assertEquals(List.of("T3", "T4", "T5"), this.db.getAllIds());
+    }
+
+    @Test
+    public void getIdsByPrefixAfterRemove() {
+        this.db.addInteractions(testData2);
+        this.db.addInteractions(testData3);
+        this.db.removePerson("T1");
+        assertEquals(List.of("T3", "T4"), this.db.getIds("T", null, 2));
+        assertEquals(List.of("T5"), this.db.getIds("T", "T4", 2));
+        assertEquals(List.of(), this.db.getIds("T1", null, 2));
+    }
+
     @Test
     public void contains() {
         assertFalse(this.db.contains("1", "2",0,10, 2));
@@ -0,0 +1,76 @@
+package app.db;
+
+import app.graph.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestGraphCache {
+
+    private static Graph graph() {
+        Graph g = new Graph();
+        g.addVertex("1");
+        g.addVertex("2");
+        g.addEdge("1", "2", 0.5);
+        return g;
+    }
+
+    @Test
+    public void hitReturnsCopy() {
+        GraphCache cache = new GraphCache(4, 60000);
+        Map<String, String> filter = new TreeMap<>(Map.of("NAME", "1"));
+        assertNull(cache.get(GraphOptions.INTERACTION_SUM, filter, 0));
+        cache.put(GraphOptions.INTERACTION_SUM, filter, 0, graph());
+
+        Graph cached = cache.get(GraphOptions.INTERACTION_SUM, filter, 0);
+        assertEquals(graph(), cached);
+        cached.invertEdgeWeights();
+        assertEquals(graph(), cache.get(GraphOptions.INTERACTION_SUM, filter, 0));
+
+        assertEquals(2, cache.getStatistics().get("hits"));
+        assertEquals(1, cache.getStatistics().get("misses"));
+    }
+
+    @Test
+    public void keyContainsOptionFilterAndVersion() {
+        GraphCache cache = new GraphCache(4, 60000);
+        cache.put(GraphOptions.INTERACTION_SUM, Map.of(), 0, graph());
+        assertNull(cache.get(GraphOptions.DURATION_SUM, Map.of(), 0));
+        assertNull(cache.get(GraphOptions.INTERACTION_SUM, Map.of("NAME", "1"), 0));
+        assertNull(cache.get(GraphOptions.INTERACTION_SUM, Map.of(), 1));
+        assertNotNull(cache.get(GraphOptions.INTERACTION_SUM, Map.of(), 0));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        GraphCache cache = new GraphCache(2, 60000);
+        cache.put(GraphOptions.INTERACTION_SUM, Map.of(), 0, graph());
+        cache.put(GraphOptions.DURATION_SUM, Map.of(), 0, graph());
+        cache.get(GraphOptions.INTERACTION_SUM, Map.of(), 0);
+        cache.put(GraphOptions.FLOW_DISTANCE, Map.of(), 0, graph());
+
+        assertNotNull(cache.get(GraphOptions.INTERACTION_SUM, Map.of(), 0));
+        assertNull(cache.get(GraphOptions.DURATION_SUM, Map.of(), 0));
+        assertEquals(2, cache.getStatistics().get("size"));
+        assertEquals(1, cache.getStatistics().get("evictions"));
+    }
+
+    @Test
+    public void evictsExpired() throws InterruptedException {
+        GraphCache cache = new GraphCache(2, 10);
+        cache.put(GraphOptions.INTERACTION_SUM, Map.of(), 0, graph());
+        Thread.sleep(20);
+        assertNull(cache.get(GraphOptions.INTERACTION_SUM, Map.of(), 0));
+        assertEquals(0, cache.getStatistics().get("size"));
+    }
+
+    @Test
+    public void disabled() {
+        GraphCache cache = new GraphCache(0, 60000);
+        cache.put(GraphOptions.INTERACTION_SUM, Map.of(), 0, graph());
+        assertNull(cache.get(GraphOptions.INTERACTION_SUM, Map.of(), 0));
+    }
+}
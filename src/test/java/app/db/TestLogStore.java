@@ -0,0 +1,124 @@
+package app.db;
+
+import app.Main;
+import app.data.InteractionRequest;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLogStore {
+
+    @TempDir
+    Path directory;
+
+    private Properties properties() {
+        Properties prop = new Properties();
+        prop.putAll(Main.properties);
+        prop.setProperty("store_directory", directory.toString());
+        prop.setProperty("store_compaction_threshold", String.valueOf(Integer.MAX_VALUE));
+        return prop;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void recover() {
+        LogStore store = new LogStore(this.properties());
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2", "3"}, 10, 20, false));
+        store.addInteractions(new InteractionRequest(new String[]{"1", "doc"}, 30, 0, true));
+        store.removePerson("3");
+
+        LogStore recovered = new LogStore(this.properties());
+        assertEquals(List.of("1", "2", "doc"), recovered.getAllIds());
+        assertTrue(recovered.contains("1", "2", 10, 20, 2));
+        assertTrue(recovered.contains("1", "doc", 30, 0, 0));
+        assertEquals(store.generateGraph(GraphOptions.INTERACTION_SUM), recovered.generateGraph(GraphOptions.INTERACTION_SUM));
+    }
+
+    @Test
+    public void recoverTornSegment() throws IOException {
+        LogStore store = new LogStore(this.properties());
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 10, 20, false));
+        Files.write(directory.resolve("segment-0000000000000000.log"), new byte[]{0, 0, 0, 42, 1, 2},
+                StandardOpenOption.APPEND);
+
+        LogStore recovered = new LogStore(this.properties());
+        assertTrue(recovered.contains("1", "2", 10, 20, 2));
+        recovered.addInteractions(new InteractionRequest(new String[]{"1", "3"}, 10, 20, false));
+
+        recovered = new LogStore(this.properties());
+        assertEquals(List.of("1", "2", "3"), recovered.getAllIds());
+    }
+
+    @Test
+    public void recoverInWindows() throws IOException {
+        LogStore store = new LogStore(this.properties());
+        for (int i = 0; i < 10; i++) {
+            store.addInteractions(new InteractionRequest(new String[]{"1", String.valueOf(i + 2)}, i, 20, false));
+        }
+        Files.write(directory.resolve("segment-0000000000000000.log"), new byte[]{0, 0, 0, 42, 1, 2},
+                StandardOpenOption.APPEND);
+
+        // Records of 36 bytes cross the end of most windows
+        LogStore recovered = new LogStore(this.properties(), 64);
+        assertEquals(store.getAllIds(), recovered.getAllIds());
+        assertEquals(store.generateGraph(GraphOptions.INTERACTION_SUM), recovered.generateGraph(GraphOptions.INTERACTION_SUM));
+        recovered.addInteractions(new InteractionRequest(new String[]{"1", "20"}, 10, 20, false));
+        assertEquals(List.of("segment-0000000000000000.log", "segment-0000000000000001.log"), this.files());
+    }
+
+    @Test
+    public void addInteractionBatch() throws IOException {
+        Properties prop = this.properties();
+        prop.setProperty("store_fsync_interval", "10");
+        LogStore store = new LogStore(prop);
+        assertEquals(2, store.addInteractionBatch(List.of(
+                new InteractionRequest(new String[]{"1", "2"}, 10, 20, false),
+                new InteractionRequest(new String[]{"1", "1"}, 10, 20, false),
+                new InteractionRequest(new String[]{"2", "3"}, 10, 20, false))));
+
+        LogStore recovered = new LogStore(this.properties());
+        assertEquals(List.of("1", "2", "3"), recovered.getAllIds());
+        assertTrue(recovered.contains("2", "3", 10, 20, 2));
+    }
+
+    @Test
+    public void compact() throws IOException {
+        LogStore store = new LogStore(this.properties());
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 10, 20, false));
+        store.addInteractions(new InteractionRequest(new String[]{"1", "3", "4"}, 10, 20, false));
+        store.removePerson("2");
+        store.removePerson("4");
+        store.compact();
+        assertEquals(List.of("segment-0000000000000001.log", "snapshot-0000000000000000.log"), this.files());
+
+        store.addInteractions(new InteractionRequest(new String[]{"3", "5"}, 10, 20, false));
+        LogStore recovered = new LogStore(this.properties());
+        assertEquals(List.of("1", "3", "5"), recovered.getAllIds());
+        assertTrue(recovered.contains("1", "3", 10, 20, 2));
+    }
+
+    @Test
+    public void clear() throws IOException {
+        LogStore store = new LogStore(this.properties());
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 10, 20, false));
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertTrue(new LogStore(this.properties()).isEmpty());
+        assertEquals(List.of("segment-0000000000000000.log"), this.files());
+    }
+}
@@ -0,0 +1,265 @@
+package app.db;
+
+import app.Main;
+import app.data.InteractionRequest;
+import app.graph.Graph;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static app.analysis.Centrality.flowDistance;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMemoryStore {
+
+    private final String[] testNames4 = {"1", "2"};
+    private final String[] testNames5 = {"1", "3"};
+    private final String[] testNames6 = {"1", "2", "3"};
+    private final String[] testNames7 = {"1", "2", "3", "4"};
+    private final String[] testNames8 = {"1", "https://www.mysqltutorial.org/mysql-case-function/"};
+
+    private final InteractionRequest testData4 = new InteractionRequest(testNames4, 0, 10, false);
+    private final InteractionRequest testData5 = new InteractionRequest(testNames4, 0, 20, false);
+    private final InteractionRequest testData6 = new InteractionRequest(testNames5, 0, 30, false);
+    private final InteractionRequest testData8 = new InteractionRequest(testNames6, 0, 0, false);
+    private final InteractionRequest testData9 = new InteractionRequest(testNames7, 0, 0, false);
+    private final InteractionRequest testData10 = new InteractionRequest(testNames8, 0, 0, true);
+
+    private MemoryStore store = null;
+
+    @BeforeEach
+    public void init() {
+        store = new MemoryStore(Main.properties);
+        if (!store.initTest()) fail();
+    }
+
+    @AfterEach
+    public void deInit() {
+        if (!this.store.deInitTest()) fail();
+    }
+
+    @Test
+    public void addInteractions() {
+        assertEquals(0, this.store.addInteractions(new InteractionRequest(new String[]{"1", "1"}, 0, 0, false)));
+        assertTrue(this.store.isEmpty());
+
+        assertEquals(3, this.store.addInteractions(new InteractionRequest(new String[]{"A", "B", "B", "C"}, 5, 45, false)));
+        assertTrue(this.store.contains("A", "C", 5, 45, 3));
+        assertFalse(this.store.contains("A", "C", 5, 45, 2));
+
+        //document with more than 2 subjects
+        assertEquals(2, this.store.addInteractions(new InteractionRequest(new String[]{"A", "B", "doc"}, 0, 0, true)));
+        assertTrue(this.store.contains("A", "doc", 0, 0, 0));
+        assertTrue(this.store.contains("B", "doc", 0, 0, 0));
+        assertFalse(this.store.contains("A", "B", 0, 0, 0));
+    }
+
+    @Test
+    public void generateGraph() {
+        assertEquals(new Graph(), this.store.generateGraph(GraphOptions.INTERACTION_SUM));
+
+        this.store.addInteractions(testData4);
+        this.store.addInteractions(testData5);
+        this.store.addInteractions(testData6);
+        Graph expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addVertex("3");
+        expected.addEdge("1", "2", 60); // 2 * (20 + 10)
+        expected.addEdge("1", "3", 30); // 1 * (30)
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.INTERACTION_TIMES_DURATION));
+
+        expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addVertex("3");
+        expected.addEdge("1", "2", 1.0 / 2);
+        expected.addEdge("1", "3", 1.0);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.INVERTED_INTERACTION_SUM));
+    }
+
+    @Test
+    public void generateGraphWithFilters() {
+        this.store.addInteractions(testData9);
+        SortedMap<String, String> filter = new TreeMap<>();
+        filter.put("NOT_NAME", "1"); //1 shouldn't be a vertex
+        filter.put("NAME", "2"); //edge 3 to 4 shouldn't be there
+        Graph expected = new Graph();
+        expected.addVertex("2");
+        expected.addVertex("3");
+        expected.addVertex("4");
+        expected.addEdge("2", "3");
+        expected.addEdge("2", "4");
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+
+        //unknown names match no pairs
+        filter.put("NAME", "5");
+        assertEquals(new Graph(), this.store.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+
+        //datetime bounds are exclusive
+        this.store.clear();
+        this.store.addInteractions(new InteractionRequest(testNames4, 10, 10, false));
+        this.store.addInteractions(new InteractionRequest(testNames5, 20, 10, false));
+        filter = new TreeMap<>();
+        filter.put("MIN_DATETIME", "10");
+        filter.put("MAX_DATETIME", "21");
+        expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("3");
+        expected.addEdge("1", "3");
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+    }
+
+    @Test
+    public void generateGraphWithMeetingFilters() {
+        this.store.addInteractions(new InteractionRequest(testNames4, 0, 10, false));
+        this.store.addInteractions(new InteractionRequest(testNames4, 0, 50, false));
+        this.store.addInteractions(new InteractionRequest(testNames7, 0, 60, false));
+        this.store.addInteractions(new InteractionRequest(testNames8, 0, 70, true));
+
+        //minimal duration and talks only
+        SortedMap<String, String> filter = new TreeMap<>();
+        filter.put("MIN_DURATION", "50");
+        filter.put("TYPE", "TALK");
+        Graph expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addEdge("1", "2", 50);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.DURATION_SUM, filter));
+
+        //meeting size and a set of names
+        filter = new TreeMap<>();
+        filter.put("MIN_PERSONS", "3");
+        filter.put("NAME", GraphFilters.join(List.of("3", "4", "unknown")));
+        filter.put("NOT_NAME", GraphFilters.join(List.of("1", "2")));
+        expected = new Graph();
+        expected.addVertex("3");
+        expected.addVertex("4");
+        expected.addEdge("3", "4", 1);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+
+        //documents only
+        filter = new TreeMap<>();
+        filter.put("TYPE", "DOCUMENT");
+        filter.put("MAX_PERSONS", "0");
+        expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("https://www.mysqltutorial.org/mysql-case-function/");
+        expected.addEdge("1", "https://www.mysqltutorial.org/mysql-case-function/", 1);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.INTERACTION_SUM, filter));
+    }
+
+    @Test
+    public void generateFlowGraph() {
+        Graph expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addVertex("3");
+        expected.addVertex("https://www.mysqltutorial.org/mysql-case-function/");
+        expected.addEdge("1", "2", 1);
+        expected.addEdge("1", "3", 1.2);
+        expected.addEdge("2", "3", 1.2);
+        expected.addEdge("1", "https://www.mysqltutorial.org/mysql-case-function/", 1.7);
+        this.store.addInteractions(testData4);
+        this.store.addInteractions(testData8);
+        this.store.addInteractions(testData10);
+        assertEquals(flowDistance(expected), this.store.generateGraph(GraphOptions.FLOW_DISTANCE));
+    }
+
+    @Test
+    public void removePersons() {
+        assertEquals(0, this.store.removePerson("Max"));
+
+        //single interaction: talk -> delete
+        this.store.addInteractions(testData4);
+        assertEquals(1, this.store.removePerson("1"));
+        assertTrue(this.store.isEmpty());
+        assertEquals(List.of(), this.store.getAllIds());
+
+        //multiple interactions: meeting -> talk
+        this.store.addInteractions(testData8);
+        assertEquals(1, this.store.removePerson("3"));
+        assertTrue(this.store.contains("1", "2", 0, 0, 2));
+        assertEquals(List.of("1", "2"), this.store.getAllIds());
+        this.store.clear();
+
+        //file interaction
+        this.store.addInteractions(testData10);
+        assertEquals(1, this.store.removePerson("1"));
+        assertTrue(this.store.isEmpty());
+    }
+
+    @Test
+    public void compactDeletedMeetings() {
+        this.store.addInteractions(testData9);
+        this.store.addInteractions(testData10);
+        this.store.addInteractions(new InteractionRequest(new String[]{"2", "3"}, 0, 10, false));
+        this.store.addInteractions(new InteractionRequest(new String[]{"3", "4"}, 0, 20, false));
+        assertEquals(5, this.store.removePersons(List.of("3", "4")));
+        // The document is the third deleted meeting of four, so the columns are compacted
+        assertEquals(1, this.store.removePerson(testNames8[1]));
+        assertEquals(List.of("1", "2"), this.store.getAllIds());
+        assertTrue(this.store.contains("1", "2", 0, 0, 2));
+        assertEquals(1, this.store.snapshot().size());
+        assertArrayEquals(testNames4, this.store.snapshot().get(0).names);
+
+        this.store.addInteractions(new InteractionRequest(new String[]{"2", "5"}, 0, 10, false));
+        Graph expected = new Graph();
+        expected.addVertex("1");
+        expected.addVertex("2");
+        expected.addVertex("5");
+        expected.addEdge("1", "2", 1);
+        expected.addEdge("2", "5", 1);
+        expected.normalizeEdgeWeights();
+        assertEquals(expected, this.store.generateGraph(GraphOptions.INTERACTION_SUM));
+    }
+
+    @Test
+    public void getIdsByPrefix() {
+        this.store.addInteractions(new InteractionRequest(new String[]{"ab", "aa", "b", "abc"}, 0, 10, false));
+        assertEquals(List.of("aa", "ab"), this.store.getIds("a", null, 2));
+        assertEquals(List.of("abc"), this.store.getIds("a", "ab", 2));
+        assertEquals(List.of("ab", "abc"), this.store.getIds("ab", "aa", 10));
+        assertEquals(List.of("b"), this.store.getIds("", "abc", 10));
+
+        // Persons without interactions are removed from the index
+        this.store.removePerson("aa");
+        this.store.addInteractions(new InteractionRequest(new String[]{"b", "c"}, 0, 10, false));
+        this.store.removePersons(List.of("ab", "abc"));
+        assertEquals(List.of(), this.store.getIds("a", null, 10));
+        assertEquals(List.of("b", "c"), this.store.getAllIds());
+    }
+
+    @Test
+    public void removeMultiplePersons() {
+        this.store.addInteractions(testData4);
+        this.store.addInteractions(testData8);
+        this.store.addInteractions(testData10);
+        assertEquals(5, this.store.removePersons(List.of("1", "2", "Max")));
+        assertTrue(this.store.isEmpty());
+
+        this.store.addInteractions(testData9);
+        assertEquals(2, this.store.removePersons(List.of("1", "2")));
+        assertTrue(this.store.contains("3", "4", 0, 0, 2));
+        assertEquals(List.of("3", "4"), this.store.getAllIds());
+    }
+
+    @Test
+    public void versionAndTestEnvironment() {
+        long version = this.store.getVersion();
+        this.store.addInteractions(testData4);
+        assertTrue(this.store.getVersion() > version);
+        this.store.deInitTest();
+        assertTrue(this.store.isEmpty());
+        this.store.initTest();
+    }
+}
@@ -0,0 +1,86 @@
+package app.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRollups {
+
+    private static final long H = Rollups.HOUR;
+    private static final long D = Rollups.DAY;
+
+    @Test
+    public void emptyRange() {
+        Rollups plan = new Rollups(10L, 11L);
+        assertTrue(plan.getRaw().isEmpty());
+        assertTrue(plan.getHours().isEmpty());
+        assertTrue(plan.getDays().isEmpty());
+    }
+
+    @Test
+    public void rangeWithinOneHour() {
+        Rollups plan = new Rollups(10L, 100L);
+        assertArrayEquals(new Long[]{11L, 99L}, plan.getRaw().get(0));
+        assertEquals(1, plan.getRaw().size());
+        assertTrue(plan.getHours().isEmpty());
+        assertTrue(plan.getDays().isEmpty());
+    }
+
+    @Test
+    public void rangeOfHoursWithEdges() {
+        Rollups plan = new Rollups(H / 2, 3 * H + 5);
+        assertEquals(List.of(List.of(H / 2 + 1, H - 1), List.of(3 * H, 3 * H + 4)),
+                plan.getRaw().stream().map(List::of).collect(Collectors.toList()));
+        assertArrayEquals(new Long[]{1L, 2L}, plan.getHours().get(0));
+        assertTrue(plan.getDays().isEmpty());
+    }
+
+    @Test
+    public void rangeOfDaysWithHoursAndEdges() {
+        Rollups plan = new Rollups(D - H - 2, 3 * D + H + 1);
+        assertArrayEquals(new Long[]{1L, 2L}, plan.getDays().get(0));
+        assertEquals(List.of(List.of(23L, 23L), List.of(72L, 72L)),
+                plan.getHours().stream().map(List::of).collect(Collectors.toList()));
+        assertEquals(List.of(List.of(D - H - 1, D - H - 1), List.of(3 * D + H, 3 * D + H)),
+                plan.getRaw().stream().map(List::of).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void edgesOfFoldedDaysAreWidened() {
+        // The lower edge lies on a folded day, the upper one on a day that was kept
+        Rollups plan = new Rollups(D - H - 2, 3 * D + H + 1, 2 * D);
+        assertArrayEquals(new Long[]{1L, 2L}, plan.getDays().get(0));
+        assertEquals(List.of(List.of(22L, 23L), List.of(72L, 72L)),
+                plan.getHours().stream().map(List::of).collect(Collectors.toList()));
+        assertEquals(List.of(List.of(3 * D + H, 3 * D + H)),
+                plan.getRaw().stream().map(List::of).collect(Collectors.toList()));
+
+        Rollups within = new Rollups(10L, 100L, D);
+        assertArrayEquals(new Long[]{0L, 0L}, within.getHours().get(0));
+        assertTrue(within.getRaw().isEmpty());
+    }
+
+    @Test
+    public void exactBucketBoundaries() {
+        Rollups plan = new Rollups(-1L, D);
+        assertArrayEquals(new Long[]{0L, 0L}, plan.getDays().get(0));
+        assertTrue(plan.getHours().isEmpty());
+        assertTrue(plan.getRaw().isEmpty());
+    }
+
+    @Test
+    public void unboundedRanges() {
+        Rollups plan = new Rollups(null, 2 * D + 1);
+        assertArrayEquals(new Long[]{null, 1L}, plan.getDays().get(0));
+        assertTrue(plan.getHours().isEmpty());
+        assertEquals(List.of(List.of(2 * D, 2 * D)), plan.getRaw().stream().map(List::of).collect(Collectors.toList()));
+
+        plan = new Rollups(D - 1, null);
+        assertArrayEquals(new Long[]{1L, null}, plan.getDays().get(0));
+        assertTrue(plan.getHours().isEmpty());
+        assertTrue(plan.getRaw().isEmpty());
+    }
+}
@@ -47,6 +47,15 @@ class TestGraph {
         assertEquals(3, testgraph.getEdge("3", "2").getWeight());
     }
 
+    @Test
+    void copy() {
+        Graph copy = testgraph.copy();
+        assertEquals(testgraph, copy);
+        assertEquals(testgraph.getDescription(), copy.getDescription());
+        copy.setWeight("1", "2", 3);
+        assertEquals(2, testgraph.getEdge("1", "2").getWeight());
+    }
+
     @Test
     void removeEdge() {
         assertNotNull(testgraph.getEdge("1", "2"));
@@ -197,4 +206,13 @@ class TestGraph {
         assertEquals(0.5, testgraph.getEdge("1", "3").getWeight(), 0.001);
     }
 
-}
\ No newline at end of file
+    @Test
+    void contentHash() {
+        Graph g = testgraph;
+        setUp();
+        assertEquals(g.contentHash(), testgraph.contentHash());
+        testgraph.setWeight("1", "3", 3);
+        assertNotEquals(g.contentHash(), testgraph.contentHash());
+    }
+
+}
@@ -0,0 +1,52 @@
+package app.http;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAnalysisPool {
+
+    @Test
+    public void runSmallAndInteractiveFirst() throws InterruptedException, ExecutionException {
+        AnalysisPool pool = new AnalysisPool(1, 3);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        try {
+            pool.submit(AnalysisPool.Priority.INTERACTIVE, 0, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) { }
+            });
+            pool.submit(AnalysisPool.Priority.BACKGROUND, 1, () -> {
+                order.add("background");
+                done.countDown();
+            });
+            pool.submit(AnalysisPool.Priority.INTERACTIVE, 10, () -> {
+                order.add("large");
+                done.countDown();
+            });
+            Future<String> small = pool.submit(AnalysisPool.Priority.INTERACTIVE, 5, () -> {
+                order.add("small");
+                return "small";
+            });
+            assertThrows(RejectedExecutionException.class, () -> pool.submit(AnalysisPool.Priority.INTERACTIVE, 1, () -> { }));
+
+            release.countDown();
+            assertEquals("small", small.get());
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(List.of("small", "large", "background"), order);
+    }
+}
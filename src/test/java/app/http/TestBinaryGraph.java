@@ -0,0 +1,79 @@
+package app.http;
+
+import app.data.MimeObject;
+import app.graph.Graph;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBinaryGraph {
+
+    private static Graph graph() {
+        Graph graph = new Graph();
+        for (int i = 0; i < 300; i++) {
+            graph.addVertex("person " + i + " ä");
+        }
+        for (int i = 0; i < 300; i++) {
+            graph.addEdge("person " + i + " ä", "person " + (i * 7 + 1) % 300 + " ä", 1.0 / (i + 3));
+        }
+        graph.addVertex("alone");
+        return graph;
+    }
+
+    @Test
+    public void graphRoundTrip() throws IOException {
+        Graph graph = graph();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryGraph.writeGraph(graph, bos, false);
+        assertEquals(graph, BinaryGraph.readGraph(new ByteArrayInputStream(bos.toByteArray())));
+
+        ByteArrayOutputStream floats = new ByteArrayOutputStream();
+        BinaryGraph.writeGraph(graph, floats, true);
+        assertTrue(floats.size() < bos.size());
+        Graph read = BinaryGraph.readGraph(new ByteArrayInputStream(floats.toByteArray()));
+        assertEquals(graph.getEdges().size(), read.getEdges().size());
+        assertEquals((float) graph.getEdge("person 4 ä", "person 29 ä").getWeight(),
+                read.getEdge("person 4 ä", "person 29 ä").getWeight());
+    }
+
+    @Test
+    public void centralitiesRoundTrip() throws IOException {
+        Map<String, Map<String, Double>> centralities = Map.of(
+                "degree", Map.of("a", 1.0, "b", 0.5, "c", 0.25),
+                "closeness", Map.of("c", 0.125, "a", 2.0),
+                "centralization", Map.of("degree", 0.75, "closeness", 0.3));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryGraph.writeCentralities(centralities, bos, false);
+        assertEquals(centralities, BinaryGraph.readCentralities(new ByteArrayInputStream(bos.toByteArray())));
+    }
+
+    @Test
+    public void encode() throws IOException {
+        Graph graph = graph();
+        MimeObject encoded = Encoder.encode(graph, List.of(BinaryGraph.MIME_TYPE + "; precision=float"));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        encoded.body.writeTo(bos);
+        assertEquals(graph.getVertices().size(), BinaryGraph.readGraph(new ByteArrayInputStream(bos.toByteArray())).getVertices().size());
+
+        // Maps that are no centralities fall back to JSON
+        assertEquals("application/json", Encoder.encode(Map.of("imported", 1), List.of(BinaryGraph.MIME_TYPE)).type);
+    }
+
+    @Test
+    public void invalid() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryGraph.writeGraph(graph(), bos, false);
+        byte[] bytes = bos.toByteArray();
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryGraph.readGraph(new ByteArrayInputStream(new byte[]{'{', '}', 0, 0})));
+        assertThrows(IllegalArgumentException.class, () -> BinaryGraph.readGraph(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3))));
+        assertThrows(IllegalArgumentException.class, () -> BinaryGraph.readCentralities(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,40 @@
+package app.http;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCompression {
+
+    @Test
+    public void negotiate() {
+        assertNull(Compression.negotiate(null));
+        assertNull(Compression.negotiate(List.of("identity")));
+        assertEquals(Compression.GZIP, Compression.negotiate(List.of("gzip, deflate, br")));
+        assertEquals(Compression.GZIP, Compression.negotiate(List.of("x-gzip")));
+        assertEquals(Compression.DEFLATE, Compression.negotiate(List.of("deflate")));
+        assertEquals(Compression.DEFLATE, Compression.negotiate(List.of("gzip;q=0.5", "deflate;q=0.8")));
+        assertEquals(Compression.DEFLATE, Compression.negotiate(List.of("gzip;q=0, *")));
+        assertEquals(Compression.GZIP, Compression.negotiate(List.of("*")));
+        assertNull(Compression.negotiate(List.of("gzip;q=0, deflate;q=0")));
+        assertNull(Compression.negotiate(List.of("*;q=0")));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        byte[] content = "{\"nodes\":[\"a\",\"b\"],\"edges\":[]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+        for (String encoding : List.of(Compression.GZIP, Compression.DEFLATE)) {
+            byte[] compressed = Compression.compress(content, encoding);
+            assertTrue(compressed.length < content.length);
+            try (InputStream is = Compression.decompress(compressed, encoding)) {
+                assertArrayEquals(content, is.readAllBytes());
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> Compression.compress(content, "br"));
+    }
+}
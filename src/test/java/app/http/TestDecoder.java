@@ -0,0 +1,93 @@
+package app.http;
+
+import app.data.AnalysisRequest;
+import app.graph.Graph;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDecoder {
+    private static HttpServer server;
+    private static String url;
+
+    @BeforeAll
+    public static void startServer() throws IOException {
+        // Answers with the decoded graph or the message of the decoding error
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String response;
+            try {
+                AnalysisRequest request = Decoder.asAnalysis(exchange);
+                Graph graph = request.getGraph();
+                response = request.getCentralitySize() + " " + graph.getVertices().size() + " " + graph.getEdges().size()
+                        + " " + request.centralizationRequested();
+            } catch (IllegalArgumentException e) {
+                response = "error " + e.getMessage();
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterAll
+    public static void stopServer() {
+        server.stop(0);
+    }
+
+    private static String post(String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    @Test
+    public void analysis() throws IOException, InterruptedException {
+        assertEquals("2 3 2 true", post("""
+                {
+                  "ignored": {"a": [1, 2]},
+                  "data": {"a": {"b": 1, "c": 0.5}, "b": {"a": 1}, "c": {"a": 0.5}},
+                  "centralities": ["closeness", "degree"],
+                  "centralization": true
+                }"""));
+        // Neighbors may be declared after they are referenced
+        assertEquals("1 2 1 false", post("{\"centralities\": \"degree\", \"data\": {\"a\": {\"b\": 2}, \"b\": {}}}"));
+
+        Graph graph = new Graph();
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.addEdge("a", "b", 3);
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryGraph.writeGraph(graph, binary, false);
+        assertEquals("1 2 1 false", post("{\"centralities\": \"degree\", \"data\": \""
+                + Base64.getEncoder().encodeToString(binary.toByteArray()) + "\"}"));
+    }
+
+    @Test
+    public void invalidAnalysis() throws IOException, InterruptedException {
+        assertEquals("error JSON is missing field: centralities", post("{\"data\": {}}"));
+        assertEquals("error Body is not of expected type JSON object", post("[1]"));
+        assertEquals("error Body is not of expected type JSON", post("{\"centralities\": \"degree\""));
+        assertEquals("error Body is not of expected type JSON", post("{\"centralities\": \"degree\"} {}"));
+        assertEquals("error JSON field centralization is not a boolean", post("{\"centralities\": \"degree\", \"centralization\": 1}"));
+        assertEquals("error For the field centralities the Array should only contain Strings", post("{\"centralities\": [1]}"));
+        assertEquals("error Could not add Edge since b is not a Vertex", post("{\"centralities\": \"degree\", \"data\": {\"a\": {\"b\": 1}}}"));
+        assertEquals("error Vertex a is declared twice", post("{\"centralities\": \"degree\", \"data\": {\"a\": {}, \"a\": {}}}"));
+        assertEquals("error Weight between a and b is not a number", post("{\"centralities\": \"degree\", \"data\": {\"a\": {\"b\": true}, \"b\": {}}}"));
+    }
+}
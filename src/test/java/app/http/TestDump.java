@@ -0,0 +1,95 @@
+package app.http;
+
+import app.Main;
+import app.data.InteractionRequest;
+import app.data.MeetingRecord;
+import app.db.GraphOptions;
+import app.db.MemoryStore;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDump {
+
+    private final List<MeetingRecord> meetings = List.of(
+            new MeetingRecord(new String[]{"1", "2"}, 100, 10, 2),
+            new MeetingRecord(new String[]{"1", "2", "ä€"}, 200, 20, 3),
+            new MeetingRecord(new String[]{"1", "doc"}, 300, 0, 0));
+
+    private byte[] write(List<MeetingRecord> records, Dump.Format format) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (Dump.Writer writer = new Dump.Writer(os, format)) {
+            for (MeetingRecord meeting : records) {
+                writer.accept(meeting);
+            }
+        }
+        return os.toByteArray();
+    }
+
+    private List<MeetingRecord> read(byte[] dump, Dump.Format format) throws IOException {
+        List<MeetingRecord> result = new ArrayList<>();
+        Dump.read(new ByteArrayInputStream(dump), format).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Test
+    public void roundTripNdjson() throws IOException {
+        assertEquals(meetings, read(write(meetings, Dump.Format.NDJSON), Dump.Format.NDJSON));
+    }
+
+    @Test
+    public void roundTripBinary() throws IOException {
+        assertEquals(meetings, read(write(meetings, Dump.Format.BINARY), Dump.Format.BINARY));
+    }
+
+    @Test
+    public void readUncompressedNdjson() throws IOException {
+        byte[] dump = "{\"names\":[\"1\",\"2\"],\"datetime\":100,\"duration\":10,\"distinctPersons\":2}\n\n"
+                .getBytes(StandardCharsets.UTF_8);
+        assertEquals(List.of(meetings.get(0)), read(dump, Dump.Format.NDJSON));
+    }
+
+    @Test
+    public void readMalformed() throws IOException {
+        Iterator<MeetingRecord> ndjson = Dump.read(new ByteArrayInputStream("{\"names\":[\"1\"]}\n[1, 2".getBytes(StandardCharsets.UTF_8)), Dump.Format.NDJSON);
+        ndjson.next();
+        assertThrows(IllegalArgumentException.class, ndjson::hasNext);
+
+        byte[] binary = write(meetings, Dump.Format.BINARY);
+        assertThrows(IllegalArgumentException.class, () -> Dump.read(new ByteArrayInputStream(write(meetings, Dump.Format.NDJSON)), Dump.Format.BINARY));
+        // The gzip stream of a truncated dump ends unexpectedly
+        assertThrows(RuntimeException.class, () -> read(Arrays.copyOf(binary, binary.length - 10), Dump.Format.BINARY));
+        assertThrows(IllegalArgumentException.class, () -> Dump.Format.of("xml"));
+    }
+
+    @Test
+    public void exportImport() throws IOException {
+        MemoryStore source = new MemoryStore(Main.properties);
+        source.addInteractions(new InteractionRequest(new String[]{"1", "2", "3"}, 100, 10, false));
+        source.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 200, 20, false));
+        source.addInteractions(new InteractionRequest(new String[]{"3", "doc"}, 300, 5, true));
+
+        for (Dump.Format format : Dump.Format.values()) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            try (Dump.Writer writer = new Dump.Writer(os, format)) {
+                assertEquals(3, source.exportMeetings(writer));
+            }
+
+            MemoryStore target = new MemoryStore(Main.properties);
+            assertEquals(3, target.importMeetings(Dump.read(new ByteArrayInputStream(os.toByteArray()), format)));
+            for (GraphOptions option : GraphOptions.values()) {
+                assertEquals(source.generateGraph(option), target.generateGraph(option), option + " " + format);
+            }
+            assertEquals(source.getAllIds(), target.getAllIds());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package app.http;
+
+import app.data.AdjacencyList;
+import app.data.MimeObject;
+import app.graph.Graph;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestEncoder {
+
+    @Test
+    public void streamGraph() throws IOException {
+        Graph graph = new Graph();
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.addVertex("c");
+        graph.addEdge("a", "b", 1.5);
+        graph.addEdge("b", "c", 2);
+        graph.addVertex("d");
+
+        MimeObject encoded = Encoder.encode(graph, List.of("application/json"));
+        assertNull(encoded.content);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        encoded.body.writeTo(bos);
+
+        Map<String, Map<String, Double>> data = new Gson().fromJson(bos.toString(StandardCharsets.UTF_8),
+                new TypeToken<Map<String, Map<String, Double>>>() {}.getType());
+        assertEquals(graph, new AdjacencyList(data).asGraph());
+        assertEquals(Map.of(), data.get("d"));
+
+        // Other mime types are still encoded into a byte array
+        assertNotNull(Encoder.encode(graph, List.of("application/x-java-serialized-object")).content);
+    }
+
+    @Test
+    public void responseBody() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            int size = Integer.parseInt(exchange.getRequestURI().getQuery());
+            String encoding = Compression.negotiate(exchange.getRequestHeaders().get("Accept-Encoding"));
+            OutputStream os = new ResponseBody(exchange, 200, encoding, 100);
+            for (int i = 0; i < size; i++) {
+                os.write('x');
+            }
+            os.close();
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/?";
+
+            HttpURLConnection small = (HttpURLConnection) new URL(url + 50).openConnection();
+            small.setRequestProperty("Accept-Encoding", "gzip");
+            assertNull(small.getHeaderField("Content-Encoding"));
+            assertEquals(50, small.getContentLength());
+            try (InputStream is = small.getInputStream()) {
+                assertEquals(50, is.readAllBytes().length);
+            }
+
+            HttpURLConnection large = (HttpURLConnection) new URL(url + 5000).openConnection();
+            large.setRequestProperty("Accept-Encoding", "gzip");
+            assertEquals(Compression.GZIP, large.getHeaderField("Content-Encoding"));
+            assertEquals("chunked", large.getHeaderField("Transfer-Encoding"));
+            try (InputStream is = large.getInputStream()) {
+                byte[] compressed = is.readAllBytes();
+                assertTrue(compressed.length < 5000);
+                assertEquals("x".repeat(5000), new String(Compression.decompress(compressed, Compression.GZIP).readAllBytes(), StandardCharsets.US_ASCII));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package app.http;
+
+import app.Main;
+import app.data.InteractionRequest;
+import app.db.MemoryStore;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestEntityTag {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private MemoryStore store;
+
+    @BeforeAll
+    public void startServer() {
+        store = new MemoryStore(Main.properties);
+        Server.start(5003, store);
+    }
+
+    @AfterAll
+    public void stopServer() {
+        Server.stop(0);
+    }
+
+    private HttpResponse<String> get(String route, String tag) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:5003" + route));
+        if (tag != null) request.header("If-None-Match", tag);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void tagDependsOnVersionAndParameters() {
+        assertEquals(EntityTag.of(1, "graph", new byte[]{1, 2}), EntityTag.of(1, "graph", new byte[]{1, 2}));
+        assertNotEquals(EntityTag.of(1, "graph", new byte[]{1, 2}), EntityTag.of(1, "graph", new byte[]{1, 3}));
+        assertNotEquals(EntityTag.of(1, "graph"), EntityTag.of(2, "graph"));
+        assertNotEquals(EntityTag.of(1, "graph"), EntityTag.of(1, "ids"));
+    }
+
+    @Test
+    public void notModifiedUntilWrite() throws IOException, InterruptedException {
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 100, 10, false));
+
+        for (String route : new String[]{"/api/ids", "/api/graph"}) {
+            HttpResponse<String> first = get(route, null);
+            assertEquals(200, first.statusCode());
+            String tag = first.headers().firstValue("ETag").orElseThrow();
+
+            HttpResponse<String> cached = get(route, "W/\"other\", " + tag);
+            assertEquals(304, cached.statusCode(), cached.body());
+            assertEquals("", cached.body());
+            assertEquals(tag, cached.headers().firstValue("ETag").orElseThrow());
+
+            store.addInteractions(new InteractionRequest(new String[]{"2", "3"}, 200, 10, false));
+            HttpResponse<String> changed = get(route, tag);
+            assertEquals(200, changed.statusCode());
+            assertNotEquals(tag, changed.headers().firstValue("ETag").orElseThrow());
+        }
+    }
+
+    @Test
+    public void svgNotModifiedForSameBody() throws IOException, InterruptedException {
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 100, 10, false));
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:5003/api/graph-svg"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"centrality\": \"degree\"}"));
+        HttpResponse<String> first = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, first.statusCode());
+        String tag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> cached = client.send(request.header("If-None-Match", tag).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, cached.statusCode(), cached.body());
+
+        HttpResponse<String> other = client.send(HttpRequest.newBuilder(URI.create("http://localhost:5003/api/graph-svg"))
+                .header("If-None-Match", tag)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"centrality\": \"closeness\"}")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, other.statusCode(), other.body());
+    }
+}
@@ -0,0 +1,132 @@
+package app.http;
+
+import app.Main;
+import app.data.InteractionRequest;
+import app.db.GraphOptions;
+import app.db.MemoryStore;
+import app.graph.Graph;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestGraphEvents {
+
+    private static String awaitEvents(ByteArrayOutputStream events, int count) throws InterruptedException {
+        for (int i = 0; i < 500 && countEvents(events.toString(StandardCharsets.UTF_8)) < count; i++) {
+            Thread.sleep(10);
+        }
+        return events.toString(StandardCharsets.UTF_8);
+    }
+
+    private static int countEvents(String events) {
+        return events.split("\nevent: ", -1).length - 1;
+    }
+
+    private static String lastId(String events) {
+        Matcher matcher = Pattern.compile("id: (\\S+)").matcher(events);
+        String id = null;
+        while (matcher.find()) id = matcher.group(1);
+        return id;
+    }
+
+    @Test
+    public void diffEdges() {
+        Graph before = new Graph();
+        before.addVertex("a");
+        before.addVertex("b");
+        before.addVertex("c");
+        before.addEdge("a", "b", 1);
+        before.addEdge("b", "c", 1);
+        Graph after = new Graph();
+        after.addVertex("a");
+        after.addVertex("b");
+        after.addVertex("d");
+        after.addEdge("b", "a", 2);
+        after.addEdge("a", "d", 1);
+
+        Map<List<String>, Double> changes = GraphEvents.diff(before, after);
+        assertEquals(3, changes.size());
+        assertEquals(2, changes.get(List.of("a", "b")));
+        assertEquals(1, changes.get(List.of("a", "d")));
+        assertTrue(changes.containsKey(List.of("b", "c")));
+        assertNull(changes.get(List.of("b", "c")));
+        assertTrue(GraphEvents.diff(after, after).isEmpty());
+    }
+
+    @Test
+    public void pushAndResume() throws IOException, InterruptedException {
+        MemoryStore store = new MemoryStore(Main.properties);
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 100, 10, false));
+        try (GraphEvents graphEvents = new GraphEvents(store, 200, 10)) {
+            ByteArrayOutputStream first = new ByteArrayOutputStream();
+            graphEvents.subscribe(GraphOptions.INTERACTION_SUM, null, first, () -> { });
+            String snapshot = awaitEvents(first, 1);
+            assertTrue(snapshot.contains("event: graph\ndata: {"), snapshot);
+            String snapshotId = lastId(snapshot);
+
+            // A burst of writes is sent as one event
+            store.addInteractionBatch(List.of(new InteractionRequest(new String[]{"2", "3"}, 200, 10, false),
+                    new InteractionRequest(new String[]{"3", "4"}, 300, 10, false)));
+            String events = awaitEvents(first, 2);
+            String delta = events.substring(snapshot.length());
+            assertTrue(delta.contains("event: delta\n"), delta);
+            assertTrue(delta.contains("\"source\":\"2\",\"target\":\"3\""), delta);
+            assertTrue(delta.contains("\"source\":\"3\",\"target\":\"4\""), delta);
+
+            // A client that reconnects only receives the missed events
+            ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+            graphEvents.subscribe(GraphOptions.INTERACTION_SUM, snapshotId, resumed, () -> { });
+            assertEquals(delta, awaitEvents(resumed, 1));
+
+            ByteArrayOutputStream unknown = new ByteArrayOutputStream();
+            graphEvents.subscribe(GraphOptions.INTERACTION_SUM, "0-0", unknown, () -> { });
+            assertTrue(awaitEvents(unknown, 1).contains("event: graph\n"));
+            assertEquals(3L, graphEvents.getStatistics().get("subscribers"));
+        }
+    }
+
+    @Test
+    public void blockedSubscriberIsDropped() throws InterruptedException {
+        MemoryStore store = new MemoryStore(Main.properties);
+        store.addInteractions(new InteractionRequest(new String[]{"1", "2"}, 100, 10, false));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean closed = new AtomicBoolean();
+        try (GraphEvents graphEvents = new GraphEvents(store, 20, 10)) {
+            // A client that never reads, its first write blocks until the test ends
+            OutputStream blocked = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+            };
+            graphEvents.subscribe(GraphOptions.INTERACTION_SUM, null, blocked, () -> closed.set(true));
+            ByteArrayOutputStream reading = new ByteArrayOutputStream();
+            graphEvents.subscribe(GraphOptions.INTERACTION_SUM, null, reading, () -> { });
+
+            for (int i = 0; i <= GraphEvents.MAX_QUEUED + 5 && !closed.get(); i++) {
+                store.addInteractions(new InteractionRequest(new String[]{"1", String.valueOf(i + 3)}, 200 + i, 10, false));
+                awaitEvents(reading, i + 2);
+            }
+            assertTrue(closed.get());
+            assertTrue(countEvents(reading.toString(StandardCharsets.UTF_8)) > GraphEvents.MAX_QUEUED);
+            assertEquals(1L, graphEvents.getStatistics().get("subscribers"));
+        } finally {
+            release.countDown();
+        }
+    }
+}
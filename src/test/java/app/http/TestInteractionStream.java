@@ -0,0 +1,80 @@
+package app.http;
+
+import app.Main;
+import app.data.InteractionRequest;
+import app.db.MemoryStore;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInteractionStream {
+
+    @Test
+    public void batchesAndAcknowledges() throws IOException {
+        MemoryStore store = new MemoryStore(Main.properties);
+        ByteArrayOutputStream acks = new ByteArrayOutputStream();
+        try (InteractionStream stream = new InteractionStream(store, acks, 2, 60000)) {
+            stream.add(new InteractionRequest(new String[]{"1", "2"}, 100, 10, false));
+            assertTrue(store.isEmpty());
+            stream.add(new InteractionRequest(new String[]{"2", "3"}, 200, 10, false));
+            assertTrue(store.contains("2", "3", 200, 10, 2));
+            stream.reject(3, "JSON field duration is not an int");
+            stream.add(new InteractionRequest(new String[]{"1", "3"}, 300, 10, false));
+        }
+        assertTrue(store.contains("1", "3", 300, 10, 2));
+        assertEquals("""
+                {"stored":2,"rejected":0}
+                {"stored":3,"rejected":1,"error":"Line 3: JSON field duration is not an int","done":true}
+                """, acks.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void countsInteractionsTheStoreRejects() throws IOException {
+        MemoryStore store = new MemoryStore(Main.properties);
+        ByteArrayOutputStream acks = new ByteArrayOutputStream();
+        try (InteractionStream stream = new InteractionStream(store, acks, 2, 60000)) {
+            stream.add(new InteractionRequest(new String[]{"1", "2"}, 100, 10, false));
+            stream.add(new InteractionRequest(new String[]{"1", "1"}, 200, 10, false));
+        }
+        assertEquals("""
+                {"stored":1,"rejected":1,"error":"1 interactions with less than two distinct names were not stored"}
+                {"stored":1,"rejected":1,"error":"1 interactions with less than two distinct names were not stored","done":true}
+                """, acks.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void linesAreLimited() throws IOException {
+        byte[] body = "abc\r\n\n123456\r\n1234567\n".getBytes(StandardCharsets.UTF_8);
+        LineReader lines = new LineReader(new ByteArrayInputStream(body), 6);
+        assertEquals("abc", lines.readLine());
+        assertEquals("", lines.readLine());
+        assertEquals("123456", lines.readLine());
+        assertThrows(IllegalArgumentException.class, lines::readLine);
+        assertEquals(4, lines.getLineNumber());
+
+        lines = new LineReader(new ByteArrayInputStream("abc\nde".getBytes(StandardCharsets.UTF_8)), 6);
+        assertEquals("abc", lines.readLine());
+        assertEquals("de", lines.readLine());
+        assertNull(lines.readLine());
+    }
+
+    @Test
+    public void acknowledgesPeriodically() throws IOException, InterruptedException {
+        MemoryStore store = new MemoryStore(Main.properties);
+        ByteArrayOutputStream acks = new ByteArrayOutputStream();
+        try (InteractionStream stream = new InteractionStream(store, acks, 1000, 10)) {
+            stream.add(new InteractionRequest(new String[]{"1", "2"}, 100, 10, false));
+            // The started batch is written by the timer although it is not full
+            for (int i = 0; i < 500 && store.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(store.contains("1", "2", 100, 10, 2));
+        }
+        assertTrue(acks.toString(StandardCharsets.UTF_8).startsWith("{\"stored\":1,\"rejected\":0}\n"));
+    }
+}
@@ -0,0 +1,97 @@
+package app.http;
+
+import app.data.AnalysisRequest;
+import app.db.GraphOptions;
+import app.graph.Graph;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJobs {
+
+    private AnalysisPool pool = null;
+
+    @BeforeEach
+    public void init() {
+        pool = new AnalysisPool(1, 10);
+    }
+
+    @AfterEach
+    public void deInit() {
+        pool.shutdown();
+    }
+
+    private AnalysisRequest request(String... centralities) {
+        Graph graph = new Graph();
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.addVertex("c");
+        graph.addEdge("a", "b", 1);
+        graph.addEdge("b", "c", 2);
+        return new AnalysisRequest(centralities, graph, GraphOptions.INTERACTION_SUM, true);
+    }
+
+    private Jobs.Job await(Jobs jobs, String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Jobs.Job job = jobs.get(id);
+            if (job.getStatus() != Jobs.Status.QUEUED && job.getStatus() != Jobs.Status.RUNNING) return job;
+            Thread.sleep(10);
+        }
+        return fail("Job did not finish");
+    }
+
+    @Test
+    public void runJob() throws InterruptedException {
+        Jobs jobs = new Jobs(pool, 60_000);
+        Jobs.Job job = jobs.submit(request("degree", "closeness"));
+        assertSame(job, jobs.get(job.getId()));
+
+        job = await(jobs, job.getId());
+        assertEquals(Jobs.Status.DONE, job.getStatus());
+        assertEquals(1.0, job.asJsonObject().get("progress").getAsDouble());
+        assertTrue(job.asJsonObject().getAsJsonObject("result").has("degree"));
+        assertTrue(job.asJsonObject().getAsJsonObject("result").has("closeness"));
+        assertTrue(job.asJsonObject().getAsJsonObject("result").getAsJsonObject("centralization").has("closeness"));
+        assertNull(jobs.get("unknown"));
+    }
+
+    @Test
+    public void failJob() throws InterruptedException {
+        Jobs jobs = new Jobs(pool, 60_000);
+        Jobs.Job job = await(jobs, jobs.submit(request("unknown")).getId());
+        assertEquals(Jobs.Status.FAILED, job.getStatus());
+        assertEquals("Specified centrality not implemented", job.asJsonObject().get("error").getAsString());
+    }
+
+    @Test
+    public void cancelJob() throws InterruptedException {
+        Jobs jobs = new Jobs(pool, 60_000);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(AnalysisPool.Priority.INTERACTIVE, 0, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) { }
+        });
+        Jobs.Job job = jobs.submit(request("degree"));
+        assertEquals(Jobs.Status.QUEUED, job.getStatus());
+        assertSame(job, jobs.cancel(job.getId()));
+        release.countDown();
+
+        assertEquals(Jobs.Status.CANCELLED, await(jobs, job.getId()).getStatus());
+        assertFalse(job.asJsonObject().has("result"));
+    }
+
+    @Test
+    public void expireJob() throws InterruptedException {
+        Jobs jobs = new Jobs(pool, 0);
+        Jobs.Job job = jobs.submit(request("degree"));
+        for (int i = 0; i < 500 && job.getStatus() != Jobs.Status.DONE; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Jobs.Status.DONE, job.getStatus());
+        Thread.sleep(10);
+        assertNull(jobs.get(job.getId()));
+    }
+}
@@ -0,0 +1,184 @@
+package app.http;
+
+import com.sun.net.httpserver.BasicAuthenticator;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestNioHttpServer {
+    private NioHttpServer server;
+
+    @BeforeAll
+    public void startServer() throws IOException {
+        server = NioHttpServer.create(new InetSocketAddress(5004), 0, 1024, 4096, 30000);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            byte[] body = ("path " + exchange.getRequestURI().getPath()).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/echo", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/large", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                for (int i = 0; i < 1000; i++) {
+                    os.write(new byte[1000]);
+                }
+            }
+        });
+        server.createContext("/secret", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        }).setAuthenticator(new BasicAuthenticator("test") {
+            @Override
+            public boolean checkCredentials(String user, String pwd) {
+                return user.equals("admin") && pwd.equals("pass");
+            }
+        });
+        server.start();
+    }
+
+    @AfterAll
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Sends raw requests on one connection and returns everything the server sent until it closed the connection.
+     */
+    private static String exchange(String requests) throws IOException {
+        try (Socket socket = new Socket("localhost", 5004)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.ISO_8859_1));
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            in.transferTo(response);
+            return response.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static int count(String s, String part) {
+        return s.split(part, -1).length - 1;
+    }
+
+    @Test
+    public void keepAliveAndPipelining() throws IOException {
+        String responses = exchange("GET /a HTTP/1.1\r\nHost: x\r\n\r\n"
+                + "GET /b HTTP/1.1\r\nHost: x\r\n\r\n"
+                + "GET /c HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n");
+        assertEquals(3, count(responses, "HTTP/1.1 200 OK"), responses);
+        assertTrue(responses.indexOf("path /a") < responses.indexOf("path /b"));
+        assertTrue(responses.indexOf("path /b") < responses.indexOf("path /c"));
+        assertTrue(responses.endsWith("path /c"), responses);
+    }
+
+    @Test
+    public void chunkedBodies() throws IOException {
+        String response = exchange("POST /echo HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"
+                + "5\r\nhello\r\n6;ext=1\r\n world\r\n0\r\nTrailer: x\r\n\r\n");
+        assertTrue(response.toLowerCase().contains("transfer-encoding: chunked"), response);
+        assertTrue(response.endsWith("b\r\nhello world\r\n0\r\n\r\n"), response);
+    }
+
+    @Test
+    public void delayedBody() throws IOException, InterruptedException {
+        try (Socket socket = new Socket("localhost", 5004)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("POST /echo HTTP/1.1\r\nHost: x\r\nContent-Length: 5\r\nConnection: close\r\n\r\nhe".getBytes(StandardCharsets.ISO_8859_1));
+            // The handler waits for the rest of the body
+            Thread.sleep(200);
+            out.write("llo".getBytes(StandardCharsets.ISO_8859_1));
+            String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+            assertTrue(response.endsWith("5\r\nhello\r\n0\r\n\r\n"), response);
+        }
+    }
+
+    @Test
+    public void unreadBodyKeepsConnection() throws IOException {
+        String responses = exchange("POST /a HTTP/1.1\r\nHost: x\r\nContent-Length: 3\r\n\r\nabc"
+                + "GET /b HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n");
+        assertEquals(2, count(responses, "HTTP/1.1 200 OK"), responses);
+    }
+
+    @Test
+    public void limits() throws IOException {
+        String tooLarge = exchange("POST /echo HTTP/1.1\r\nHost: x\r\nContent-Length: 5000\r\n\r\n");
+        assertTrue(tooLarge.startsWith("HTTP/1.1 413 "), tooLarge);
+
+        String headers = exchange("GET / HTTP/1.1\r\nHost: x\r\nX-Large: " + "x".repeat(2000) + "\r\n\r\n");
+        assertTrue(headers.startsWith("HTTP/1.1 431 "), headers);
+
+        String malformed = exchange("GET /\r\n\r\n");
+        assertTrue(malformed.startsWith("HTTP/1.1 400 "), malformed);
+
+        // Chunked bodies are only known to be too large while they are read
+        String chunked = exchange("POST /echo HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "1001\r\n" + "x".repeat(4097) + "\r\n0\r\n\r\n");
+        assertFalse(chunked.contains("200 OK"), chunked);
+        assertTrue(server.getStatistics().get("rejected") >= 3);
+    }
+
+    @Test
+    public void stalledBodyTimesOut() throws IOException {
+        NioHttpServer slow = NioHttpServer.create(new InetSocketAddress(5006), 0, 1024, 0, 200);
+        slow.setExecutor(Executors.newCachedThreadPool());
+        slow.createContext("/", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        slow.start();
+        try (Socket socket = new Socket("localhost", 5006)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write("POST / HTTP/1.1\r\nHost: x\r\nContent-Length: 10\r\n\r\nabc".getBytes(StandardCharsets.ISO_8859_1));
+            // The handler fails once the client sent nothing for the idle timeout and the connection is closed
+            assertEquals(-1, socket.getInputStream().read());
+        } finally {
+            slow.stop(0);
+        }
+    }
+
+    @Test
+    public void clientAndAuthentication() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> large = client.send(HttpRequest.newBuilder(URI.create("http://localhost:5004/large")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, large.statusCode());
+        assertEquals(1000000, large.body().length());
+
+        HttpResponse<String> unauthorized = client.send(HttpRequest.newBuilder(URI.create("http://localhost:5004/secret")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(401, unauthorized.statusCode());
+        assertTrue(unauthorized.headers().firstValue("WWW-Authenticate").isPresent());
+
+        String credentials = Base64.getEncoder().encodeToString("admin:pass".getBytes(StandardCharsets.UTF_8));
+        HttpResponse<String> authorized = client.send(HttpRequest.newBuilder(URI.create("http://localhost:5004/secret"))
+                .header("Authorization", "Basic " + credentials).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(204, authorized.statusCode());
+    }
+}
@@ -0,0 +1,71 @@
+package app.http;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestExecutor {
+
+    @Test
+    public void shedWhenSaturated() throws InterruptedException {
+        RequestExecutor executor = new RequestExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        AtomicBoolean workerShedding = new AtomicBoolean(true);
+        AtomicBoolean shedding = new AtomicBoolean(false);
+        try {
+            // the worker is blocked, the second exchange waits in the queue and the third one is shed
+            executor.execute(() -> {
+                workerShedding.set(RequestExecutor.isShedding());
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) { }
+                done.countDown();
+            });
+            executor.execute(done::countDown);
+            executor.execute(() -> {
+                shedding.set(RequestExecutor.isShedding());
+                done.countDown();
+            });
+            assertEquals(1L, executor.getStatistics().get("queued"));
+            assertEquals(1L, executor.getStatistics().get("rejected"));
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertFalse(workerShedding.get());
+            assertTrue(shedding.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void virtualThreads() throws InterruptedException {
+        RequestExecutor executor;
+        try {
+            executor = RequestExecutor.virtual();
+        } catch (UnsupportedOperationException e) {
+            assertTrue(Runtime.version().feature() < 21);
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(100);
+        AtomicBoolean shedding = new AtomicBoolean(false);
+        try {
+            for (int i = 0; i < 100; i++) {
+                executor.execute(() -> {
+                    if (RequestExecutor.isShedding()) shedding.set(true);
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertFalse(shedding.get());
+            assertEquals(0L, executor.getStatistics().get("rejected"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
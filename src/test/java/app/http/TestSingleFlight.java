@@ -0,0 +1,64 @@
+package app.http;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSingleFlight {
+
+    @Test
+    public void shareComputationOfIdenticalKeys() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger computed = new AtomicInteger();
+        CompletableFuture<String> started = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.run("a", future -> {
+            computed.incrementAndGet();
+            started.whenComplete((result, e) -> future.complete(result));
+        });
+        CompletableFuture<String> second = flight.run("a", future -> computed.incrementAndGet());
+        CompletableFuture<String> other = flight.run("b", future -> {
+            computed.incrementAndGet();
+            future.complete("other");
+        });
+
+        assertSame(first, second);
+        assertFalse(first.isDone());
+        assertEquals("other", other.join());
+        assertEquals(1L, flight.getStatistics().get("in_flight"));
+
+        started.complete("shared");
+        assertEquals("shared", second.join());
+        assertEquals(2, computed.get());
+        assertEquals(0L, flight.getStatistics().get("in_flight"));
+        assertEquals(2L, flight.getStatistics().get("started"));
+        assertEquals(1L, flight.getStatistics().get("coalesced"));
+    }
+
+    @Test
+    public void computeAgainAfterCompletion() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger computed = new AtomicInteger();
+
+        assertEquals(1, flight.run("a", future -> future.complete(computed.incrementAndGet())).join());
+        assertEquals(2, flight.run("a", future -> future.complete(computed.incrementAndGet())).join());
+        assertEquals(0L, flight.getStatistics().get("coalesced"));
+    }
+
+    @Test
+    public void shareFailures() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+
+        CompletableFuture<String> failed = flight.run("a", future -> {
+            throw new IllegalArgumentException("invalid");
+        });
+
+        CompletionException e = assertThrows(CompletionException.class, failed::join);
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+        assertEquals("retried", flight.run("a", future -> future.complete("retried")).join());
+    }
+}
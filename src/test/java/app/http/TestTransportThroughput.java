@@ -0,0 +1,137 @@
+package app.http;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the throughput of the blocking and the non-blocking transport. Clients send requests on keep-alive
+ * connections as fast as they are answered. Only runs with {@code mvn test -Dtest=TestTransportThroughput -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class TestTransportThroughput {
+    private static final long DURATION = 5000;
+    private static final byte[] REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final HttpHandler HELLO = exchange -> {
+        byte[] body = "Hello World!".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    };
+
+    private static final HttpHandler LARGE = exchange -> {
+        byte[] body = new byte[64 * 1024];
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            for (int i = 0; i < 16; i++) {
+                os.write(body);
+            }
+        }
+    };
+
+    /**
+     * Reads one response with a fixed length or chunked body and returns the number of body bytes.
+     */
+    private static long readResponse(InputStream in) throws IOException {
+        long length = -1;
+        boolean chunked = false;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            String lower = line.toLowerCase();
+            if (lower.startsWith("content-length:")) length = Long.parseLong(line.substring(15).trim());
+            if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) chunked = true;
+        }
+        if (!chunked) {
+            in.skipNBytes(length);
+            return length;
+        }
+        long total = 0;
+        long size;
+        while ((size = Long.parseLong(readLine(in), 16)) > 0) {
+            in.skipNBytes(size);
+            readLine(in);
+            total += size;
+        }
+        readLine(in);
+        return total;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) throw new IOException("Connection closed");
+            if (c != '\r') line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    private static double measure(HttpServer server, int port, String path, int clients, AtomicLong errors) throws InterruptedException {
+        server.setExecutor(new RequestExecutor(64, 256));
+        server.createContext("/", HELLO);
+        server.createContext("/large", LARGE);
+        server.start();
+        byte[] request = new String(REQUEST, StandardCharsets.ISO_8859_1).replace("GET /", "GET " + path)
+                .getBytes(StandardCharsets.ISO_8859_1);
+        AtomicLong responses = new AtomicLong();
+        long end = System.currentTimeMillis() + DURATION;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", port)) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream(), 65536);
+                    while (System.currentTimeMillis() < end) {
+                        out.write(request);
+                        readResponse(in);
+                        responses.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        server.stop(0);
+        ((RequestExecutor) server.getExecutor()).shutdown();
+        return responses.get() * 1000.0 / DURATION;
+    }
+
+    @Test
+    public void compareTransports() throws IOException, InterruptedException {
+        int port = 5005;
+        for (String path : new String[]{"/", "/large"}) {
+            for (int clients : new int[]{16, 256}) {
+                AtomicLong blockingErrors = new AtomicLong();
+                AtomicLong nioErrors = new AtomicLong();
+                double blocking = measure(HttpServer.create(new InetSocketAddress(port), 0), port++, path, clients, blockingErrors);
+                double nio = measure(NioHttpServer.create(new InetSocketAddress(port), 0, 16384, 0, 30000), port++, path, clients, nioErrors);
+                System.out.printf("%-7s %4d clients: blocking %9.0f req/s (%d failed connections), nio %9.0f req/s (%d failed connections)%n",
+                        path, clients, blocking, blockingErrors.get(), nio, nioErrors.get());
+                assertTrue(blocking > 0 && nio > 0);
+            }
+        }
+    }
+}